@@ -0,0 +1,12 @@
+package pt.isec.pa.chess;
+
+import pt.isec.pa.chess.model.Uci;
+
+/**
+ * Headless entry point: plays through the UCI protocol on the standard input and output, without JavaFX.
+ */
+public class UciMain {
+    public static void main(String[] args) {
+        new Uci(System.in, System.out).run();
+    }
+}
@@ -1,8 +1,6 @@
 package pt.isec.pa.chess.model;
 
 import pt.isec.pa.chess.model.data.*;
-import pt.isec.pa.chess.model.data.pieces.King;
-import pt.isec.pa.chess.model.data.pieces.Pawn;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -36,6 +34,7 @@ public class ChessGame implements Serializable{
     public ChessGame(){
         this.currentPlayer = ColorType.WHITE;
         this.board = new Board(new String[0]);
+        this.board.setSideToMove(this.currentPlayer);
         this.whitesName = "Player 1";
         this.blacksName = "Player 2";
         this.whiteScore = new ArrayList<>();
@@ -54,6 +53,7 @@ public class ChessGame implements Serializable{
     public ChessGame(String whitesName, String blacksName) {
         this.currentPlayer = ColorType.WHITE;
         this.board = new Board(INITIALGAME.split(DIVIDER));
+        this.board.setSideToMove(this.currentPlayer);
         this.whitesName = whitesName.isEmpty() || whitesName.isBlank() ? "Player 1" : whitesName;
         this.blacksName = blacksName.isEmpty() || blacksName.isBlank() ? "Player 2" : blacksName;
         this.whiteScore = new ArrayList<>();
@@ -63,7 +63,9 @@ public class ChessGame implements Serializable{
     /**
      * {@code ChessGame} Builder with custom starting player and board setup.
      *
-     * @param game the file text content
+     * @param game the file text content, in the game format ({@code "WHITE,RA1*,KE1*,..."}) or in FEN or EPD
+     * @throws IllegalArgumentException if the text is FEN that is not valid
+     * @see Fen
      */
     public ChessGame(String game, String whitesName, String blacksName){
         this.whitesName = whitesName.isEmpty() || whitesName.isBlank() ? "Player 1" : whitesName;
@@ -71,11 +73,54 @@ public class ChessGame implements Serializable{
         this.whiteScore = new ArrayList<>();
         this.blackScore = new ArrayList<>();
 
+        if(Fen.isFen(game)) {
+            this.board = new Board((String[]) null);
+            Fen.read(game, 0, this.board);
+            this.currentPlayer = this.board.getSideToMove();
+            return;
+        }
+
         String[] pieces = game.split(DIVIDER);
         this.currentPlayer = ColorType.getColorType(pieces[0]);
         this.board = new Board(Arrays.copyOfRange(pieces, 1, pieces.length));
+        this.board.setSideToMove(this.currentPlayer);
     }
 
+    /**
+     * {@code ChessGame} Builder for a position already set up on a board, e.g. read by {@link Fen}.
+     *
+     * @param board the board, whose side to move is the current player
+     */
+    ChessGame(Board board, String whitesName, String blacksName){
+        this.whitesName = whitesName.isEmpty() || whitesName.isBlank() ? "Player 1" : whitesName;
+        this.blacksName = blacksName.isEmpty() || blacksName.isBlank() ? "Player 2" : blacksName;
+        this.whiteScore = new ArrayList<>();
+        this.blackScore = new ArrayList<>();
+        this.currentPlayer = board.getSideToMove();
+        this.board = board;
+    }
+
+
+    /**
+     * Games saved by the first version kept the side to move here only, so it is given to the board.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if(this.board == null || this.currentPlayer == null || this.whiteScore == null || this.blackScore == null)
+            throw new InvalidObjectException("Bad game");
+        this.board.setSideToMove(this.currentPlayer);
+    }
+
+    /**
+     * @return the game {@link Board}, for the model classes that search or count positions
+     */
+    Board getBoard() { return this.board; }
+
+    /**
+     * @return the Zobrist key of the current position, e.g. to look it up in a {@code TranspositionTable}
+     */
+    public long getHash() { return this.board.getHash(); }
 
     public int getRowSize() { return this.board.getRowSize(); }
 
@@ -126,6 +171,15 @@ public class ChessGame implements Serializable{
         }
     }
 
+    /**
+     * Adds a piece captured before the starting position of the board, e.g. when the game is read from a file.
+     *
+     * @param piece the captured piece, added to the score of its opponent
+     */
+    void addCaptured(Piece piece) {
+        (piece.getColor() == ColorType.WHITE ? this.blackScore : this.whiteScore).add(piece);
+    }
+
     public ColorType getCurrentPlayer() { return this.currentPlayer; }
 
     /**
@@ -207,50 +261,97 @@ public class ChessGame implements Serializable{
      * @param row the target row (1–8)
      * @param column the target column (A–H)
      * @return a {@link MoveType} defining the success of the movement.
+     *
+     * @implNote Only the legal moves of the current player are accepted, so the move is made directly on the board.
      */
     public MoveType movePiece(int pieceRow, char pieceColumn, int row, char column) {
-        MoveType res;
         Piece piece = this.board.getPiece(pieceRow, pieceColumn);
         if(piece == null || piece.getColor() != this.currentPlayer)
             return MoveType.NONE;
 
-        // Simulate Move
-        Board b = new Board(this.board);
-        int victim = b.getPieceIndex(row,column);
-        res = b.movePiece(pieceRow, pieceColumn,row,column);
-
-        if(res != MoveType.NONE && victim != -1)
-                b.popPiece(victim);
-        if(res != MoveType.NONE && check(b))
+        int move = this.board.getMove(pieceRow, pieceColumn, row, column);
+        if(move == Move.NONE)
             return MoveType.NONE;
 
-        victim = this.board.getPieceIndex(row,column);
-        res = this.board.movePiece(pieceRow, pieceColumn,row,column);
-        if(res != MoveType.NONE) {
-            changePlayer();
-            if(victim != -1)
-                addToScore(this.board.popPiece(victim));
-        }
+        return play(move);
+    }
 
-        return res;
+    /**
+     * Makes a packed move of the current player, such as the move chosen by the computer.
+     *
+     * @param move the packed {@link Move}
+     * @return a {@link MoveType} defining the success of the movement, {@code NONE} if the move is not legal.
+     */
+    public MoveType movePiece(int move) {
+        return movePiece(move, new int[MoveGenerator.MAX_MOVES]);
     }
 
     /**
-     * Determines whether the current player's is in check.
+     * Makes a packed move of the current player, generating the legal moves into a buffer of the caller,
+     * for the model classes that make many moves in a row.
      *
-     * @return {@code true} if the king is under threat by any opponent piece; {@code false} otherwise
+     * @param move the packed {@link Move}
+     * @param buffer a buffer of at least {@link MoveGenerator#MAX_MOVES} moves
+     * @return a {@link MoveType} defining the success of the movement, {@code NONE} if the move is not legal.
      */
-    public boolean check() {
-        King king = this.currentPlayer == ColorType.WHITE ? this.board.getWhiteKing() : this.board.getBlackKing();
+    MoveType movePiece(int move, int[] buffer) {
+        // only the moves of the same kind can be equal to it
+        int kinds = Move.isCapture(move) || Move.isPromotion(move) ? MoveGenerator.CAPTURES : MoveGenerator.QUIETS;
+        int n = MoveGenerator.generateLegal(this.board, buffer, 0, kinds);
+        for(int i = 0; i < n; i++)
+            if(buffer[i] == move)
+                return play(move);
+
+        return MoveType.NONE;
+    }
+
+    /**
+     * @return the last packed {@link Move}, promoting to the piece the Pawn was evolved to,
+     *         or {@link Move#NONE} if no move was made
+     */
+    public int getLastMove() { return this.board.getLastMove(); }
+
+    /**
+     * Takes back the last move, putting back the captured piece and the castling rights, en passant square
+     * and halfmove clock kept by the {@link Board}.
+     *
+     * @return the packed {@link Move} taken back, promoting to the piece the Pawn was evolved to,
+     *         or {@link Move#NONE} if no move was made
+     */
+    public int undoMove() {
+        int move = getLastMove();
+        if(move == Move.NONE)
+            return Move.NONE;
+
+        Piece victim = this.board.getLastCaptured();
+        this.board.unmakeMove();
+        changePlayer();
+        if(victim != null) {
+            List<Piece> score = victim.getColor() == ColorType.WHITE ? this.blackScore : this.whiteScore;
+            score.removeLast();
+        }
 
-        return this.board.getOpponentMoves(this.currentPlayer)[king.getRow()-1][Piece.getColumnIndex(king.getColumn())] == MoveType.TAKE;
+        return move;
     }
-    private boolean check(Board board) {
-        if(board == null) return true;
 
-        King king = this.currentPlayer == ColorType.WHITE ? board.getWhiteKing() : board.getBlackKing();
+    private MoveType play(int move) {
+        this.board.makeMove(move);
 
-        return board.getOpponentMoves(this.currentPlayer)[king.getRow()-1][Piece.getColumnIndex(king.getColumn())] == MoveType.TAKE;
+        changePlayer();
+        Piece victim = this.board.getLastCaptured();
+        if(victim != null)
+            addToScore(victim);
+
+        return Move.getMoveType(move);
+    }
+
+    /**
+     * Determines whether the current player's is in check.
+     *
+     * @return {@code true} if the king is under threat by any opponent piece; {@code false} otherwise
+     */
+    public boolean check() {
+        return this.board.isKingAttacked(this.currentPlayer);
     }
 
     /**
@@ -259,22 +360,64 @@ public class ChessGame implements Serializable{
      * @return {@code true} if the current player is in checkmate; {@code false} otherwise
      */
     public boolean checkmate() {
-        if(!check())
-            return false;
+        return check() && !hasLegalMoves();
+    }
+
+    /**
+     * Determines whether the current player's is in stalemate.
+     *
+     * @return {@code true} if the current player is not in check and has no legal moves; {@code false} otherwise
+     */
+    public boolean stalemate() {
+        return !check() && !hasLegalMoves();
+    }
 
-        King king = this.currentPlayer == ColorType.WHITE ? this.board.getWhiteKing() : this.board.getBlackKing();
-        MoveType[][] opponentMoves = this.board.getOpponentMoves(this.currentPlayer);
-        MoveType[][] kingMoves = king.getMoves(this.board);
+    /**
+     * Determines whether the current position occurred at least three times with the same player to move.
+     *
+     * @return {@code true} if the position is a threefold repetition; {@code false} otherwise
+     */
+    public boolean threefoldRepetition() {
+        return this.board.getRepetitions() >= 2;
+    }
 
-        for (int i = 0; i < 8; i++)
-            for (int j = 0; j < 8; j++)
-                if (kingMoves[i][j] != MoveType.NONE && opponentMoves[i][j] == MoveType.NONE) // the king can move
-                    return false;
+    /**
+     * Determines whether fifty moves of each player were made without a capture or a pawn move.
+     *
+     * @return {@code true} if the fifty-move rule applies; {@code false} otherwise
+     */
+    public boolean fiftyMoveRule() {
+        return this.board.getHalfmoveClock() >= 100;
+    }
 
-        // TODO : verificar se algum movimento remove o check
+    /**
+     * Determines whether neither player has enough material left to checkmate.
+     *
+     * @return {@code true} if the remaining pieces cannot checkmate; {@code false} otherwise
+     */
+    public boolean insufficientMaterial() {
+        return this.board.isInsufficientMaterial();
+    }
 
-        return true;
+    /**
+     * Determines whether the game is drawn, by stalemate, threefold repetition, the fifty-move rule
+     * or insufficient material. A checkmate on the last move of the fifty still wins the game.
+     *
+     * @return {@code true} if the game is drawn; {@code false} otherwise
+     */
+    public boolean draw() {
+        if(insufficientMaterial() || threefoldRepetition())
+            return true;
+        if(!hasLegalMoves())
+            return !check();
+        return fiftyMoveRule();
+    }
 
+    /**
+     * @return {@code true} if the current player can make at least one legal move
+     */
+    private boolean hasLegalMoves() {
+        return MoveGenerator.generateLegal(this.board, new int[MoveGenerator.MAX_MOVES], 0) > 0;
     }
 
     /**
@@ -283,24 +426,22 @@ public class ChessGame implements Serializable{
      * @param type the char representation of the piece to evolve to
      * */
     public void evolve(char type) {
-        Piece p = this.board.getLastMovedPiece();
-        if(p == null)
+        int move = this.board.getLastMove();
+        if(!Move.isPromotion(move))
             return;
 
+        Piece p = this.board.getPiece(Move.getTo(move));
+
         // check if the piece belongs to the player
         // (is inverted because it's called after the move is done, aka: the current player is not the one "doing" evolving the piece)
-        if(p.getColor() == this.currentPlayer)
-            return;
-
-        if(!(p instanceof Pawn pawn))
+        if(p == null || p.getColor() == this.currentPlayer)
             return;
 
-        // the Pawn is not on the right Row
-        if((pawn.getColor() == ColorType.WHITE && pawn.getRow() != 8) || (pawn.getColor() == ColorType.BLACK && pawn.getRow() != 1))
+        PieceType evolution = PieceType.getType(type);
+        if(evolution == null || evolution == PieceType.KING || evolution == PieceType.PAWN)
             return;
 
-        Piece e = this.board.popPiece(this.board.getPieceIndex(p.getRow(),p.getColumn()));
-        this.board.addPiece(PieceFactory.createPiece(PieceType.getType(type), e.getRow(), e.getColumn(), e.getColor(), true));
+        this.board.promote(Move.getTo(move), evolution);
     }
 
     @Override
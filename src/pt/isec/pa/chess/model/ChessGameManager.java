@@ -4,15 +4,27 @@ import pt.isec.pa.chess.model.memento.CareTaker;
 import pt.isec.pa.chess.model.memento.IMemento;
 import pt.isec.pa.chess.model.memento.IOriginator;
 import pt.isec.pa.chess.model.memento.Memento;
+import pt.isec.pa.chess.model.data.Board;
 import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
 import pt.isec.pa.chess.model.data.MoveType;
+import pt.isec.pa.chess.model.engine.Engine;
+import pt.isec.pa.chess.model.engine.SearchLimits;
+import pt.isec.pa.chess.model.engine.SearchResult;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.File;
 import java.io.FileWriter;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -25,11 +37,20 @@ public class ChessGameManager implements IOriginator {
 	public static final String GAME_CHANGE = "GAME";
 	public static final String PLAYER_CHANGE = "PLAYER";
 	public static final String CHECKMATE = "CHECKMATE";
+	public static final String DRAW = "DRAW";
 	public static final String EVOLVE = "EVOLVE";
 
 	private ChessGame model;
 	private final PropertyChangeSupport pcs;
 	private final CareTaker careTaker;
+	private final Engine engine;
+	private final Ponder ponder;
+	private boolean pondering;
+	private CompletableFuture<SearchResult> thinking;
+	private AtomicBoolean thinkingStopped;
+
+	/** Runs the searches of {@link #computerMove(SearchLimits, Executor)}, each on its own virtual thread. */
+	private static final Executor COMPUTER = task -> Thread.ofVirtual().name("computer").start(task);
 
 	/**
 	 * Constructs a new {@code ChessGameManager}, initializing a fresh chess game model,
@@ -42,6 +63,8 @@ public class ChessGameManager implements IOriginator {
 		this.model = new ChessGame();
 		this.pcs = new PropertyChangeSupport(this);
 		this.careTaker = new CareTaker(this);
+		this.engine = new Engine();
+		this.ponder = new Ponder(this.engine);
 	}
 
 
@@ -60,9 +83,12 @@ public class ChessGameManager implements IOriginator {
 	 * @param blacksName the name of the player playing Black
 	 */
 	public void newGame(String whitesName, String blacksName) {
+		this.ponder.stop();
+		stopThinking();
 		this.model = new ChessGame(whitesName, blacksName);
 		this.pcs.firePropertyChange(GAME_CHANGE, null, null);
 		this.careTaker.reset();
+		this.engine.clearHash();
 		ModelLog.getInstance().reset();
 		ModelLog.getInstance().log("New game created!");
 	}
@@ -70,19 +96,22 @@ public class ChessGameManager implements IOriginator {
 	/**
 	 * Opens a saved chess game from the specified file.
 	 *
-	 * @param file the file containing the serialized chess game.
-	 * @return {@code true} if the game is successfully opened and deserialized; {@code false} otherwise.
+	 * @param file the file containing the saved chess game.
+	 * @return {@code true} if the game is successfully opened; {@code false} otherwise.
 	 *
-	 * @implNote The file should be a serialized file with a ".ser" extension.
+	 * @implNote The file should be a ".ser" file saved by {@link #save(File)}, or by older versions with Java serialization.
 	 */
 	public boolean open(File file){
 		ChessGame new_chessgame = ChessSerialization.deserialize(file);
 		if(new_chessgame == null)
 			return false;
 
+		this.ponder.stop();
+		stopThinking();
 		this.model = new_chessgame;
 		this.pcs.firePropertyChange(GAME_CHANGE, null, null);
 		this.careTaker.reset();
+		this.engine.clearHash();
 		ModelLog.getInstance().reset();
 		ModelLog.getInstance().log("Opened game!");
 		return true;
@@ -94,7 +123,7 @@ public class ChessGameManager implements IOriginator {
 	 * @param file the file to save the chess game to.
 	 * @return {@code true} if the game is successfully saved; {@code false} otherwise.
 	 *
-	 * @implNote The file should be a serialized file with a ".ser" extension.
+	 * @implNote The file should have a ".ser" extension; the game is saved in the binary format of {@link ChessSerialization}.
 	 */
 	public boolean save(File file){
 		return ChessSerialization.serialize(file,this.model);
@@ -106,7 +135,8 @@ public class ChessGameManager implements IOriginator {
 	 * @param file the file containing the game state in text format.
 	 * @return {@code true} if the game is successfully imported; {@code false} otherwise.
 	 *
-	 * @implNote The file should be a serialized file with a ".txt" extension.
+	 * @implNote The file should be a serialized file with a ".txt" extension, or a position in FEN or EPD
+	 *           (".fen" or ".epd"), of which the first line is read.
 	 */
 	public boolean importGame(File file, String whitesName, String blacksName){
 		String text = null;
@@ -116,9 +146,12 @@ public class ChessGameManager implements IOriginator {
 			if(text == null || text.isEmpty() || text.isBlank())
 				return false;
 
+			this.ponder.stop();
+			stopThinking();
 			this.model = new ChessGame(text, whitesName, blacksName);
 			this.pcs.firePropertyChange(GAME_CHANGE, null, null);
 			this.careTaker.reset();
+			this.engine.clearHash();
 			ModelLog.getInstance().reset();
 			ModelLog.getInstance().log("Game imported!");
 
@@ -135,12 +168,19 @@ public class ChessGameManager implements IOriginator {
 	 * @param file the file to which the game will be exported.
 	 * @return {@code true} if the game is successfully exported; {@code false} otherwise.
 	 *
-	 * @implNote The file should be a text file with a ".txt" extension.
+	 * @implNote The file should be a text file with a ".txt" extension; with a ".fen" or ".epd" extension the
+	 *           current position is written in FEN or EPD.
 	 */
 	public boolean exportGame(File file){
 		try (FileWriter fileWriter = new FileWriter(file)) {
 
-			fileWriter.write(model.toString());
+			String name = file.getName().toLowerCase();
+			if(name.endsWith(".fen"))
+				fileWriter.write(Fen.format(model) + System.lineSeparator());
+			else if(name.endsWith(".epd"))
+				fileWriter.write(Fen.formatEpd(model) + System.lineSeparator());
+			else
+				fileWriter.write(model.toString());
 			fileWriter.close();
 
 			return true;
@@ -181,6 +221,51 @@ public class ChessGameManager implements IOriginator {
 		return this.model.checkmate();
 	}
 
+	/**
+	 * Checks if the current game is in stalemate.
+	 *
+	 * @return {@code true} if the current player is not in check and cannot move; {@code false} otherwise.
+	 */
+	public boolean stalemate() {
+		return this.model.stalemate();
+	}
+
+	/**
+	 * Checks if the current game is drawn, by stalemate, threefold repetition, the fifty-move rule or insufficient material.
+	 *
+	 * @return {@code true} if the game is drawn; {@code false} otherwise.
+	 */
+	public boolean draw() {
+		return this.model.draw();
+	}
+
+	/**
+	 * Checks if the current position occurred three times with the same player to move.
+	 *
+	 * @return {@code true} if the position is a threefold repetition; {@code false} otherwise.
+	 */
+	public boolean threefoldRepetition() {
+		return this.model.threefoldRepetition();
+	}
+
+	/**
+	 * Checks if fifty moves of each player were made without a capture or a pawn move.
+	 *
+	 * @return {@code true} if the fifty-move rule applies; {@code false} otherwise.
+	 */
+	public boolean fiftyMoveRule() {
+		return this.model.fiftyMoveRule();
+	}
+
+	/**
+	 * Checks if neither player has enough material left to checkmate.
+	 *
+	 * @return {@code true} if the remaining pieces cannot checkmate; {@code false} otherwise.
+	 */
+	public boolean insufficientMaterial() {
+		return this.model.insufficientMaterial();
+	}
+
 	/**
 	 * Retrieves the character representation of the Piece at the specified position.
 	 *
@@ -220,10 +305,148 @@ public class ChessGameManager implements IOriginator {
 	 * @return a {@link MoveType} defining the success of the movement.
 	 */
 	public MoveType movePiece(int pieceRow, char pieceColumn, int row, char column) {
+		MoveType res = this.model.movePiece(pieceRow, pieceColumn, row, column);
+		if(res != MoveType.NONE) {
+			this.careTaker.save();
+			this.ponder.opponentMoved(this.model.getBoard().getLastMove());
+		}
+
+		moved(res, pieceRow, pieceColumn, row, column, true);
+		return res;
+	}
+
+	/**
+	 * Lets the computer search and make the move of the current player.
+	 *
+	 * @param timeMillis the time the computer may think, in milliseconds
+	 * @return a {@link MoveType} defining the success of the movement, {@code NONE} if the player cannot move.
+	 */
+	public MoveType computerMove(long timeMillis) {
+		return computerMove(SearchLimits.time(timeMillis));
+	}
+
+	/**
+	 * Lets the computer search and make the move of the current player.
+	 * <p>
+	 * The computer chooses its own promotion, so no {@link #EVOLVE} event is fired.
+	 * <p>
+	 * If the computer was {@link #setPondering pondering} on the move just made, the search already done is
+	 * reused and the move takes what is left of the budget, often nothing.
+	 *
+	 * @param limits the budget of the search
+	 * @return a {@link MoveType} defining the success of the movement, {@code NONE} if the player cannot move.
+	 */
+	public MoveType computerMove(SearchLimits limits) {
+		return play(think(this.model.getBoard(), limits, new AtomicBoolean()), limits);
+	}
+
+	/**
+	 * Lets the computer search the move of the current player on a virtual thread, so the thread calling it,
+	 * usually the FX application thread, is not blocked while the computer thinks. The move is then made, and
+	 * its events fired, by a task posted to the given executor, e.g. {@code Platform::runLater}, unless the game
+	 * changed in the meantime.
+	 *
+	 * @param limits the budget of the search
+	 * @param executor runs the task that makes the move, on the thread of the listeners
+	 * @return the {@link MoveType} of the move once made, {@code NONE} if the player cannot move or the game changed
+	 */
+	public CompletableFuture<MoveType> computerMove(SearchLimits limits, Executor executor) {
+		stopThinking();
+		ChessGame game = this.model;
+		Board board = new Board(game.getBoard());
+		AtomicBoolean stopped = new AtomicBoolean();
+		this.thinkingStopped = stopped;
+		this.thinking = CompletableFuture.supplyAsync(() -> think(board, limits, stopped), COMPUTER);
+		return this.thinking.thenApplyAsync(result -> game == this.model && game.getBoard().getHash() == board.getHash()
+				? play(result, limits) : MoveType.NONE, executor);
+	}
+
+	/**
+	 * Ends the pondering and searches the move of the computer, unless the pondering already found it.
+	 */
+	private SearchResult think(Board board, SearchLimits limits, AtomicBoolean stopped) {
+		SearchResult result = this.ponder.finish(board, limits);
+		if(result == null || result.move() == Move.NONE)
+			result = this.engine.search(board, limits, stopped);
+		return result;
+	}
+
+	private MoveType play(SearchResult result, SearchLimits limits) {
+		int move = result.move();
+		if(move == Move.NONE)
+			return MoveType.NONE;
+
+		MoveType res = this.model.movePiece(move);
+		if(res == MoveType.NONE)
+			return res;
 		this.careTaker.save();
 
-		MoveType res = this.model.movePiece(pieceRow, pieceColumn, row, column);
+		// the reply the computer expects is the next move of its principal variation
+		if(this.pondering && result.pv().length > 1)
+			this.ponder.start(this.model.getBoard(), result.pv()[1], limits);
 
+		int from = Move.getFrom(move), to = MoveGenerator.getSelectionSquare(move);
+		moved(res, Board.getSquareRow(from), Board.getSquareColumn(from), Board.getSquareRow(to), Board.getSquareColumn(to), false);
+		return res;
+	}
+
+	/**
+	 * Stops the computer search running on another thread; the best move found so far is made.
+	 */
+	public void stopComputer() {
+		this.engine.stop();
+		if(this.thinkingStopped != null)
+			this.thinkingStopped.set(true);
+	}
+
+	/**
+	 * Stops the search of a computer move running on a virtual thread and waits for it, as the engine runs one
+	 * search at a time, e.g. before its transposition table is cleared. The move is not made.
+	 */
+	private void stopThinking() {
+		CompletableFuture<SearchResult> thinking = this.thinking;
+		if(thinking == null)
+			return;
+
+		this.thinkingStopped.set(true);
+		try {
+			thinking.join();
+		} catch(CompletionException | CancellationException ignore) {
+		}
+		this.thinking = null;
+		this.thinkingStopped = null;
+	}
+
+	/**
+	 * Turns pondering on or off: while on, after every computer move the computer goes on thinking on the
+	 * reply it expects, on a virtual thread, until the next {@link #computerMove}.
+	 *
+	 * @param pondering {@code true} to think on the opponent's time
+	 */
+	public void setPondering(boolean pondering) {
+		this.pondering = pondering;
+		if(!pondering)
+			this.ponder.cancel();
+	}
+
+	public boolean isPondering() { return this.pondering; }
+
+	/**
+	 * @return the number of moves of the opponent the computer pondered on
+	 */
+	public long getPonderHits() { return this.ponder.getHits(); }
+
+	/**
+	 * @return the number of moves of the opponent different from the one the computer pondered on
+	 */
+	public long getPonderMisses() { return this.ponder.getMisses(); }
+
+	/**
+	 * Notifies the listeners of a move.
+	 *
+	 * @param evolve {@code true} if the player still has to choose the promotion of the pawn
+	 */
+	private void moved(MoveType res, int pieceRow, char pieceColumn, int row, char column, boolean evolve) {
 		this.pcs.firePropertyChange(GAME_CHANGE, null, null);
 
 		if(res != MoveType.NONE) {
@@ -231,13 +454,13 @@ public class ChessGameManager implements IOriginator {
 			ModelLog.getInstance().log("" + getPiece(row, column) + "" + pieceRow + "" + pieceColumn + " to " + row + "" + column);
 		}
 
-		if(res == MoveType.EVOLVE)
+		if(evolve && res == MoveType.EVOLVE)
 			this.pcs.firePropertyChange(EVOLVE, null, null);
 
 		if(checkmate())
 			pcs.firePropertyChange(CHECKMATE, false, true);
-
-		return res;
+		else if(res != MoveType.NONE && draw())
+			pcs.firePropertyChange(DRAW, false, true);
 	}
 
 	/**
@@ -247,6 +470,7 @@ public class ChessGameManager implements IOriginator {
 	 * */
 	public void evolve(char type) {
 		this.model.evolve(type);
+		this.careTaker.amend();
 		pcs.firePropertyChange(GAME_CHANGE, null, null);
 	}
 
@@ -267,6 +491,31 @@ public class ChessGameManager implements IOriginator {
 		pcs.firePropertyChange(GAME_CHANGE, null, null);
 	}
 
+	/**
+	 * Reverts several moves at once, restoring the nearest checkpoint of the history when it is closer
+	 * than the current state.
+	 *
+	 * @param moves the number of moves to revert, at most the ones that can be reverted
+	 */
+	public void undo(int moves) {
+		if(!canUndo() || moves <= 0) return;
+
+		this.careTaker.undo(moves);
+		pcs.firePropertyChange(GAME_CHANGE, null, null);
+	}
+
+	/**
+	 * Limits the memory taken by the undo history; the oldest moves can no longer be reverted once it is full.
+	 *
+	 * @param bytes the most bytes the history may take
+	 */
+	public void setHistoryBudget(long bytes) { this.careTaker.setBudget(bytes); }
+
+	/**
+	 * @return the bytes taken by the undo history
+	 */
+	public long getHistoryFootprint() { return this.careTaker.getFootprint(); }
+
 	/**
 	 * Checks whether there is a future game state available to redo.
 	 *
@@ -275,7 +524,7 @@ public class ChessGameManager implements IOriginator {
 	public boolean canRedo() { return this.careTaker.hasRedo(); }
 
 	/**
-	 * Re-applies a previously undone game state, if available.
+	 * Re-applies a previously undone game state, if available, following the variation played last.
 	 */
 	public void redo() {
 		if(!canRedo()) return;
@@ -284,15 +533,82 @@ public class ChessGameManager implements IOriginator {
 		pcs.firePropertyChange(GAME_CHANGE, null, null);
 	}
 
+	/**
+	 * Re-applies the move of one of the variations played from the current state. Moves played after an undo
+	 * start a new variation and keep the others.
+	 *
+	 * @param variation the index of the variation, in the order of {@link #getVariations()}
+	 * @throws IllegalArgumentException if there is no such variation
+	 */
+	public void redo(int variation) {
+		this.careTaker.redo(variation);
+		pcs.firePropertyChange(GAME_CHANGE, null, null);
+	}
+
+	/**
+	 * @return the moves played from the current state that can be re-applied, in UCI coordinates (e.g. {@code e2e4}),
+	 *         the most recent variation first
+	 */
+	public List<String> getVariations() {
+		List<String> moves = new ArrayList<>();
+		for(IMemento memento : this.careTaker.getVariations())
+			if(memento instanceof MoveDelta delta)
+				moves.add(Move.toString(delta.move()));
+		return moves;
+	}
+
+	/**
+	 * @return a memento of the move just made, which takes a few bytes whatever the length of the game
+	 */
 	@Override
 	public IMemento save() {
+		return new MoveDelta(this.model.getLastMove());
+	}
+
+	@Override
+	public IMemento undo(IMemento memento) {
+		if(!(memento instanceof MoveDelta delta) || delta.move() != this.model.getLastMove())
+			return memento;
+
+		this.ponder.cancel();
+		return new MoveDelta(this.model.undoMove());
+	}
+
+	@Override
+	public IMemento redo(IMemento memento) {
+		if(!(memento instanceof MoveDelta delta) || this.model.movePiece(delta.move()) == MoveType.NONE)
+			return memento;
+
+		this.ponder.cancel();
+		return new MoveDelta(this.model.getLastMove());
+	}
+
+	/**
+	 * @return a serialized copy of the whole game
+	 */
+	@Override
+	public IMemento checkpoint() {
 		return new Memento(this.model);
 	}
 
+	/**
+	 * @return the bytes of the undo record the board keeps for every move
+	 */
+	@Override
+	public long getChangeSize() { return Board.MOVE_BYTES; }
+
+	/**
+	 * Drops the undo records of the moves the history can no longer revert, which checkpoints no longer copy.
+	 */
+	@Override
+	public void forget(int changes) { this.model.getBoard().forgetMoves(changes); }
+
 	@Override
-	public void restore(IMemento memento) {
-		Object obj = memento.getSnapshot();
-		if(obj instanceof ChessGame m)
+	public void restore(IMemento checkpoint) {
+		Object obj = checkpoint.getSnapshot();
+		if(obj instanceof ChessGame m) {
+			this.ponder.cancel();
 			this.model = m;
+		}
 	}
 }
@@ -1,49 +1,332 @@
 package pt.isec.pa.chess.model;
 
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+import pt.isec.pa.chess.model.data.MoveType;
+import pt.isec.pa.chess.model.data.Piece;
+import pt.isec.pa.chess.model.data.PieceFactory;
+import pt.isec.pa.chess.model.data.PieceType;
+
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
- * Utility class for serializing and deserializing {@link ChessGame} objects.
+ * Utility class for saving and loading {@link ChessGame} objects.
+ * <p>
+ * Games are saved in a compact binary format, written and read through NIO channels:
+ * <pre>
+ * int     magic "PACG"
+ * byte    version (2)
+ * short   length and UTF-8 bytes of the name of the player playing White, then of Black
+ * byte    side to move of the starting position (0 White, 1 Black)
+ * byte    castling rights ({@code Board.CASTLE_*})
+ * byte    en passant square, or -1
+ * short   halfmove clock
+ * short   fullmove number (since version 2)
+ * long    occupied squares
+ * byte[]  the pieces on the occupied squares from A1 to H8, two per byte (low nibble first):
+ *         the {@code PieceType} ordinal plus 1, plus 8 for Black
+ * byte    number of pieces captured before the starting position (since version 2)
+ * byte[]  those pieces, coded as the pieces on the board
+ * short   number of moves
+ * short[] the packed {@code Move}s made from the starting position
+ * </pre>
+ * The starting position is checked as in {@link Fen}: one King per side, no Pawn on the 1st or 8th rank, the
+ * side that just moved not in check, an en passant square behind a Pawn that just pushed two squares, and
+ * castling rights only for the Kings and Rooks on their squares. The moves are then made again, so every one of
+ * them is checked to be legal. Files of version 1 start at move 1.
+ * <p>
+ * Files saved with Java serialization by older versions are still read, restricted to the classes of the model,
+ * and {@link #migrate(File)} rewrites them in the binary format.
  */
 public class ChessSerialization {
 
+	public static final int MAGIC = 0x50414347;
+	public static final int VERSION = 2;
+	/** Largest file read: the header and the most moves the format holds. */
+	private static final int MAX_BYTES = 1 << 18;
+	private static final String PIECES = "KQBNRP";
+	private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(
+			"maxbytes=" + MAX_BYTES * 64 + ";pt.isec.pa.chess.model.**;java.util.ArrayList;java.lang.Object;java.lang.Enum;java.lang.Number;java.lang.Integer;!*");
+
 	private ChessSerialization() {}
 
 	/**
-	 * Serializes a {@link ChessGame} object to the specified file.
+	 * Saves a {@link ChessGame} object to the specified file.
 	 *
 	 * @param file the destination file where the {@code ChessGame} will be saved
-	 * @param chessGame the {@code ChessGame} object to serialize
-	 * @return {@code true} if serialization succeeds; {@code false} otherwise
-	 * @implNote The file should have a ".ser" extension to indicate it stores a serialized object.
+	 * @param chessGame the {@code ChessGame} object to save
+	 * @return {@code true} if saving succeeds; {@code false} otherwise
+	 * @implNote The file should have a ".ser" extension to indicate it stores a saved game.
 	 */
 	public static boolean serialize(File file, ChessGame chessGame) {
-
-		try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
-			out.writeObject(chessGame);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = encode(chessGame);
+			while(buffer.hasRemaining())
+				channel.write(buffer);
 			return true;
 		} catch(Exception ignore) {
 			return false;
 		}
-
 	}
 
 	/**
-	 * Deserializes a {@link ChessGame} object from the specified file.
+	 * Loads a {@link ChessGame} object from the specified file, in the binary format or saved with Java serialization.
 	 *
-	 * @param file the source file containing the serialized {@code ChessGame}
-	 * @return the deserialized {@code ChessGame} object; or {@code null} if deserialization fails
-	 * @implNote The file must be a valid-serialized file created by {@link #serialize(File, ChessGame)}.
+	 * @param file the source file containing the saved {@code ChessGame}
+	 * @return the loaded {@code ChessGame} object; or {@code null} if loading fails
+	 * @implNote The file must be a valid file created by {@link #serialize(File, ChessGame)}.
 	 */
 	public static ChessGame deserialize(File file) {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > MAX_BYTES)
+				return deserializeLegacy(file);
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+
+			if(buffer.remaining() < Integer.BYTES || buffer.getInt(0) != MAGIC)
+				return deserializeLegacy(file);
+			return decode(buffer);
+		} catch(Exception ignore) {
+			return null;
+		}
+	}
 
+	/**
+	 * Rewrites a file saved with Java serialization in the binary format. Files already in the binary format are
+	 * left as they are.
+	 *
+	 * @param file the file to rewrite
+	 * @return {@code true} if the file is in the binary format; {@code false} if it could not be read or written
+	 */
+	public static boolean migrate(File file) {
+		ChessGame game = deserializeLegacy(file);
+		if(game == null)
+			return deserialize(file) != null;
+		return serialize(file, game);
+	}
+
+	private static ChessGame deserializeLegacy(File file) {
 		try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+			in.setObjectInputFilter(LEGACY_FILTER);
 			return (ChessGame) in.readObject();
 		} catch(Exception ignore) {
 			return null;
 		}
+	}
+
+	/**
+	 * Writes a game in the binary format.
+	 *
+	 * @param game the game
+	 * @return a buffer ready to be read, holding the game
+	 * @throws IllegalArgumentException if the game has more moves than the format holds
+	 */
+	static ByteBuffer encode(ChessGame game) {
+		byte[] white = game.getWhitesName().getBytes(StandardCharsets.UTF_8);
+		byte[] black = game.getBlacksName().getBytes(StandardCharsets.UTF_8);
+		Board board = game.getBoard();
+		int[] moves = board.getMoves();
+		if(moves.length > 0xFFFF || white.length > Short.MAX_VALUE || black.length > Short.MAX_VALUE
+				|| board.getFullmoveNumber() > Short.MAX_VALUE)
+			throw new IllegalArgumentException("The game does not fit the format");
+
+		// the starting position is written, so the moves are taken back for a moment, counting their captures
+		int whiteTaken = 0, blackTaken = 0;
+		for(int i = 0; i < moves.length; i++) {
+			Piece victim = board.getLastCaptured();
+			if(victim != null && victim.getColor() == ColorType.WHITE)
+				whiteTaken++;
+			else if(victim != null)
+				blackTaken++;
+			board.unmakeMove();
+		}
+
+		ByteBuffer buffer;
+		try {
+			// the pieces captured before the starting position, e.g. in a game saved by the first version
+			List<Character> whiteScore = game.getWhiteScore(), blackScore = game.getBlackScore();
+			List<Character> captured = new ArrayList<>(whiteScore.subList(0, whiteScore.size() - blackTaken));
+			captured.addAll(blackScore.subList(0, blackScore.size() - whiteTaken));
+			if(captured.size() > 0xFF)
+				throw new IllegalArgumentException("The game does not fit the format");
+			int[] capturedCodes = new int[captured.size()];
+			for(int i = 0; i < capturedCodes.length; i++) {
+				char c = captured.get(i);
+				capturedCodes[i] = code(PieceType.getType(c), Character.isLowerCase(c) ? ColorType.BLACK : ColorType.WHITE);
+			}
+
+			long occupied = board.getOccupied();
+			int[] codes = new int[Long.bitCount(occupied)];
+			int count = 0;
+			for(long b = occupied; b != 0; b &= b - 1) {
+				Piece piece = board.getPiece(Long.numberOfTrailingZeros(b));
+				codes[count++] = code(piece.getType(), piece.getColor());
+			}
+
+			buffer = ByteBuffer.allocate(4 + 1 + 2 + white.length + 2 + black.length + 1 + 1 + 1 + 2 + 2 + 8
+					+ (codes.length + 1) / 2 + 1 + (capturedCodes.length + 1) / 2 + 2 + moves.length * 2);
+
+			buffer.putInt(MAGIC).put((byte) VERSION);
+			buffer.putShort((short) white.length).put(white);
+			buffer.putShort((short) black.length).put(black);
+			buffer.put((byte) board.getSideToMove().ordinal());
+			buffer.put((byte) board.getCastlingRights());
+			buffer.put((byte) board.getEnPassantSquare());
+			buffer.putShort((short) board.getHalfmoveClock());
+			buffer.putShort((short) board.getFullmoveNumber());
+
+			buffer.putLong(occupied);
+			putCodes(buffer, codes);
+			buffer.put((byte) capturedCodes.length);
+			putCodes(buffer, capturedCodes);
+		} finally {
+			for(int move : moves)
+				board.makeMove(move);
+		}
+
+		buffer.putShort((short) moves.length);
+		for(int move : moves)
+			buffer.putShort((short) move);
+		return buffer.flip();
+	}
+
+	/**
+	 * Reads a game in the binary format, making its moves again.
+	 *
+	 * @param buffer the buffer holding the game, from its position
+	 * @return the game
+	 * @throws IllegalArgumentException if the buffer does not hold a valid game
+	 */
+	static ChessGame decode(ByteBuffer buffer) {
+		try {
+			if(buffer.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a saved game");
+			int version = buffer.get();
+			if(version < 1 || version > VERSION)
+				throw new IllegalArgumentException("Unknown version " + version);
+
+			String white = readString(buffer), black = readString(buffer);
+			int side = buffer.get(), castling = buffer.get(), ep = buffer.get();
+			int halfmove = buffer.getShort();
+			int fullmove = version >= 2 ? buffer.getShort() : 1;
+			if(side != 0 && side != 1 || (castling & ~0xF) != 0 || ep < -1 || ep >= 64 || halfmove < 0 || fullmove < 1)
+				throw new IllegalArgumentException("Bad position");
+
+			// the starting position is read as FEN, which checks it and marks the pieces that can still castle
+			char[] squares = new char[64];
+			long occupied = buffer.getLong();
+			int[] codes = readCodes(buffer, Long.bitCount(occupied));
+			int count = 0;
+			for(long b = occupied; b != 0; b &= b - 1)
+				squares[Long.numberOfTrailingZeros(b)] = letter(codes[count++]);
+			int[] captured = version >= 2 ? readCodes(buffer, buffer.get() & 0xFF) : new int[0];
+
+			StringBuilder fen = new StringBuilder();
+			for(int row = 7; row >= 0; row--) {
+				int empty = 0;
+				for(int column = 0; column < 8; column++) {
+					char c = squares[row * 8 + column];
+					if(c == 0) {
+						empty++;
+						continue;
+					}
+					if(empty > 0)
+						fen.append(empty);
+					fen.append(c);
+					empty = 0;
+				}
+				if(empty > 0)
+					fen.append(empty);
+				if(row > 0)
+					fen.append('/');
+			}
+			fen.append(side == 0 ? " w " : " b ");
+			StringBuilder rights = new StringBuilder();
+			if((castling & Board.CASTLE_WHITE_KING) != 0) rights.append('K');
+			if((castling & Board.CASTLE_WHITE_QUEEN) != 0) rights.append('Q');
+			if((castling & Board.CASTLE_BLACK_KING) != 0) rights.append('k');
+			if((castling & Board.CASTLE_BLACK_QUEEN) != 0) rights.append('q');
+			fen.append(rights.isEmpty() ? "-" : rights).append(' ');
+			fen.append(ep < 0 ? "-" : "" + Character.toLowerCase(Board.getSquareColumn(ep)) + Board.getSquareRow(ep));
+			fen.append(' ').append(halfmove).append(' ').append(fullmove);
+
+			ChessGame game = Fen.parse(fen.toString(), white, black);
+			// FEN drops the rights of the Kings and Rooks that are not on their squares
+			if(game.getBoard().getCastlingRights() != castling)
+				throw new IllegalArgumentException("Bad castling rights");
+			for(int code : captured) {
+				char c = letter(code);
+				if(PieceType.getType(c) == PieceType.KING)
+					throw new IllegalArgumentException("Captured King");
+				game.addCaptured(PieceFactory.createPiece(PieceType.getType(c), 1, 'A',
+						Character.isLowerCase(c) ? ColorType.BLACK : ColorType.WHITE, true));
+			}
+
+			int moves = buffer.getShort() & 0xFFFF;
+			int[] legal = new int[MoveGenerator.MAX_MOVES];
+			for(int i = 0; i < moves; i++)
+				if(game.movePiece(buffer.getShort() & 0xFFFF, legal) == MoveType.NONE)
+					throw new IllegalArgumentException("Illegal move " + i);
+			return game;
+		} catch(BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated game", e);
+		}
+	}
+
+	private static int code(PieceType type, ColorType color) {
+		return type.ordinal() + 1 | (color == ColorType.BLACK ? 8 : 0);
+	}
+
+	/**
+	 * @return the FEN letter of a piece code
+	 * @throws IllegalArgumentException if the code is not a piece
+	 */
+	private static char letter(int code) {
+		int type = (code & 7) - 1;
+		if(type < 0 || type >= PIECES.length())
+			throw new IllegalArgumentException("Bad piece " + code);
+		char c = PIECES.charAt(type);
+		return (code & 8) != 0 ? Character.toLowerCase(c) : c;
+	}
+
+	/**
+	 * Writes piece codes two per byte, low nibble first.
+	 */
+	private static void putCodes(ByteBuffer buffer, int[] codes) {
+		for(int i = 0; i < codes.length; i += 2)
+			buffer.put((byte) (codes[i] | (i + 1 < codes.length ? codes[i + 1] << 4 : 0)));
+	}
+
+	private static int[] readCodes(ByteBuffer buffer, int count) {
+		int[] codes = new int[count];
+		for(int i = 0; i < count; i += 2) {
+			int packed = buffer.get();
+			codes[i] = packed & 0xF;
+			if(i + 1 < count)
+				codes[i + 1] = packed >>> 4 & 0xF;
+		}
+		return codes;
+	}
 
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getShort();
+		if(length < 0 || length > buffer.remaining())
+			throw new IllegalArgumentException("Bad name length " + length);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
 	}
 
 }
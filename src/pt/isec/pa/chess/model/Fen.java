@@ -0,0 +1,407 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Piece;
+import pt.isec.pa.chess.model.data.PieceFactory;
+import pt.isec.pa.chess.model.data.PieceType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes positions in the Forsyth-Edwards Notation (FEN) used by chess GUIs and engines, e.g.
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}, and in the Extended Position Description
+ * (EPD), whose four first fields are the same and are followed by operations such as {@code bm Nf3; id "1";}.
+ * <p>
+ * Positions are read straight from a {@link CharSequence} or the ASCII bytes of a {@link ByteBuffer}, without
+ * splitting them into strings, and can be read into a {@link Board} that is reused. A text holds one position
+ * per line. Every position still creates its {@link Piece pieces}, as the board holds them, which bounds the
+ * speed well under a million positions per second on one thread (see {@code FenBenchmark}).
+ * <p>
+ * The fields after the placement are optional. The Kings and Rooks that can still castle are marked as not
+ * moved, and the en passant square and move counters are set on the {@link Board}; the {@code hmvc} and
+ * {@code fmvn} operations of EPD set the counters too, and the other operations are skipped.
+ * <p>
+ * Only legal positions are read: each side has one King, no Pawn stands on the 1st or 8th rank, the side that
+ * just moved is not in check, and an en passant square is behind a Pawn that just made a double push.
+ */
+public final class Fen {
+
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/** The FEN letters of the pieces, by the ordinal of their {@link PieceType}. */
+	private static final String LETTERS = "KQBNRP";
+	/** The largest move counter read, so counters never overflow. */
+	private static final int MAX_COUNTER = 1_000_000;
+
+	private Fen() {}
+
+	/**
+	 * Creates a game from a FEN or EPD position.
+	 *
+	 * @param fen the position
+	 * @param whitesName the name of the player playing White
+	 * @param blacksName the name of the player playing Black
+	 * @return the game
+	 * @throws IllegalArgumentException if the position is not valid FEN
+	 */
+	public static ChessGame parse(CharSequence fen, String whitesName, String blacksName) {
+		Board board = new Board((String[]) null);
+		read(fen, 0, board);
+		return new ChessGame(board, whitesName, blacksName);
+	}
+
+	/**
+	 * Reads the FEN or EPD position on the line starting at an index of a text, replacing the position of a board.
+	 * Blank lines before it are skipped.
+	 *
+	 * @param text the text
+	 * @param start the index to read from
+	 * @param board the board to set up, whose moves are forgotten
+	 * @return the index after the line of the position, to read the next one from
+	 * @throws IllegalArgumentException if there is no position, it is not valid FEN or it is not legal, in which
+	 *         case the board may hold the illegal position
+	 */
+	public static int read(CharSequence text, int start, Board board) {
+		int end = text.length();
+		int i = start;
+		while(i < end && (isBlank(text.charAt(i)) || isNewLine(text.charAt(i))))
+			i++;
+		if(i == end)
+			throw new IllegalArgumentException("No position");
+
+		int placement = i;
+		while(!isFieldEnd(text, i, end))
+			i++;
+		int placementEnd = i;
+
+		ColorType side = ColorType.WHITE;
+		i = skipBlanks(text, i, end);
+		if(i < end && !isNewLine(text.charAt(i))) {
+			char c = text.charAt(i++);
+			if(c != 'w' && c != 'b' || !isFieldEnd(text, i, end))
+				throw new IllegalArgumentException("Bad side to move: " + field(text, i - 1, end));
+			side = c == 'w' ? ColorType.WHITE : ColorType.BLACK;
+		}
+
+		int castling = 0;
+		i = skipBlanks(text, i, end);
+		if(i < end && !isNewLine(text.charAt(i))) {
+			int field = i;
+			if(text.charAt(i) == '-')
+				i++;
+			else
+				for(; !isFieldEnd(text, i, end); i++) {
+					int right = switch(text.charAt(i)) {
+						case 'K' -> Board.CASTLE_WHITE_KING;
+						case 'Q' -> Board.CASTLE_WHITE_QUEEN;
+						case 'k' -> Board.CASTLE_BLACK_KING;
+						case 'q' -> Board.CASTLE_BLACK_QUEEN;
+						default -> 0;
+					};
+					if(right == 0)
+						throw new IllegalArgumentException("Bad castling: " + field(text, field, end));
+					castling |= right;
+				}
+			if(!isFieldEnd(text, i, end))
+				throw new IllegalArgumentException("Bad castling: " + field(text, field, end));
+		}
+
+		// the placement is read once the castling rights are known, from the 8th rank down to the 1st
+		Piece[] pieces = new Piece[Board.SQUARES];
+		int count = 0, row = 8, column = 0;
+		int whiteKings = 0, blackKings = 0;
+		long occupied = 0, whitePawns = 0, blackPawns = 0;
+		for(int j = placement; j < placementEnd; j++) {
+			char c = text.charAt(j);
+			if(c == '/' && column == 8 && row > 1) {
+				row--;
+				column = 0;
+			} else if(c >= '1' && c <= '8' && column + c - '0' <= 8) {
+				column += c - '0';
+			} else {
+				PieceType type = PieceType.getType(c);
+				if(type == null || column > 7)
+					throw new IllegalArgumentException("Bad placement: " + text.subSequence(placement, j + 1));
+				ColorType color = c < 'a' ? ColorType.WHITE : ColorType.BLACK;
+				int square = (row - 1) * 8 + column;
+				boolean unmoved = canCastle(c, square, castling);
+				pieces[count++] = PieceFactory.createPiece(type, row, (char) ('A' + column), color, !unmoved);
+				column++;
+
+				occupied |= 1L << square;
+				if(c == 'K')
+					whiteKings++;
+				else if(c == 'k')
+					blackKings++;
+				else if(type == PieceType.PAWN) {
+					if(row == 1 || row == 8)
+						throw new IllegalArgumentException("Pawn on the first or last rank: " + text.subSequence(placement, placementEnd));
+					if(color == ColorType.WHITE)
+						whitePawns |= 1L << square;
+					else
+						blackPawns |= 1L << square;
+				}
+			}
+		}
+		if(row != 1 || column != 8)
+			throw new IllegalArgumentException("Expected 8 ranks: " + text.subSequence(placement, placementEnd));
+		if(whiteKings != 1 || blackKings != 1)
+			throw new IllegalArgumentException("Expected one King per side: " + text.subSequence(placement, placementEnd));
+
+		int ep = -1;
+		i = skipBlanks(text, i, end);
+		if(i < end && !isNewLine(text.charAt(i))) {
+			char c = text.charAt(i);
+			if(c == '-')
+				i++;
+			else if(c >= 'a' && c <= 'h' && i + 1 < end && text.charAt(i + 1) >= '1' && text.charAt(i + 1) <= '8') {
+				ep = (text.charAt(i + 1) - '1') * 8 + c - 'a';
+				i += 2;
+			}
+			if(!isFieldEnd(text, i, end))
+				throw new IllegalArgumentException("Bad en passant square: " + field(text, i, end));
+			if(ep >= 0 && !isDoublePush(ep, side, occupied, side == ColorType.WHITE ? blackPawns : whitePawns))
+				throw new IllegalArgumentException("Bad en passant square: " + field(text, i - 2, end));
+		}
+
+		// the counters of FEN, then the operations of EPD
+		int halfmove = 0, fullmove = 1;
+		i = skipBlanks(text, i, end);
+		if(i < end && isDigit(text.charAt(i))) {
+			halfmove = readCounter(text, i, end);
+			i = skipBlanks(text, skipField(text, i, end), end);
+			if(i < end && isDigit(text.charAt(i))) {
+				fullmove = readCounter(text, i, end);
+				i = skipBlanks(text, skipField(text, i, end), end);
+			}
+		}
+		while(i < end && !isNewLine(text.charAt(i))) {
+			int opcode = i;
+			while(i < end && isOpcode(text.charAt(i)))
+				i++;
+			if(i == opcode)
+				throw new IllegalArgumentException("Bad operation: " + field(text, opcode, end));
+			int operand = skipBlanks(text, i, end);
+			if(isOperation(text, opcode, i, "hmvc"))
+				halfmove = readCounter(text, operand, end);
+			else if(isOperation(text, opcode, i, "fmvn"))
+				fullmove = readCounter(text, operand, end);
+
+			// the operands end at a semicolon out of quotes, or at the end of the line
+			boolean quoted = false;
+			for(i = operand; i < end && !isNewLine(text.charAt(i)) && (quoted || text.charAt(i) != ';'); i++)
+				if(text.charAt(i) == '"')
+					quoted = !quoted;
+			if(i < end && text.charAt(i) == ';')
+				i++;
+			i = skipBlanks(text, i, end);
+		}
+
+		board.setPosition(pieces, side, ep, halfmove, fullmove);
+		if(board.isKingAttacked(ColorType.getOpponent(side)))
+			throw new IllegalArgumentException("The side that just moved is in check: " + text.subSequence(placement, placementEnd));
+
+		if(i < end && text.charAt(i) == '\r')
+			i++;
+		if(i < end && text.charAt(i) == '\n')
+			i++;
+		return i;
+	}
+
+	/**
+	 * Reads the FEN or EPD position on the line at the position of a buffer of ASCII text, replacing the position
+	 * of a board, and moves the buffer past the line.
+	 *
+	 * @param buffer the buffer, read from its position
+	 * @param board the board to set up, whose moves are forgotten
+	 * @throws IllegalArgumentException if there is no position or it is not valid FEN
+	 */
+	public static void read(ByteBuffer buffer, Board board) {
+		buffer.position(buffer.position() + read(new AsciiSequence(buffer, buffer.position(), buffer.limit()), 0, board));
+	}
+
+	/**
+	 * @param text a text holding a game
+	 * @return {@code true} if the text starts with a FEN placement rather than the game format of {@link ChessGame}
+	 */
+	public static boolean isFen(CharSequence text) {
+		int i = 0, end = text.length();
+		while(i < end && Character.isWhitespace(text.charAt(i)))
+			i++;
+		for(; i < end && !Character.isWhitespace(text.charAt(i)); i++) {
+			if(text.charAt(i) == '/')
+				return true;
+			if(text.charAt(i) == ChessGame.DIVIDER.charAt(0))
+				return false;
+		}
+		return false;
+	}
+
+	/**
+	 * @param game the game
+	 * @return the current position of the game in FEN
+	 */
+	public static String format(ChessGame game) {
+		return format(game.getBoard(), new StringBuilder(90), false).toString();
+	}
+
+	/**
+	 * @param game the game
+	 * @return the current position of the game in EPD, with the move counters as the {@code hmvc} and
+	 *         {@code fmvn} operations
+	 */
+	public static String formatEpd(ChessGame game) {
+		return format(game.getBoard(), new StringBuilder(100), true).toString();
+	}
+
+	/**
+	 * Writes the position of a board in FEN or EPD.
+	 *
+	 * @param board the board
+	 * @param out where to append the position
+	 * @param epd {@code true} for EPD, {@code false} for FEN
+	 * @return {@code out}
+	 */
+	public static StringBuilder format(Board board, StringBuilder out, boolean epd) {
+		for(int row = 7; row >= 0; row--) {
+			int empty = 0;
+			for(int column = 0; column < 8; column++) {
+				Piece piece = board.getPiece(row * 8 + column);
+				if(piece == null) {
+					empty++;
+					continue;
+				}
+				if(empty > 0)
+					out.append((char) ('0' + empty));
+				char letter = LETTERS.charAt(piece.getType().ordinal());
+				out.append(piece.getColor() == ColorType.WHITE ? letter : (char) (letter + ('a' - 'A')));
+				empty = 0;
+			}
+			if(empty > 0)
+				out.append((char) ('0' + empty));
+			if(row > 0)
+				out.append('/');
+		}
+
+		out.append(board.getSideToMove() == ColorType.WHITE ? " w " : " b ");
+		int castling = board.getCastlingRights();
+		if(castling == 0)
+			out.append('-');
+		if((castling & Board.CASTLE_WHITE_KING) != 0) out.append('K');
+		if((castling & Board.CASTLE_WHITE_QUEEN) != 0) out.append('Q');
+		if((castling & Board.CASTLE_BLACK_KING) != 0) out.append('k');
+		if((castling & Board.CASTLE_BLACK_QUEEN) != 0) out.append('q');
+
+		int ep = board.getEnPassantSquare();
+		if(ep < 0)
+			out.append(" -");
+		else
+			out.append(' ').append((char) ('a' + ep % 8)).append((char) ('1' + ep / 8));
+
+		if(epd)
+			return out.append(" hmvc ").append(board.getHalfmoveClock()).append("; fmvn ").append(board.getFullmoveNumber()).append(';');
+		return out.append(' ').append(board.getHalfmoveClock()).append(' ').append(board.getFullmoveNumber());
+	}
+
+	/**
+	 * A King or Rook keeps the right to castle if it has not moved, which the castling rights tell.
+	 */
+	private static boolean canCastle(char piece, int square, int castling) {
+		return switch(piece) {
+			case 'K' -> square == 4 && (castling & (Board.CASTLE_WHITE_KING | Board.CASTLE_WHITE_QUEEN)) != 0;
+			case 'k' -> square == 60 && (castling & (Board.CASTLE_BLACK_KING | Board.CASTLE_BLACK_QUEEN)) != 0;
+			case 'R' -> square == 7 && (castling & Board.CASTLE_WHITE_KING) != 0 || square == 0 && (castling & Board.CASTLE_WHITE_QUEEN) != 0;
+			case 'r' -> square == 63 && (castling & Board.CASTLE_BLACK_KING) != 0 || square == 56 && (castling & Board.CASTLE_BLACK_QUEEN) != 0;
+			default -> false;
+		};
+	}
+
+	/**
+	 * The en passant square of the side to move is on the 6th rank for White or the 3rd for Black, empty and
+	 * with the square the Pawn left empty, and the Pawn of the other side is in front of it.
+	 */
+	private static boolean isDoublePush(int ep, ColorType side, long occupied, long pawns) {
+		boolean white = side == ColorType.WHITE;
+		if(ep / 8 != (white ? 5 : 2))
+			return false;
+		int pawn = white ? ep - 8 : ep + 8, from = white ? ep + 8 : ep - 8;
+		return (pawns & 1L << pawn) != 0 && (occupied & (1L << ep | 1L << from)) == 0;
+	}
+
+	private static int readCounter(CharSequence text, int i, int end) {
+		int value = 0, first = i;
+		for(; i < end && isDigit(text.charAt(i)); i++) {
+			value = value * 10 + text.charAt(i) - '0';
+			if(value > MAX_COUNTER)
+				throw new IllegalArgumentException("Bad move counter: " + field(text, first, end));
+		}
+		if(i == first || !isFieldEnd(text, i, end) && text.charAt(i) != ';')
+			throw new IllegalArgumentException("Bad move counter: " + field(text, first, end));
+		return value;
+	}
+
+	private static boolean isOperation(CharSequence text, int start, int end, String opcode) {
+		if(end - start != opcode.length())
+			return false;
+		for(int i = 0; i < opcode.length(); i++)
+			if(text.charAt(start + i) != opcode.charAt(i))
+				return false;
+		return true;
+	}
+
+	private static int skipBlanks(CharSequence text, int i, int end) {
+		while(i < end && isBlank(text.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static int skipField(CharSequence text, int i, int end) {
+		while(!isFieldEnd(text, i, end))
+			i++;
+		return i;
+	}
+
+	/**
+	 * @return the field starting at an index, for error messages
+	 */
+	private static String field(CharSequence text, int i, int end) {
+		return text.subSequence(i, skipField(text, i, end)).toString();
+	}
+
+	private static boolean isFieldEnd(CharSequence text, int i, int end) {
+		return i >= end || isBlank(text.charAt(i)) || isNewLine(text.charAt(i));
+	}
+
+	private static boolean isBlank(char c) { return c == ' ' || c == '\t'; }
+
+	private static boolean isNewLine(char c) { return c == '\n' || c == '\r'; }
+
+	private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+
+	private static boolean isOpcode(char c) { return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || isDigit(c) || c == '_'; }
+
+	/**
+	 * The ASCII bytes of a buffer seen as characters, without copying them.
+	 */
+	private record AsciiSequence(ByteBuffer buffer, int start, int end) implements CharSequence {
+
+		@Override
+		public int length() { return this.end - this.start; }
+
+		@Override
+		public char charAt(int index) { return (char) (this.buffer.get(this.start + index) & 0xFF); }
+
+		@Override
+		public CharSequence subSequence(int from, int to) { return new AsciiSequence(this.buffer, this.start + from, this.start + to); }
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[length()];
+			this.buffer.get(this.start, bytes);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.memento.IMemento;
+
+/**
+ * Memento of a single move of a {@link ChessGame}, kept by the undo/redo history instead of a copy of the game.
+ * <p>
+ * The captured piece, castling rights, en passant square and halfmove clock the move changed are kept by the
+ * {@link pt.isec.pa.chess.model.data.Board Board} in its own undo record, so the memento only needs the packed
+ * move, promoting to the piece the Pawn was evolved to.
+ *
+ * @param move the packed {@link pt.isec.pa.chess.model.data.Move Move}
+ */
+record MoveDelta(int move) implements IMemento {
+
+	/**
+	 * @return the bytes of the object with compressed references: its header and the packed move
+	 */
+	@Override
+	public long getSize() { return 16; }
+
+}
@@ -0,0 +1,331 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test (perft) of the move generation.
+ * <p>
+ * Counts the leaf nodes of the legal move tree of a position up to a given depth, making and unmaking every move
+ * on the {@link Board}. The counts of the well-known {@link Position reference positions} make it the correctness
+ * gate of the move generation, and the nodes per second its throughput benchmark.
+ * <p>
+ * The count can also run in parallel on a {@link ForkJoinPool}: the tree is split into one task per move
+ * on the shallow plies, each task working on its own copy of the board, and the deeper plies are counted sequentially.
+ * <p>
+ * Runs headless with {@code java pt.isec.pa.chess.model.Perft [depth]} for the reference suite,
+ * {@code java pt.isec.pa.chess.model.Perft parallel [depth] [threads]} for the suite on a {@link ForkJoinPool}, or
+ * {@code java pt.isec.pa.chess.model.Perft divide <depth> [position | game]} for the per root move counts.
+ */
+public class Perft {
+
+	/**
+	 * Reference positions, in the game file format, with their expected node counts from depth 1 onwards.
+	 */
+	public enum Position {
+		START("WHITE,RA1*,NB1,BC1,QD1,KE1*,BF1,NG1,RH1*,PA2,PB2,PC2,PD2,PE2,PF2,PG2,PH2,"
+				+ "pA7,pB7,pC7,pD7,pE7,pF7,pG7,pH7,rA8*,nB8,bC8,qD8,kE8*,bF8,nG8,rH8*",
+				20L, 400L, 8_902L, 197_281L, 4_865_609L, 119_060_324L),
+		KIWIPETE("WHITE,rA8*,kE8*,rH8*,pA7,pC7,pD7,qE7,pF7,bG7,bA6,nB6,pE6,nF6,pG6,PD5,NE5,pB4,PE4,NC3,QF3,pH3,"
+				+ "PA2,PB2,PC2,BD2,BE2,PF2,PG2,PH2,RA1*,KE1*,RH1*",
+				48L, 2_039L, 97_862L, 4_085_603L, 193_690_690L),
+		POSITION_3("WHITE,pC7,pD6,KA5,PB5,rH5,RB4,pF4,kH4,PE2,PG2",
+				14L, 191L, 2_812L, 43_238L, 674_624L, 11_030_083L),
+		POSITION_4("WHITE,rA8*,kE8*,rH8*,PA7,pB7,pC7,pD7,pF7,pG7,pH7,bB6,nF6,bG6,NH6,nA5,PB5,BA4,BB4,PC4,PE4,"
+				+ "qA3,NF3,PA2,pB2,PD2,PG2,PH2,RA1,QD1,RF1,KG1",
+				6L, 264L, 9_467L, 422_333L, 15_833_292L),
+		POSITION_5("WHITE,rA8,nB8,bC8,qD8,kF8,rH8,pA7,pB7,PD7,bE7,pF7,pG7,pH7,pC6,BC4,PA2,PB2,PC2,NE2,nF2,PG2,PH2,"
+				+ "RA1*,NB1,BC1,QD1,KE1*,RH1*",
+				44L, 1_486L, 62_379L, 2_103_487L, 89_941_194L),
+		POSITION_6("WHITE,rA8,rF8,kG8,pB7,pC7,qE7,pF7,pG7,pH7,pA6,nC6,pD6,nF6,bC5,pE5,BG5,BC4,PE4,bG4,PA3,NC3,PD3,"
+				+ "NF3,PB2,PC2,QE2,PF2,PG2,PH2,RA1,RF1,KG1",
+				46L, 2_079L, 89_890L, 3_894_594L, 164_075_551L);
+
+		private final String game;
+		private final long[] expected;
+
+		Position(String game, long... expected) {
+			this.game = game;
+			this.expected = expected;
+		}
+
+		public String getGame() { return this.game; }
+
+		/**
+		 * @return the deepest depth with a known node count
+		 */
+		public int getMaxDepth() { return this.expected.length; }
+
+		/**
+		 * @param depth the depth (1 - {@link #getMaxDepth()})
+		 * @return the expected number of leaf nodes at the given depth
+		 */
+		public long getExpected(int depth) { return this.expected[depth - 1]; }
+	}
+
+	/**
+	 * Node count of a perft run.
+	 *
+	 * @param depth the depth searched
+	 * @param nodes the number of leaf nodes
+	 * @param nanos the elapsed time in nanoseconds
+	 */
+	public record Result(int depth, long nodes, long nanos) {
+		public long nodesPerSecond() {
+			return this.nanos == 0 ? 0 : (long) (this.nodes * 1e9 / this.nanos);
+		}
+	}
+
+	/** Subtrees of this depth or less are counted sequentially by a single task. */
+	private static final int SEQUENTIAL_DEPTH = 3;
+
+	private final Board board;
+	private int[][] moves = new int[0][];
+
+	/**
+	 * Creates a perft over a board. The board is left unchanged after every count.
+	 *
+	 * @param board the {@link Board} to count, with its side to move set
+	 */
+	public Perft(Board board) {
+		this.board = board;
+	}
+
+	/**
+	 * Creates a perft over a position in the game file format ({@code "WHITE,RA1*,..."}).
+	 *
+	 * @param game the position
+	 */
+	public Perft(String game) {
+		this(new ChessGame(game, "", "").getBoard());
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree.
+	 *
+	 * @param depth the number of plies to search
+	 * @return the number of leaf nodes ({@code 1} for depth {@code 0})
+	 */
+	public long count(int depth) {
+		if(depth <= 0) return 1;
+		ensureBuffers(depth);
+		return count(depth, 0);
+	}
+
+	/**
+	 * Counts the leaf nodes and measures the elapsed time.
+	 *
+	 * @param depth the number of plies to search
+	 * @return the {@link Result} of the count
+	 */
+	public Result run(int depth) {
+		long start = System.nanoTime();
+		long nodes = count(depth);
+		return new Result(depth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree in parallel, on the common {@link ForkJoinPool}.
+	 *
+	 * @param depth the number of plies to search
+	 * @return the number of leaf nodes, the same as {@link #count(int)}
+	 */
+	public long countParallel(int depth) {
+		return countParallel(depth, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree in parallel.
+	 *
+	 * @param depth the number of plies to search
+	 * @param pool the {@link ForkJoinPool} that runs the tasks
+	 * @return the number of leaf nodes, the same as {@link #count(int)}
+	 */
+	public long countParallel(int depth, ForkJoinPool pool) {
+		if(depth <= SEQUENTIAL_DEPTH) return count(depth);
+		return pool.invoke(new Task(new Board(this.board), depth));
+	}
+
+	/**
+	 * Counts the leaf nodes in parallel and measures the elapsed time.
+	 *
+	 * @param depth the number of plies to search
+	 * @param pool the {@link ForkJoinPool} that runs the tasks
+	 * @return the {@link Result} of the count
+	 */
+	public Result runParallel(int depth, ForkJoinPool pool) {
+		long start = System.nanoTime();
+		long nodes = countParallel(depth, pool);
+		return new Result(depth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Counts the leaf nodes below each legal move of the position.
+	 *
+	 * @param depth the number of plies to search, including the root move
+	 * @return the node count of each root move, in coordinate notation and in generation order
+	 */
+	public Map<String, Long> divide(int depth) {
+		Map<String, Long> res = new LinkedHashMap<>();
+		if(depth <= 0) return res;
+		ensureBuffers(depth);
+
+		int[] buffer = this.moves[0];
+		int n = MoveGenerator.generateLegal(this.board, buffer, 0);
+		for(int i = 0; i < n; i++) {
+			this.board.makeMove(buffer[i]);
+			res.put(Move.toString(buffer[i]), depth == 1 ? 1 : count(depth - 1, 1));
+			this.board.unmakeMove();
+		}
+		return res;
+	}
+
+	private long count(int depth, int ply) {
+		int[] buffer = this.moves[ply];
+		int n = MoveGenerator.generateLegal(this.board, buffer, 0);
+		// every generated move is legal, so the last ply needs no make/unmake
+		if(depth == 1) return n;
+
+		long nodes = 0;
+		for(int i = 0; i < n; i++) {
+			this.board.makeMove(buffer[i]);
+			nodes += count(depth - 1, ply + 1);
+			this.board.unmakeMove();
+		}
+		return nodes;
+	}
+
+	private void ensureBuffers(int depth) {
+		if(this.moves.length >= depth) return;
+		this.moves = new int[depth][MoveGenerator.MAX_MOVES];
+	}
+
+	/**
+	 * Counts the subtree of a position owned by the task.
+	 * Forks one task per move, on a copy of the board, until the remaining depth can be counted sequentially.
+	 */
+	private static final class Task extends RecursiveTask<Long> {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final int depth;
+
+		Task(Board board, int depth) {
+			this.board = board;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			if(this.depth <= SEQUENTIAL_DEPTH)
+				return new Perft(this.board).count(this.depth);
+
+			int[] buffer = new int[MoveGenerator.MAX_MOVES];
+			int n = MoveGenerator.generateLegal(this.board, buffer, 0);
+
+			List<Task> tasks = new ArrayList<>(n);
+			for(int i = 0; i < n; i++) {
+				Board child = new Board(this.board);
+				child.makeMove(buffer[i]);
+				tasks.add(new Task(child, this.depth - 1));
+			}
+
+			long nodes = 0;
+			for(Task task : invokeAll(tasks))
+				nodes += task.join();
+			return nodes;
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length > 0 && args[0].equalsIgnoreCase("divide")) {
+			int depth = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+			String game = args.length > 2 ? getGame(args[2]) : Position.START.getGame();
+			divide(game, depth);
+			return;
+		}
+
+		ForkJoinPool pool = null;
+		if(args.length > 0 && args[0].equalsIgnoreCase("parallel")) {
+			pool = args.length > 2 ? new ForkJoinPool(Integer.parseInt(args[2])) : ForkJoinPool.commonPool();
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		if(!suite(maxDepth, pool))
+			System.exit(1);
+	}
+
+	/**
+	 * Runs every reference position up to a depth and reports each count against the expected one.
+	 *
+	 * @param pool the {@link ForkJoinPool} of a parallel count, or {@code null} for a sequential one
+	 * @return {@code true} if every count matches
+	 */
+	private static boolean suite(int maxDepth, ForkJoinPool pool) {
+		if(pool != null)
+			System.out.println("parallel, " + pool.getParallelism() + " threads");
+
+		boolean ok = true;
+		long totalNodes = 0, totalNanos = 0;
+
+		for(Position position : Position.values()) {
+			System.out.println(position);
+			Perft perft = new Perft(position.getGame());
+
+			for(int depth = 1; depth <= Math.min(maxDepth, position.getMaxDepth()); depth++) {
+				Result result = pool == null ? perft.run(depth) : perft.runParallel(depth, pool);
+				boolean match = result.nodes() == position.getExpected(depth);
+				ok &= match;
+				totalNodes += result.nodes();
+				totalNanos += result.nanos();
+
+				System.out.printf(Locale.ROOT, "  depth %d %,14d %-4s %10.1f ms %,14d nps%n", depth, result.nodes(),
+						match ? "ok" : "FAIL (" + position.getExpected(depth) + ")", result.nanos() / 1e6, result.nodesPerSecond());
+			}
+		}
+
+		System.out.printf(Locale.ROOT, "total %,d nodes in %.1f ms, %,d nps - %s%n", totalNodes, totalNanos / 1e6,
+				new Result(0, totalNodes, totalNanos).nodesPerSecond(), ok ? "ok" : "FAIL");
+		return ok;
+	}
+
+	private static void divide(String game, int depth) {
+		Perft perft = new Perft(game);
+		long start = System.nanoTime();
+		Map<String, Long> counts = perft.divide(depth);
+		long nanos = System.nanoTime() - start;
+
+		long total = 0;
+		for(Map.Entry<String, Long> entry : counts.entrySet()) {
+			System.out.println(entry.getKey() + ": " + entry.getValue());
+			total += entry.getValue();
+		}
+
+		Result result = new Result(depth, total, nanos);
+		System.out.printf(Locale.ROOT, "%nmoves %d, nodes %,d, %.1f ms, %,d nps%n", counts.size(), total, nanos / 1e6, result.nodesPerSecond());
+	}
+
+	/**
+	 * @param name a {@link Position} name or a position in the game file format
+	 */
+	private static String getGame(String name) {
+		for(Position position : Position.values())
+			if(position.name().equalsIgnoreCase(name))
+				return position.getGame();
+		return name;
+	}
+
+}
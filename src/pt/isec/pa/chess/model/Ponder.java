@@ -0,0 +1,166 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.engine.Engine;
+import pt.isec.pa.chess.model.engine.SearchLimits;
+import pt.isec.pa.chess.model.engine.SearchResult;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thinks on the opponent's time: after the computer moves, searches the position after the reply it expects
+ * (the second move of its principal variation) on a virtual thread, while the human thinks.
+ * <p>
+ * When the human plays the expected move (a ponder hit) the search goes on, and the next computer move only
+ * waits for what is left of its budget, often nothing. Any other move (a miss) stops the search without
+ * waiting for it, so the thread that reported the move, usually the FX application thread, is never blocked.
+ * The search has its own stop flag, so it is stopped even when told before its thread got to start it.
+ * <p>
+ * The search is never the source of events: the {@link ChessGameManager} only reads its result when the
+ * computer moves, which may happen on the thread of the computer's own search while the FX application thread
+ * reports moves, so the methods are synchronized and {@link #finish} waits for the search outside the lock.
+ */
+class Ponder {
+
+	private final Engine engine;
+
+	private Thread thread;
+	private AtomicBoolean stopped;
+	private int expected;
+	private long position;
+	private long start;
+	private boolean hit;
+	private volatile SearchResult result;
+
+	private long hits, misses;
+
+	/**
+	 * @param engine the engine of the computer, whose transposition table the pondering fills
+	 */
+	Ponder(Engine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Starts pondering on the position after the expected reply.
+	 *
+	 * @param board the position after the computer's move, which is copied
+	 * @param expected the expected reply, a legal packed move of the position
+	 * @param limits the limits of the computer's moves, without time limit while pondering
+	 */
+	synchronized void start(Board board, int expected, SearchLimits limits) {
+		stop();
+
+		Board after = new Board(board);
+		after.makeMove(expected);
+
+		this.expected = expected;
+		this.position = after.getHash();
+		this.hit = false;
+		this.result = null;
+		this.start = System.currentTimeMillis();
+
+		SearchLimits ponderLimits = limits.withTime(0);
+		AtomicBoolean stopped = new AtomicBoolean();
+		this.stopped = stopped;
+		this.thread = Thread.ofVirtual().name("ponder").start(() -> this.result = this.engine.search(after, ponderLimits, stopped));
+	}
+
+	/**
+	 * Tells the move the opponent made, stopping the search on a miss. Does not block.
+	 *
+	 * @param move the packed move of the opponent
+	 */
+	synchronized void opponentMoved(int move) {
+		if(this.thread == null || this.hit)
+			return;
+
+		if(move == this.expected) {
+			this.hit = true;
+			this.hits++;
+		} else {
+			cancel();
+			this.misses++;
+		}
+	}
+
+	/**
+	 * Stops the search without waiting for it, e.g. when a move is undone.
+	 */
+	synchronized void cancel() {
+		if(this.thread != null)
+			this.stopped.set(true);
+		this.hit = false;
+	}
+
+	/**
+	 * Ends the pondering before the computer moves. On a hit, waits for what is left of the budget of the move
+	 * (counting from when the pondering started) and returns the result of the search.
+	 *
+	 * @param board the position the computer has to move in
+	 * @param limits the budget of the move
+	 * @return the result of the search, or {@code null} on a miss or if there was no pondering
+	 */
+	SearchResult finish(Board board, SearchLimits limits) {
+		Thread thread;
+		long start;
+		synchronized(this) {
+			thread = this.thread;
+			start = this.start;
+			if(thread == null || !this.hit || board.getHash() != this.position) {
+				stop();
+				return null;
+			}
+		}
+
+		// the wait holds no lock, so the pondering can still be cancelled meanwhile
+		try {
+			if(limits.getTime() == 0) {
+				// the search has the same depth and node limits, so it ends by itself
+				thread.join();
+			} else {
+				// a search does not start a new iteration past half of its time
+				long left = limits.getTime() / 2 - (System.currentTimeMillis() - start);
+				if(left > 0)
+					thread.join(left);
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized(this) {
+			boolean hit = this.thread == thread && this.hit;
+			stop();
+			return hit ? this.result : null;
+		}
+	}
+
+	/**
+	 * Stops the search and waits for it to end, as the engine runs one search at a time, e.g. before its
+	 * transposition table is cleared.
+	 */
+	synchronized void stop() {
+		Thread thread = this.thread;
+		if(thread == null)
+			return;
+
+		this.stopped.set(true);
+		try {
+			thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.thread = null;
+		this.hit = false;
+	}
+
+	/**
+	 * @return {@code true} while a search started by {@link #start} has not been finished
+	 */
+	synchronized boolean isActive() { return this.thread != null; }
+
+	synchronized long getHits() { return this.hits; }
+
+	synchronized long getMisses() { return this.misses; }
+
+}
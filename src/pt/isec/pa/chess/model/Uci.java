@@ -0,0 +1,295 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+import pt.isec.pa.chess.model.engine.Engine;
+import pt.isec.pa.chess.model.engine.SearchLimits;
+import pt.isec.pa.chess.model.engine.SearchResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Headless front-end speaking the Universal Chess Interface (UCI) protocol, so the model can be played
+ * by chess GUIs and tournament managers without the JavaFX UI.
+ * <p>
+ * Supported commands: {@code uci}, {@code isready}, {@code setoption} ({@code Hash} and {@code Threads}),
+ * {@code ucinewgame}, {@code position [startpos | fen <fen>] [moves <move>...]}, {@code go} (with {@code depth},
+ * {@code nodes}, {@code movetime}, {@code wtime}, {@code btime}, {@code winc}, {@code binc}, {@code movestogo}
+ * and {@code infinite}), {@code stop} and {@code quit}.
+ * <p>
+ * The position is kept in a {@link ChessGame} and searched by an {@link Engine} on a separate thread,
+ * so {@code stop} is read while it runs. Every completed iteration is reported with an {@code info} line.
+ */
+public class Uci {
+
+	private static final String NAME = "PAChess";
+	private static final int MAX_HASH = 65536;
+	private static final int MAX_THREADS = 256;
+	/** Time kept back on every move for the communication with the GUI. */
+	private static final long MOVE_OVERHEAD = 30;
+	/** Moves left assumed when the GUI does not send {@code movestogo}. */
+	private static final int MOVES_TO_GO = 30;
+
+	private final BufferedReader in;
+	private final PrintStream out;
+	private final Engine engine;
+	private ChessGame game;
+
+	private Thread search;
+	private AtomicBoolean searchStopped;
+	private boolean infinite;
+	private CountDownLatch stopped;
+
+	/**
+	 * @param in the stream the GUI writes the commands to
+	 * @param out the stream the responses are written to
+	 */
+	public Uci(InputStream in, PrintStream out) {
+		this.in = new BufferedReader(new InputStreamReader(in));
+		this.out = out;
+		this.engine = new Engine();
+		this.game = new ChessGame("White", "Black");
+	}
+
+	/**
+	 * Reads and answers commands until {@code quit} or the end of the input.
+	 */
+	public void run() {
+		try {
+			String line;
+			while((line = this.in.readLine()) != null)
+				if(!execute(line.trim())) {
+					stopSearch();
+					return;
+				}
+		} catch(IOException e) {
+			// the GUI went away, so there is nobody left to answer
+		}
+
+		// commands piped from a file end before the search, which is still answered unless it is infinite
+		if(this.search != null && !this.infinite)
+			join(this.search);
+		stopSearch();
+	}
+
+	/**
+	 * Executes a command.
+	 *
+	 * @param line the command line
+	 * @return {@code false} if the command was {@code quit}
+	 */
+	boolean execute(String line) {
+		String[] tokens = line.split("\\s+");
+		switch(tokens[0]) {
+			case "uci" -> {
+				send("id name " + NAME);
+				send("id author PA Chess");
+				send("option name Hash type spin default " + Engine.DEFAULT_HASH_SIZE + " min 1 max " + MAX_HASH);
+				send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+				send("uciok");
+			}
+			case "isready" -> send("readyok");
+			case "setoption" -> setOption(tokens);
+			case "ucinewgame" -> {
+				stopSearch();
+				this.engine.clearHash();
+				this.game = new ChessGame("White", "Black");
+			}
+			case "position" -> {
+				stopSearch();
+				position(tokens);
+			}
+			case "go" -> {
+				stopSearch();
+				go(tokens);
+			}
+			case "stop" -> stopSearch();
+			case "quit" -> { return false; }
+			default -> {
+				// unknown commands are ignored, as the protocol requires
+			}
+		}
+		return true;
+	}
+
+	private void setOption(String[] tokens) {
+		// setoption name <name> value <value>
+		String name = null, value = null;
+		for(int i = 1; i + 1 < tokens.length; i++)
+			if(tokens[i].equals("name"))
+				name = tokens[i + 1];
+			else if(tokens[i].equals("value"))
+				value = tokens[i + 1];
+		if(name == null || value == null)
+			return;
+
+		stopSearch();
+		try {
+			switch(name.toLowerCase()) {
+				case "hash" -> this.engine.setHashSize(Math.clamp(Integer.parseInt(value), 1, MAX_HASH));
+				case "threads" -> this.engine.setThreads(Math.clamp(Integer.parseInt(value), 1, MAX_THREADS));
+				default -> send("info string unknown option " + name);
+			}
+		} catch(NumberFormatException e) {
+			send("info string bad value " + value);
+		}
+	}
+
+	private void position(String[] tokens) {
+		int i = 1;
+		ChessGame game;
+		try {
+			if(i < tokens.length && tokens[i].equals("fen")) {
+				StringBuilder fen = new StringBuilder();
+				for(i++; i < tokens.length && !tokens[i].equals("moves"); i++)
+					fen.append(tokens[i]).append(' ');
+				game = Fen.parse(fen, "White", "Black");
+			} else {
+				game = new ChessGame("White", "Black");
+				if(i < tokens.length && tokens[i].equals("startpos"))
+					i++;
+			}
+		} catch(IllegalArgumentException e) {
+			send("info string " + e.getMessage());
+			return;
+		}
+
+		if(i < tokens.length && tokens[i].equals("moves"))
+			for(i++; i < tokens.length; i++) {
+				int move = parseMove(game.getBoard(), tokens[i]);
+				if(move == Move.NONE) {
+					send("info string illegal move " + tokens[i]);
+					break;
+				}
+				game.movePiece(move);
+			}
+
+		this.game = game;
+	}
+
+	/**
+	 * @return the legal move written in UCI coordinates (e.g. {@code e2e4}, {@code e7e8q}), or {@link Move#NONE}
+	 */
+	static int parseMove(Board board, String text) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, moves, 0);
+		for(int i = 0; i < n; i++)
+			if(Move.toString(moves[i]).equals(text.toLowerCase()))
+				return moves[i];
+		return Move.NONE;
+	}
+
+	private void go(String[] tokens) {
+		SearchLimits limits = SearchLimits.infinite();
+		boolean infinite = false;
+		long time = 0, increment = 0;
+		int movesToGo = MOVES_TO_GO;
+		boolean white = this.game.getCurrentPlayer() == ColorType.WHITE;
+
+		try {
+			for(int i = 1; i < tokens.length; i++) {
+				String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+				switch(tokens[i]) {
+					case "depth" -> limits = limits.withDepth(Math.clamp(Integer.parseInt(value), 1, SearchLimits.MAX_DEPTH));
+					case "nodes" -> limits = limits.withNodes(Long.parseLong(value));
+					case "movetime" -> limits = limits.withTime(Math.max(1, Long.parseLong(value) - MOVE_OVERHEAD));
+					case "wtime" -> { if(white) time = Long.parseLong(value); }
+					case "btime" -> { if(!white) time = Long.parseLong(value); }
+					case "winc" -> { if(white) increment = Long.parseLong(value); }
+					case "binc" -> { if(!white) increment = Long.parseLong(value); }
+					case "movestogo" -> movesToGo = Math.max(1, Integer.parseInt(value));
+					case "infinite" -> infinite = true;
+					default -> { continue; }
+				}
+				if(!tokens[i].equals("infinite"))
+					i++;
+			}
+		} catch(NumberFormatException e) {
+			send("info string bad go parameter");
+			return;
+		}
+
+		if(time > 0 && limits.getTime() == 0)
+			limits = limits.withTime(allocate(time, increment, movesToGo));
+
+		startSearch(limits, infinite);
+	}
+
+	/**
+	 * Spends an even share of the clock on the move, plus most of the increment, never getting near the flag.
+	 * The search itself does not start a new iteration past half of the time given.
+	 */
+	static long allocate(long time, long increment, int movesToGo) {
+		long budget = time / movesToGo + increment * 3 / 4;
+		return Math.max(1, Math.min(budget, time - MOVE_OVERHEAD));
+	}
+
+	private void startSearch(SearchLimits limits, boolean infinite) {
+		Board board = this.game.getBoard();
+		CountDownLatch stopped = new CountDownLatch(1);
+		AtomicBoolean searchStopped = new AtomicBoolean();
+		this.stopped = stopped;
+		this.searchStopped = searchStopped;
+		this.infinite = infinite;
+		this.engine.setListener(this::info);
+
+		this.search = Thread.ofPlatform().name("uci-search").start(() -> {
+			SearchResult result = this.engine.search(board, limits, searchStopped);
+			// in infinite mode the best move is only sent once the GUI says stop
+			if(infinite)
+				await(stopped);
+			send("bestmove " + Move.toString(result.move()));
+		});
+	}
+
+	private void stopSearch() {
+		Thread search = this.search;
+		if(search == null)
+			return;
+
+		// the flag stops the search even if its thread has not started it yet
+		this.searchStopped.set(true);
+		this.stopped.countDown();
+		join(search);
+		this.search = null;
+	}
+
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void info(SearchResult result) {
+		String score = result.isMate() ? "mate " + result.getMateIn() : "cp " + result.score();
+		send("info depth " + result.depth() + " score " + score + " nodes " + result.nodes()
+				+ " nps " + result.getNodesPerSecond() + " time " + result.timeMillis()
+				+ " hashfull " + this.engine.getTranspositionTable().getFill() + " pv " + result.getPvString());
+	}
+
+	private void send(String line) {
+		synchronized(this.out) {
+			this.out.println(line);
+			this.out.flush();
+		}
+	}
+
+}
@@ -0,0 +1,262 @@
+package pt.isec.pa.chess.model.data;
+
+/**
+ * Utility class that computes the squares attacked by a piece as bitboards.
+ * <p>
+ * Every method returns a {@code long} with one bit set for each attacked square,
+ * following the {@link Board#getSquare(int, char)} indexing.
+ * <p>
+ * All attacks come from tables initialised once when the class is loaded: Knight, King and Pawn attacks
+ * are stored per square, and Rook and Bishop attacks use magic bitboards, where the relevant blockers of a square
+ * are multiplied by a magic number and shifted into the index of the precomputed attack set.
+ */
+public final class Attacks {
+
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_B = FILE_A << 1;
+	public static final long FILE_G = FILE_A << 6;
+	public static final long FILE_H = FILE_A << 7;
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_2 = RANK_1 << 8;
+	public static final long RANK_3 = RANK_1 << 16;
+	public static final long RANK_6 = RANK_1 << 40;
+	public static final long RANK_7 = RANK_1 << 48;
+	public static final long RANK_8 = RANK_1 << 56;
+
+	private static final int[][] ROOK_DIRECTIONS = {{1,0},{-1,0},{0,1},{0,-1}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1,1},{1,-1},{-1,1},{-1,-1}};
+
+	private static final long[] KNIGHT = new long[64];
+	private static final long[] KING = new long[64];
+	private static final long[] WHITE_PAWN = new long[64];
+	private static final long[] BLACK_PAWN = new long[64];
+
+	private static final long[] ROOK_MAGICS = {
+			0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+			0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+			0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+			0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+			0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+			0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+			0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+			0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+			0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+			0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+			0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+			0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+			0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+			0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+			0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+			0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+	};
+	private static final long[] BISHOP_MAGICS = {
+			0x10102002004A1420L, 0x8020040400584008L, 0x10510800811201C8L, 0x5204042080000088L,
+			0x2204106880000002L, 0x1401042004000000L, 0x0400880410042004L, 0x0028208200A02020L,
+			0x1500241990010E00L, 0x8001200182020A40L, 0x40004101030B0000L, 0x8002041042000100L,
+			0x4010011041020038L, 0x0000010421044000L, 0x1500210808020A00L, 0x8000088400880520L,
+			0x0405004010040100L, 0x1005823210040108L, 0x2708008102040011L, 0x4048200404009100L,
+			0x0018104101400024L, 0x0003000601190101L, 0x8004803108491000L, 0x8014241200820800L,
+			0x0006E080100C3040L, 0x0501044A11041800L, 0x9020300008004045L, 0x0894080000220040L,
+			0x1001010083104000L, 0x5004030040900080L, 0x000400422C012400L, 0x0002128698404812L,
+			0x1010108404900440L, 0x0928021182084100L, 0x2006080409020024L, 0x1010202020180080L,
+			0xA010008200202200L, 0x2098015100019004L, 0x0002041440810811L, 0x802A02020000B098L,
+			0x0009015090004060L, 0x4000821082081001L, 0x0100210040420800L, 0x0800004010488A00L,
+			0x2000081104004040L, 0x4C8E029015000082L, 0x0420340322224842L, 0x1298260043400210L,
+			0x0000822802400008L, 0x00008A0101600000L, 0x3040003412080021L, 0x3040290220884800L,
+			0x4A1500401041004AL, 0x8010200282020781L, 0x0020203142209091L, 0x0070300600902110L,
+			0x0040808800B62048L, 0x0000810400C44420L, 0x00080400440C0441L, 0x8340080020840411L,
+			0x0000000104208200L, 0x0000800810D00080L, 0x0400530411080200L, 0x4040702400932244L
+	};
+
+	private static final Magic ROOK = new Magic(ROOK_DIRECTIONS, ROOK_MAGICS);
+	private static final Magic BISHOP = new Magic(BISHOP_DIRECTIONS, BISHOP_MAGICS);
+
+	private static final long[][] BETWEEN = new long[64][64];
+	private static final long[][] LINE = new long[64][64];
+
+	static {
+		for(int square = 0; square < 64; square++) {
+			long b = 1L << square;
+			KNIGHT[square] = ((b << 17) & ~FILE_A) | ((b << 15) & ~FILE_H)
+					| ((b << 10) & ~(FILE_A | FILE_B)) | ((b << 6) & ~(FILE_G | FILE_H))
+					| ((b >>> 17) & ~FILE_H) | ((b >>> 15) & ~FILE_A)
+					| ((b >>> 10) & ~(FILE_G | FILE_H)) | ((b >>> 6) & ~(FILE_A | FILE_B));
+
+			long sides = ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+			long row = b | sides;
+			KING[square] = sides | (row << 8) | (row >>> 8);
+
+			WHITE_PAWN[square] = ((b << 9) & ~FILE_A) | ((b << 7) & ~FILE_H);
+			BLACK_PAWN[square] = ((b >>> 7) & ~FILE_A) | ((b >>> 9) & ~FILE_H);
+		}
+
+		for(int a = 0; a < 64; a++)
+			for(int b = 0; b < 64; b++) {
+				long bits = (1L << a) | (1L << b);
+				if(a == b)
+					continue;
+				if((rook(a, 0) & (1L << b)) != 0) {
+					LINE[a][b] = (rook(a, 0) & rook(b, 0)) | bits;
+					BETWEEN[a][b] = rook(a, 1L << b) & rook(b, 1L << a);
+				} else if((bishop(a, 0) & (1L << b)) != 0) {
+					LINE[a][b] = (bishop(a, 0) & bishop(b, 0)) | bits;
+					BETWEEN[a][b] = bishop(a, 1L << b) & bishop(b, 1L << a);
+				}
+			}
+	}
+
+	private Attacks() {}
+
+	/**
+	 * @param square the square index (0 - 63) of the Knight
+	 * @return the squares attacked by a Knight
+	 */
+	public static long knight(int square) { return KNIGHT[square]; }
+
+	/**
+	 * @param square the square index (0 - 63) of the King
+	 * @return the squares attacked by a King
+	 */
+	public static long king(int square) { return KING[square]; }
+
+	/**
+	 * @param square the square index (0 - 63) of the Pawn
+	 * @param color the color of the Pawn
+	 * @return the squares attacked (diagonally) by a Pawn
+	 */
+	public static long pawn(int square, ColorType color) {
+		return color == ColorType.WHITE ? WHITE_PAWN[square] : BLACK_PAWN[square];
+	}
+
+	/**
+	 * @param square the square index (0 - 63) of the Rook
+	 * @param occupied the occupied squares, which block the rays
+	 * @return the squares attacked by a Rook, including the first blocker of each ray
+	 */
+	public static long rook(int square, long occupied) { return ROOK.attacks(square, occupied); }
+
+	/**
+	 * @param square the square index (0 - 63) of the Bishop
+	 * @param occupied the occupied squares, which block the rays
+	 * @return the squares attacked by a Bishop, including the first blocker of each ray
+	 */
+	public static long bishop(int square, long occupied) { return BISHOP.attacks(square, occupied); }
+
+	/**
+	 * @param square the square index (0 - 63) of the Queen
+	 * @param occupied the occupied squares, which block the rays
+	 * @return the squares attacked by a Queen, including the first blocker of each ray
+	 */
+	public static long queen(int square, long occupied) {
+		return ROOK.attacks(square, occupied) | BISHOP.attacks(square, occupied);
+	}
+
+	/**
+	 * @param a the square index (0 - 63) of the first square
+	 * @param b the square index (0 - 63) of the second square
+	 * @return the squares strictly between both squares, or {@code 0} if they are not on the same row, column or diagonal
+	 */
+	public static long between(int a, int b) { return BETWEEN[a][b]; }
+
+	/**
+	 * @param a the square index (0 - 63) of the first square
+	 * @param b the square index (0 - 63) of the second square
+	 * @return the whole row, column or diagonal through both squares, or {@code 0} if they are not aligned
+	 */
+	public static long line(int a, int b) { return LINE[a][b]; }
+
+	/**
+	 * Walks the rays of a sliding piece square by square, used to fill the magic tables.
+	 */
+	private static long slidingAttacks(int square, long occupied, int[][] directions) {
+		long res = 0;
+		for(int[] d : directions) {
+			int row = square >>> 3, column = square & 7;
+			while(true) {
+				row += d[0];
+				column += d[1];
+				if(row < 0 || row > 7 || column < 0 || column > 7)
+					break;
+
+				long b = 1L << (row * 8 + column);
+				res |= b;
+				if((occupied & b) != 0)
+					break;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * The squares whose occupancy changes the attacks of a sliding piece (the rays without their last square).
+	 */
+	private static long relevantMask(int square, int[][] directions) {
+		long res = 0;
+		for(int[] d : directions) {
+			int row = (square >>> 3) + d[0], column = (square & 7) + d[1];
+			while(row + d[0] >= 0 && row + d[0] <= 7 && column + d[1] >= 0 && column + d[1] <= 7) {
+				res |= 1L << (row * 8 + column);
+				row += d[0];
+				column += d[1];
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Magic bitboard tables of a sliding piece.
+	 */
+	private static final class Magic {
+		private final long[] masks = new long[64];
+		private final long[] magics;
+		private final int[] shifts = new int[64];
+		private final int[] offsets = new int[64];
+		private final long[] table;
+
+		Magic(int[][] directions, long[] magics) {
+			this.magics = magics;
+
+			int size = 0;
+			for(int square = 0; square < 64; square++) {
+				this.masks[square] = relevantMask(square, directions);
+				this.shifts[square] = 64 - Long.bitCount(this.masks[square]);
+				this.offsets[square] = size;
+				size += 1 << Long.bitCount(this.masks[square]);
+			}
+
+			this.table = new long[size];
+			for(int square = 0; square < 64; square++)
+				fill(square, directions);
+		}
+
+		long attacks(int square, long occupied) {
+			return this.table[this.offsets[square] + (int) (((occupied & this.masks[square]) * this.magics[square]) >>> this.shifts[square])];
+		}
+
+		/**
+		 * Stores the attacks of every blocker subset of the square at the index given by its magic number.
+		 *
+		 * @throws IllegalStateException if the magic number maps two subsets with different attacks to the same index
+		 */
+		private void fill(int square, int[][] directions) {
+			long mask = this.masks[square];
+			int offset = this.offsets[square];
+			boolean[] used = new boolean[1 << Long.bitCount(mask)];
+
+			// enumerate every subset of the mask (Carry-Rippler)
+			long subset = 0;
+			do {
+				long attacks = slidingAttacks(square, subset, directions);
+				int index = (int) ((subset * this.magics[square]) >>> this.shifts[square]);
+
+				if(used[index] && this.table[offset + index] != attacks)
+					throw new IllegalStateException("Invalid magic number for square " + square);
+
+				used[index] = true;
+				this.table[offset + index] = attacks;
+				subset = (subset - mask) & mask;
+			} while(subset != 0);
+		}
+	}
+
+}
@@ -2,24 +2,44 @@ package pt.isec.pa.chess.model.data;
 
 import pt.isec.pa.chess.model.ChessGame;
 import pt.isec.pa.chess.model.data.pieces.King;
+import pt.isec.pa.chess.model.data.pieces.Pawn;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 /**
  * Represents the chessboard in a Chess Game.
  * <p>
- * The {@code Board} class maintains a list of all active pieces and provides
+ * The {@code Board} class keeps every active piece on a 64 square mailbox and provides
  * core functionalities for manipulating them, such as adding, moving, or removing pieces.
+ * <p>
+ * Internally the position is also kept as twelve {@code long} bitboards (one per piece type and color)
+ * and two color occupancy masks, so square lookups and occupancy tests are O(1).
+ * Squares are indexed from {@code 0} (A1) to {@code 63} (H8), see {@link #getSquare(int, char)}.
+ * <p>
+ * Moves are applied with {@link #makeMove(int)} and reverted with {@link #unmakeMove()}. Each made move
+ * pushes a small undo record (captured piece, castling rights, en passant square and moved flags)
+ * onto preallocated stacks, so trying a move does not copy the board.
+ * <p>
+ * The position is identified by a 64-bit {@link Zobrist} key, kept up to date on every change of the board
+ * and restored from the undo stack when a move is reverted, see {@link #getHash()}.
+ * The keys of the previous positions are kept as well, so repetitions are found by scanning them back
+ * to the last capture or pawn move, see {@link #getRepetitions()}.
+ * The same way, the material and piece-square scores of the evaluation are updated as pieces move,
+ * see {@link #getMidgameScore()}.
  *
  * @see Piece
  * @see PieceFactory
  * @see MoveType
+ * @see Move
  */
 public class Board implements Serializable {
 	@Serial
@@ -27,10 +47,65 @@ public class Board implements Serializable {
 
 	private static final int RowSize = 8;
 	private static final int ColumnSize = 8;
+	public static final int SQUARES = RowSize * ColumnSize;
+
+	public static final int CASTLE_WHITE_KING = 1;
+	public static final int CASTLE_WHITE_QUEEN = 2;
+	public static final int CASTLE_BLACK_KING = 4;
+	public static final int CASTLE_BLACK_QUEEN = 8;
+
+	private static final int A1 = 0, E1 = 4, H1 = 7, A8 = 56, E8 = 60, H8 = 63;
+	private static final int[] CASTLING_MASK = new int[SQUARES];
+	static {
+		Arrays.fill(CASTLING_MASK, 0xF);
+		CASTLING_MASK[A1] = ~CASTLE_WHITE_QUEEN & 0xF;
+		CASTLING_MASK[E1] = ~(CASTLE_WHITE_KING | CASTLE_WHITE_QUEEN) & 0xF;
+		CASTLING_MASK[H1] = ~CASTLE_WHITE_KING & 0xF;
+		CASTLING_MASK[A8] = ~CASTLE_BLACK_QUEEN & 0xF;
+		CASTLING_MASK[E8] = ~(CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN) & 0xF;
+		CASTLING_MASK[H8] = ~CASTLE_BLACK_KING & 0xF;
+	}
+
+	private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+	private static final int PIECE_TYPES = PieceType.values().length;
+	private static final int UNDO_CAPACITY = 256;
+	/**
+	 * Bytes of the undo record of a move with compressed references: the move and its state, three pieces,
+	 * two attack maps with their flags and the key of the position before it.
+	 */
+	public static final int MOVE_BYTES = 48;
 
-	private final List<Piece> pieces;
+	private Piece[] squares;
+	private transient long[] bitboards;
+	private transient long[] occupancy;
+	private transient long occupied;
 	private Piece last_piece;
 
+	private ColorType sideToMove;
+	private int castlingRights;
+	private int epSquare;
+	private int halfmoveClock;
+	private int fullmoveNumber;
+	private transient long hash;
+	private transient long pawnHash;
+	private transient long[] history;
+	private transient int historyCount;
+	private transient int midgame, endgame, phase;
+
+	// written by writeObject up to the moves made, without the spare capacity
+	private transient int[] undoMoves;
+	private transient int[] undoStates;
+	private transient Piece[] undoMoved;
+	private transient Piece[] undoCaptured;
+	private transient Piece[] undoLast;
+	private transient int undoCount;
+
+	private transient long[] attackMaps;
+	private transient int[] attackValid;
+	// the moves generated by getMove(int, char, int, char), kept so every move asked by the UI does not allocate them
+	private transient int[] moveBuffer;
+
 
 	/**
 	 * {@code Board} constructor that initializes the board with the specified pieces.
@@ -42,11 +117,23 @@ public class Board implements Serializable {
 	 */
 	public Board(String[] pieces) {
 		this.last_piece = null;
-		this.pieces = new ArrayList<>();
-		if(pieces == null)
-			return;
-		for(String p : pieces)
-			this.pieces.add(PieceFactory.createPiece(p));
+		this.squares = new Piece[SQUARES];
+		this.bitboards = new long[PIECE_TYPES * ColorType.values().length];
+		this.occupancy = new long[ColorType.values().length];
+		this.sideToMove = ColorType.WHITE;
+		this.epSquare = -1;
+		this.fullmoveNumber = 1;
+		initUndo();
+
+		if(pieces != null)
+			for(String p : pieces) {
+				Piece piece = PieceFactory.createPiece(p);
+				if(piece != null)
+					place(piece);
+			}
+
+		this.castlingRights = computeCastlingRights();
+		this.hash = computeHash();
 	}
 
 	/**
@@ -54,12 +141,44 @@ public class Board implements Serializable {
 	 * the new board instance is independent of the original.
 	 *
 	 * @param board the {@code Board} to copy
+	 * @implNote The undo history is not copied, only the keys of the positions since the last capture or pawn move,
+	 *           so repetitions are still found on the copy.
 	 */
 	public Board(Board board) {
 		this.last_piece = null;
-		this.pieces = new ArrayList<>();
-		for (Piece piece : board.pieces)
-			this.pieces.add(piece.clone());
+		this.squares = new Piece[SQUARES];
+		this.bitboards = new long[PIECE_TYPES * ColorType.values().length];
+		this.occupancy = new long[ColorType.values().length];
+		this.sideToMove = board.sideToMove;
+		this.castlingRights = board.castlingRights;
+		this.epSquare = board.epSquare;
+		this.halfmoveClock = board.halfmoveClock;
+		this.fullmoveNumber = board.fullmoveNumber;
+		initUndo();
+
+		for (Piece piece : board.squares)
+			if(piece != null)
+				place(piece.clone());
+		this.hash = board.hash;
+
+		int keep = Math.min(board.historyCount, board.halfmoveClock);
+		if(keep > this.history.length)
+			this.history = new long[keep + UNDO_CAPACITY];
+		System.arraycopy(board.history, board.historyCount - keep, this.history, 0, keep);
+		this.historyCount = keep;
+	}
+
+	private void initUndo() {
+		this.undoMoves = new int[UNDO_CAPACITY];
+		this.undoStates = new int[UNDO_CAPACITY];
+		this.undoMoved = new Piece[UNDO_CAPACITY];
+		this.undoCaptured = new Piece[UNDO_CAPACITY];
+		this.undoLast = new Piece[UNDO_CAPACITY];
+		this.undoCount = 0;
+		this.history = new long[UNDO_CAPACITY];
+		this.historyCount = 0;
+		this.attackMaps = new long[(UNDO_CAPACITY + 1) * 2];
+		this.attackValid = new int[UNDO_CAPACITY + 1];
 	}
 
 	public int getRowSize() { return RowSize; }
@@ -67,6 +186,382 @@ public class Board implements Serializable {
 	public int getColumnSize() { return ColumnSize; }
 
 
+	/**
+	 * Converts a board position into its square index.
+	 *
+	 * @param row the row position (1 - 8) on the board
+	 * @param column the column position (A - H) on the board
+	 * @return the square index ({@code 0} for A1 up to {@code 63} for H8), or {@code -1} if the position is outside the board.
+	 */
+	public static int getSquare(int row, char column) {
+		int c = Character.toUpperCase(column) - 'A';
+		if(row < 1 || row > RowSize || c < 0 || c >= ColumnSize)
+			return -1;
+
+		return (row - 1) * ColumnSize + c;
+	}
+
+	/**
+	 * @param square the square index (0 - 63)
+	 * @return the row position (1 - 8) of the square
+	 */
+	public static int getSquareRow(int square) { return square / ColumnSize + 1; }
+
+	/**
+	 * @param square the square index (0 - 63)
+	 * @return the column position (A - H) of the square
+	 */
+	public static char getSquareColumn(int square) { return (char) ('A' + square % ColumnSize); }
+
+	/**
+	 * Returns the index of the bitboard holding the pieces of the given type and color.
+	 *
+	 * @param type the type of the pieces
+	 * @param color the color of the pieces
+	 * @return the bitboard index (0 - 11)
+	 */
+	public static int getBitboardIndex(PieceType type, ColorType color) {
+		return color.ordinal() * PIECE_TYPES + type.ordinal();
+	}
+
+	/**
+	 * @param type the type of the pieces
+	 * @param color the color of the pieces
+	 * @return a bitboard with a bit set for every square occupied by a piece of the given type and color
+	 */
+	public long getBitboard(PieceType type, ColorType color) { return this.bitboards[getBitboardIndex(type, color)]; }
+
+	/**
+	 * @param color the color of the pieces
+	 * @return a bitboard with a bit set for every square occupied by a piece of the given color
+	 */
+	public long getOccupancy(ColorType color) { return this.occupancy[color.ordinal()]; }
+
+	/**
+	 * @return a bitboard with a bit set for every occupied square
+	 */
+	public long getOccupied() { return this.occupied; }
+
+	/**
+	 * Checks if there is a piece on the given position.
+	 *
+	 * @param row the row position (1 - 8) on the board
+	 * @param column the column position (A - H) on the board
+	 * @return {@code true} if the square is occupied; {@code false} if it is empty or outside the board.
+	 */
+	public boolean isOccupied(int row, char column) {
+		int square = getSquare(row, column);
+		return square != -1 && (this.occupied & (1L << square)) != 0;
+	}
+
+	/**
+	 * Retrieves the piece on the given square index.
+	 *
+	 * @param square the square index (0 - 63)
+	 * @return the piece on the square, or {@code null} if the square is empty.
+	 */
+	public Piece getPiece(int square) { return this.squares[square]; }
+
+	public ColorType getSideToMove() { return this.sideToMove; }
+
+	public void setSideToMove(ColorType sideToMove) {
+		if(sideToMove == this.sideToMove) return;
+
+		this.hash ^= epKey();
+		this.sideToMove = sideToMove;
+		this.hash ^= Zobrist.side() ^ epKey();
+	}
+
+	/**
+	 * @return the castling rights still available, as a combination of the {@code CASTLE_*} constants
+	 */
+	public int getCastlingRights() { return this.castlingRights; }
+
+	/**
+	 * @return the square a pawn can capture en passant into, or {@code -1} if there is none
+	 */
+	public int getEnPassantSquare() { return this.epSquare; }
+
+	/**
+	 * Sets the square a pawn can capture en passant into, for positions that do not start a game.
+	 *
+	 * @param square the square index (0 - 63) behind the pawn that just moved two squares, or {@code -1} for none
+	 */
+	public void setEnPassantSquare(int square) {
+		this.hash ^= epKey();
+		this.epSquare = square < 0 || square >= SQUARES ? -1 : square;
+		this.hash ^= epKey();
+	}
+
+	/**
+	 * @return the last move made with {@link #makeMove(int)}, or {@link Move#NONE} if there is none
+	 */
+	public int getLastMove() { return this.undoCount == 0 ? Move.NONE : this.undoMoves[this.undoCount - 1]; }
+
+	/**
+	 * @return the moves made with {@link #makeMove(int)} and not reverted nor {@link #forgetMoves forgotten}, in
+	 *         the order they were made
+	 */
+	public int[] getMoves() { return Arrays.copyOf(this.undoMoves, this.undoCount); }
+
+	/**
+	 * @return the piece captured by the last move made, or {@code null} if it did not capture
+	 */
+	public Piece getLastCaptured() { return this.undoCount == 0 ? null : this.undoCaptured[this.undoCount - 1]; }
+
+	/**
+	 * @return the number of moves made since the last capture or pawn move
+	 */
+	public int getHalfmoveClock() { return this.halfmoveClock; }
+
+	/**
+	 * Sets the number of moves made since the last capture or pawn move, for positions that do not start a game.
+	 *
+	 * @param halfmoveClock the number of moves (0 or more)
+	 */
+	public void setHalfmoveClock(int halfmoveClock) { this.halfmoveClock = Math.max(0, halfmoveClock); }
+
+	/**
+	 * @return the number of the current move, which starts at 1 and grows after every move of Black
+	 */
+	public int getFullmoveNumber() { return this.fullmoveNumber; }
+
+	/**
+	 * Replaces the whole position, forgetting the moves made, so a board can be reused for many positions, e.g.
+	 * when reading them from FEN.
+	 *
+	 * @param pieces the pieces to place, each on the square it tells; {@code null} entries are skipped
+	 * @param sideToMove the side to move
+	 * @param epSquare the square a pawn can capture en passant into, or {@code -1} for none
+	 * @param halfmoveClock the number of moves since the last capture or pawn move
+	 * @param fullmoveNumber the number of the current move (1 or more)
+	 * @implNote As in {@link #Board(String[])}, the castling rights are derived from the Kings and Rooks that have
+	 *           not moved.
+	 */
+	public void setPosition(Piece[] pieces, ColorType sideToMove, int epSquare, int halfmoveClock, int fullmoveNumber) {
+		Arrays.fill(this.squares, null);
+		Arrays.fill(this.bitboards, 0);
+		Arrays.fill(this.occupancy, 0);
+		this.occupied = 0;
+		this.pawnHash = 0;
+		this.midgame = this.endgame = this.phase = 0;
+		this.last_piece = null;
+		Arrays.fill(this.undoMoved, 0, this.undoCount, null);
+		Arrays.fill(this.undoCaptured, 0, this.undoCount, null);
+		Arrays.fill(this.undoLast, 0, this.undoCount, null);
+		this.undoCount = 0;
+		this.historyCount = 0;
+		this.attackValid[0] = 0;
+
+		// the pieces are registered in bulk, then the keys and scores are summed by bitboard
+		for(Piece piece : pieces)
+			if(piece != null) {
+				int square = (piece.getRow() - 1) * ColumnSize + piece.getColumn() - 'A';
+				this.squares[square] = piece;
+				this.bitboards[getBitboardIndex(piece.getType(), piece.getColor())] |= 1L << square;
+			}
+		int pawns = PieceType.PAWN.ordinal();
+		long hash = 0;
+		for(int index = 0; index < this.bitboards.length; index++) {
+			this.occupancy[index / PIECE_TYPES] |= this.bitboards[index];
+			for(long b = this.bitboards[index]; b != 0; b &= b - 1) {
+				int square = Long.numberOfTrailingZeros(b);
+				hash ^= Zobrist.piece(index, square);
+				this.midgame += PieceSquareTables.midgame(index, square);
+				this.endgame += PieceSquareTables.endgame(index, square);
+				this.phase += PieceSquareTables.phase(index);
+				if(index % PIECE_TYPES == pawns)
+					this.pawnHash ^= Zobrist.piece(index, square);
+			}
+		}
+		this.occupied = this.occupancy[0] | this.occupancy[1];
+
+		this.sideToMove = sideToMove;
+		this.castlingRights = computeCastlingRights();
+		this.epSquare = epSquare < 0 || epSquare >= SQUARES ? -1 : epSquare;
+		if(this.epSquare != -1) {
+			Piece ep = this.squares[this.epSquare ^ 8];
+			if(ep != null && ep.getType() == PieceType.PAWN)
+				ep.setFlags(ep.getFlags() | Pawn.EN_PASSANT);
+		}
+		this.halfmoveClock = Math.max(0, halfmoveClock);
+		this.fullmoveNumber = Math.max(1, fullmoveNumber);
+		this.hash = hash ^ (sideToMove == ColorType.BLACK ? Zobrist.side() : 0) ^ Zobrist.castling(this.castlingRights) ^ epKey();
+	}
+
+	/**
+	 * Counts how many times the current position occurred before with the same side to move.
+	 * <p>
+	 * Only the positions since the last capture or pawn move are compared, as no earlier position can repeat.
+	 *
+	 * @return the number of earlier occurrences of the position ({@code 2} or more is a threefold repetition)
+	 */
+	public int getRepetitions() {
+		int count = 0;
+		int end = Math.max(0, this.historyCount - this.halfmoveClock);
+		for(int i = this.historyCount - 2; i >= end; i -= 2)
+			if(this.history[i] == this.hash)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Checks whether neither side has the material left to checkmate: King against King, King and a single
+	 * Knight or Bishop against King, or Kings and Bishops that all stand on squares of the same color.
+	 *
+	 * @return {@code true} if no sequence of legal moves can end in checkmate
+	 */
+	public boolean isInsufficientMaterial() {
+		long heavy = 0, knights = 0, bishops = 0;
+		for(ColorType color : ColorType.values()) {
+			heavy |= getBitboard(PieceType.PAWN, color) | getBitboard(PieceType.ROOK, color) | getBitboard(PieceType.QUEEN, color);
+			knights |= getBitboard(PieceType.KNIGHT, color);
+			bishops |= getBitboard(PieceType.BISHOP, color);
+		}
+
+		if(heavy != 0) return false;
+		if(Long.bitCount(knights | bishops) <= 1) return true;
+		return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+	}
+
+	/**
+	 * Returns the Zobrist key of the position.
+	 * <p>
+	 * The key covers the placement of the pieces, the side to move, the castling rights and
+	 * the en passant square, the latter only when a pawn of the side to move can capture into it.
+	 *
+	 * @return the 64-bit {@link Zobrist} key of the position
+	 */
+	public long getHash() { return this.hash; }
+
+	/**
+	 * The key of the pawn structure alone: the XOR of the {@link Zobrist} keys of the Pawns on their squares,
+	 * kept up to date like {@link #getHash()}. Positions with the same Pawns share it.
+	 *
+	 * @return the Zobrist key of the Pawns
+	 */
+	public long getPawnHash() { return this.pawnHash; }
+
+	/**
+	 * Computes the Zobrist key of the position from scratch.
+	 *
+	 * @return the same key as {@link #getHash()}, which is kept incrementally
+	 */
+	public final long computeHash() {
+		long res = 0;
+		for(int index = 0; index < this.bitboards.length; index++)
+			for(long b = this.bitboards[index]; b != 0; b &= b - 1)
+				res ^= Zobrist.piece(index, Long.numberOfTrailingZeros(b));
+
+		if(this.sideToMove == ColorType.BLACK)
+			res ^= Zobrist.side();
+		return res ^ Zobrist.castling(this.castlingRights) ^ epKey();
+	}
+
+	/**
+	 * The en passant key is only part of the hash when the capture is possible, so positions that only
+	 * differ by an en passant square nobody can use are the same position.
+	 */
+	private long epKey() {
+		if(this.epSquare == -1)
+			return 0;
+
+		long capturers = Attacks.pawn(this.epSquare, ColorType.getOpponent(this.sideToMove))
+				& this.bitboards[getBitboardIndex(PieceType.PAWN, this.sideToMove)];
+		return capturers == 0 ? 0 : Zobrist.enPassant(this.epSquare);
+	}
+
+	/**
+	 * The midgame and endgame scores are the sums of the {@link PieceSquareTables} weights of every piece
+	 * on its square, kept up to date as pieces are placed and removed.
+	 *
+	 * @return the midgame score in centipawns, positive when White is ahead
+	 */
+	public int getMidgameScore() { return this.midgame; }
+
+	/**
+	 * @return the endgame score in centipawns, positive when White is ahead
+	 * @see #getMidgameScore()
+	 */
+	public int getEndgameScore() { return this.endgame; }
+
+	/**
+	 * @return the game phase: the sum of the phase weights of the pieces, {@link PieceSquareTables#MAX_PHASE}
+	 *         with every piece on the board (or more after promotions) down to {@code 0} with only Pawns and Kings
+	 */
+	public int getPhase() { return this.phase; }
+
+	/**
+	 * Registers the piece on the square it currently stands on.
+	 */
+	private void place(Piece piece) {
+		int square = getSquare(piece.getRow(), piece.getColumn());
+		int index = getBitboardIndex(piece.getType(), piece.getColor());
+		long bit = 1L << square;
+
+		this.squares[square] = piece;
+		this.bitboards[index] |= bit;
+		this.hash ^= Zobrist.piece(index, square);
+		this.midgame += PieceSquareTables.midgame(index, square);
+		this.endgame += PieceSquareTables.endgame(index, square);
+		this.phase += PieceSquareTables.phase(index);
+		if(piece.getType() == PieceType.PAWN)
+			this.pawnHash ^= Zobrist.piece(index, square);
+		this.occupancy[piece.getColor().ordinal()] |= bit;
+		this.occupied = this.occupancy[0] | this.occupancy[1];
+	}
+
+	/**
+	 * Unregisters the piece from the given square.
+	 */
+	private void remove(Piece piece, int square) {
+		int index = getBitboardIndex(piece.getType(), piece.getColor());
+		long bit = 1L << square;
+
+		this.squares[square] = null;
+		this.bitboards[index] &= ~bit;
+		this.hash ^= Zobrist.piece(index, square);
+		this.midgame -= PieceSquareTables.midgame(index, square);
+		this.endgame -= PieceSquareTables.endgame(index, square);
+		this.phase -= PieceSquareTables.phase(index);
+		if(piece.getType() == PieceType.PAWN)
+			this.pawnHash ^= Zobrist.piece(index, square);
+		this.occupancy[piece.getColor().ordinal()] &= ~bit;
+		this.occupied = this.occupancy[0] | this.occupancy[1];
+	}
+
+	/**
+	 * Moves the piece registered on a square to another square.
+	 */
+	private void relocate(Piece piece, int from, int to) {
+		remove(piece, from);
+		piece.setRow(getSquareRow(to));
+		piece.setColumn(getSquareColumn(to));
+		place(piece);
+	}
+
+	/**
+	 * Derives the castling rights from the Kings and Rooks that have not moved yet.
+	 */
+	private int computeCastlingRights() {
+		int rights = 0;
+		if(isUnmoved(E1, PieceType.KING, ColorType.WHITE)) {
+			if(isUnmoved(H1, PieceType.ROOK, ColorType.WHITE)) rights |= CASTLE_WHITE_KING;
+			if(isUnmoved(A1, PieceType.ROOK, ColorType.WHITE)) rights |= CASTLE_WHITE_QUEEN;
+		}
+		if(isUnmoved(E8, PieceType.KING, ColorType.BLACK)) {
+			if(isUnmoved(H8, PieceType.ROOK, ColorType.BLACK)) rights |= CASTLE_BLACK_KING;
+			if(isUnmoved(A8, PieceType.ROOK, ColorType.BLACK)) rights |= CASTLE_BLACK_QUEEN;
+		}
+		return rights;
+	}
+
+	private boolean isUnmoved(int square, PieceType type, ColorType color) {
+		Piece p = this.squares[square];
+		return p != null && p.getType() == type && p.getColor() == color && p.getFlags() == 0;
+	}
+
+
 	/**
 	 * Attempts to add a {@code Piece} to the board.
 	 * <p>
@@ -79,19 +574,58 @@ public class Board implements Serializable {
 		if(getPiece(piece.getRow(), piece.getColumn()) != null)
 			return false;
 
-		this.pieces.add(piece);
+		this.hash ^= epKey();
+		place(piece);
+		this.hash ^= epKey();
+		this.attackValid[this.undoCount] = 0;
 		return true;
 	}
 
 	/**
 	 * Removes and returns the {@code Piece} at the specified index from the board.
 	 *
-	 * @param index the index of the piece to remove from the internal list
+	 * @param index the index of the piece to remove, as returned by {@link #getPieceIndex(int, char)}
 	 * @return the removed {@code Piece}
-	 * @throws IndexOutOfBoundsException if the index is out of range
+	 * @throws IndexOutOfBoundsException if the index is out of range or there is no piece at that index
 	 */
 	public Piece popPiece(int index) {
-		return this.pieces.remove(index);
+		if(index < 0 || index >= SQUARES || this.squares[index] == null)
+			throw new IndexOutOfBoundsException("Invalid piece index " + index);
+
+		Piece p = this.squares[index];
+		this.hash ^= epKey();
+		remove(p, index);
+		this.hash ^= epKey();
+		this.attackValid[this.undoCount] = 0;
+		return p;
+	}
+
+	/**
+	 * Replaces the piece on the given square with a new piece of the specified type and the same color.
+	 *
+	 * @param square the square index (0 - 63) of the piece to replace
+	 * @param type the type of the new piece
+	 * @return the new {@code Piece}, or {@code null} if the square is empty
+	 * @implNote The replacement is reverted by {@link #unmakeMove()} when it happens on the square of the last move,
+	 *           and a promotion of the last move then records the new type, as if it was promoted to it.
+	 */
+	public Piece promote(int square, PieceType type) {
+		Piece old = this.squares[square];
+		if(old == null)
+			return null;
+
+		int last = getLastMove();
+		if(Move.isPromotion(last) && Move.getTo(last) == square && type != PieceType.KING && type != PieceType.PAWN)
+			this.undoMoves[this.undoCount - 1] = Move.createPromotion(Move.getFrom(last), square, Move.isCapture(last), type);
+
+		Piece p = PieceFactory.createPiece(type, old.getRow(), old.getColumn(), old.getColor(), true);
+		this.hash ^= epKey();
+		remove(old, square);
+		place(p);
+		this.hash ^= epKey();
+		this.last_piece = p;
+		this.attackValid[this.undoCount] = 0;
+		return p;
 	}
 
 	public Piece getLastMovedPiece() { return this.last_piece; }
@@ -102,7 +636,11 @@ public class Board implements Serializable {
 	 * @return a new {@link List} containing cloned copies of the {@link Piece} objects.
 	 */
 	public List<Piece> getPieces() {
-		return this.pieces.stream().map(Piece::clone).collect(Collectors.toList());
+		List<Piece> res = new ArrayList<>();
+		for(Piece p : this.squares)
+			if(p != null)
+				res.add(p.clone());
+		return res;
 	}
 
 	/**
@@ -113,7 +651,8 @@ public class Board implements Serializable {
 	 * @return a copy of the requested {@code ChessPiece} if it exists, or {@code null} if no piece exists at the given position.
 	 */
 	public Piece getPiece(int row, char column) {
-		return this.pieces.stream().filter(piece -> piece.getRow() == row && piece.getColumn() == Character.toUpperCase(column)).findFirst().orElse(null);
+		int square = getSquare(row, column);
+		return square == -1 ? null : this.squares[square];
 	}
 
 	/**
@@ -124,9 +663,9 @@ public class Board implements Serializable {
 	 * @return the index of the chess piece or {@code -1} if the piece is not found.
 	 */
 	public int getPieceIndex(int row, char column) {
-		Piece p = this.pieces.stream().filter(piece -> piece.getRow() == row && piece.getColumn() == Character.toUpperCase(column)).findFirst().orElse(null);
+		int square = getSquare(row, column);
 
-		return p == null ? -1 : this.pieces.indexOf(p);
+		return square == -1 || this.squares[square] == null ? -1 : square;
 	}
 
 	/**
@@ -135,7 +674,8 @@ public class Board implements Serializable {
 	 * @return the White {@link King} piece, or {@code null} if no White King is found.
 	 */
 	public King getWhiteKing() {
-		return this.pieces.stream() .filter(piece -> piece instanceof King && piece.getColor() == ColorType.WHITE) .findFirst() .map(piece -> (King) piece.clone()).orElse(null);
+		int square = getKingSquare(ColorType.WHITE);
+		return square == -1 ? null : (King) this.squares[square].clone();
 	}
 
 	/**
@@ -144,45 +684,458 @@ public class Board implements Serializable {
 	 * @return the Black {@link King} piece, or {@code null} if no Black King is found.
 	 */
 	public King getBlackKing() {
-		return this.pieces.stream() .filter(piece -> piece instanceof King && piece.getColor() == ColorType.BLACK) .findFirst() .map(piece -> (King) piece.clone()).orElse(null);
+		int square = getKingSquare(ColorType.BLACK);
+		return square == -1 ? null : (King) this.squares[square].clone();
+	}
+
+	/**
+	 * @param color the color of the King
+	 * @return the square index of the King, or {@code -1} if there is no King of that color.
+	 */
+	public int getKingSquare(ColorType color) {
+		long king = getBitboard(PieceType.KING, color);
+		return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+	}
+
+	/**
+	 * Returns every square attacked by the pieces of a color.
+	 * <p>
+	 * The attack map of each color is computed at most once per position and kept for every made move,
+	 * so after {@link #unmakeMove()} the maps of the previous position are available again without any work.
+	 *
+	 * @param attacker the color of the attacking pieces
+	 * @return a bitboard with a bit set for every attacked square
+	 */
+	public long getAttacks(ColorType attacker) {
+		int bit = 1 << attacker.ordinal(), index = this.undoCount * 2 + attacker.ordinal();
+		if((this.attackValid[this.undoCount] & bit) == 0) {
+			this.attackMaps[index] = MoveGenerator.getAttacks(this, attacker);
+			this.attackValid[this.undoCount] |= bit;
+		}
+		return this.attackMaps[index];
+	}
+
+	/**
+	 * Checks whether any of the given squares is attacked, using the attack map of the attacker.
+	 *
+	 * @param squares a bitboard with the squares to check
+	 * @param attacker the color of the attacking pieces
+	 * @return {@code true} if at least one of the squares is attacked
+	 */
+	public boolean isAttacked(long squares, ColorType attacker) {
+		return (getAttacks(attacker) & squares) != 0;
+	}
+
+	/**
+	 * Checks whether a square is attacked by any piece of the given color.
+	 *
+	 * @param square the square index (0 - 63)
+	 * @param attacker the color of the attacking pieces
+	 * @return {@code true} if at least one piece of {@code attacker} attacks the square
+	 */
+	public boolean isSquareAttacked(int square, ColorType attacker) {
+		long occupied = this.occupied;
+		long queens = getBitboard(PieceType.QUEEN, attacker);
+
+		return (Attacks.pawn(square, ColorType.getOpponent(attacker)) & getBitboard(PieceType.PAWN, attacker)) != 0
+				|| (Attacks.knight(square) & getBitboard(PieceType.KNIGHT, attacker)) != 0
+				|| (Attacks.king(square) & getBitboard(PieceType.KING, attacker)) != 0
+				|| (Attacks.rook(square, occupied) & (getBitboard(PieceType.ROOK, attacker) | queens)) != 0
+				|| (Attacks.bishop(square, occupied) & (getBitboard(PieceType.BISHOP, attacker) | queens)) != 0;
+	}
+
+	/**
+	 * Finds the pieces of both colors that attack a square, with the sliding pieces seeing through
+	 * the squares missing from {@code occupied} (e.g. pieces already exchanged on the square).
+	 *
+	 * @param square the square index (0 - 63)
+	 * @param occupied the occupied squares, which block the rays
+	 * @return a bitboard with the attacking pieces, including pieces not in {@code occupied}
+	 */
+	public long getAttackers(int square, long occupied) {
+		long queens = getBitboard(PieceType.QUEEN, ColorType.WHITE) | getBitboard(PieceType.QUEEN, ColorType.BLACK);
+		long rooks = getBitboard(PieceType.ROOK, ColorType.WHITE) | getBitboard(PieceType.ROOK, ColorType.BLACK) | queens;
+		long bishops = getBitboard(PieceType.BISHOP, ColorType.WHITE) | getBitboard(PieceType.BISHOP, ColorType.BLACK) | queens;
+
+		return (Attacks.pawn(square, ColorType.BLACK) & getBitboard(PieceType.PAWN, ColorType.WHITE))
+				| (Attacks.pawn(square, ColorType.WHITE) & getBitboard(PieceType.PAWN, ColorType.BLACK))
+				| (Attacks.knight(square) & (getBitboard(PieceType.KNIGHT, ColorType.WHITE) | getBitboard(PieceType.KNIGHT, ColorType.BLACK)))
+				| (Attacks.king(square) & (getBitboard(PieceType.KING, ColorType.WHITE) | getBitboard(PieceType.KING, ColorType.BLACK)))
+				| (Attacks.rook(square, occupied) & rooks)
+				| (Attacks.bishop(square, occupied) & bishops);
+	}
+
+	/**
+	 * Checks whether the King of the given color is attacked.
+	 *
+	 * @param color the color of the King
+	 * @return {@code true} if the King is in check; {@code false} otherwise or if there is no King.
+	 */
+	public boolean isKingAttacked(ColorType color) {
+		long king = getBitboard(PieceType.KING, color);
+		return king != 0 && isAttacked(king, ColorType.getOpponent(color));
 	}
 
 	/**
 	 * Calculates all possible moves for the opponent's pieces.
 	 *
 	 * @param currentPlayer the color of the current player.
-	 * @return a {@code boolean[][]} where {@code true} cells indicate squares that are threatened by the opponent.
+	 * @return a {@code MoveType[][]} where {@code TAKE} cells indicate squares that are threatened by the opponent.
 	 */
 	public MoveType[][] getOpponentMoves(ColorType currentPlayer) {
 		MoveType[][] moves = new MoveType[8][8];
-		for(MoveType[] r : moves)
-			Arrays.fill(r, MoveType.NONE);
-
-		for (Piece piece : this.pieces.stream().filter(piece -> piece.getColor() != currentPlayer).toList()) {
-			MoveType[][] pieceMoves = piece.getMoves(this);
-			for (int i = 0; i < 8; i++)
-				for (int j = 0; j < 8; j++)
-					moves[i][j] = pieceMoves[i][j] == MoveType.TAKE ? MoveType.TAKE : moves[i][j];
-		}
+		long attacks = getAttacks(ColorType.getOpponent(currentPlayer));
+
+		for (int i = 0; i < 8; i++)
+			for (int j = 0; j < 8; j++)
+				moves[i][j] = (attacks & (1L << (i * ColumnSize + j))) != 0 ? MoveType.TAKE : MoveType.NONE;
 
 		return moves;
 	}
 
 	/**
-	 * Moves a chess piece to a new position on the board. The piece is identified by its index in the list of pieces.
+	 * Converts a movement between two positions into a packed move, following the movement rules of the piece.
+	 * <p>
+	 * Castling is requested by moving the King onto one of its own unmoved Rooks and
+	 * an en passant capture by moving the Pawn onto the Pawn it captures.
+	 * Pawns reaching the last row are promoted to a Queen.
+	 *
+	 * @param pieceRow the current row of the piece (1–8)
+	 * @param pieceColumn the current column of the piece (A–H)
+	 * @param row the target row (1–8)
+	 * @param column the target column (A–H)
+	 * @return the packed {@link Move}, or {@link Move#NONE} if the piece cannot move there.
+	 * @implNote The returned move is legal if the piece belongs to the side to move,
+	 *           otherwise it may still leave the own King in check.
+	 */
+	public int getMove(int pieceRow, char pieceColumn, int row, char column) {
+		int from = getSquare(pieceRow, pieceColumn), to = getSquare(row, column);
+		if(from == -1 || to == -1 || this.squares[from] == null)
+			return Move.NONE;
+
+		if(this.moveBuffer == null)
+			this.moveBuffer = new int[MoveGenerator.MAX_MOVES];
+		int[] moves = this.moveBuffer;
+		int n = MoveGenerator.generateFor(this, this.squares[from].getColor(), moves);
+		for(int i = 0; i < n; i++) {
+			int move = moves[i];
+			if(Move.getFrom(move) == from && MoveGenerator.getSelectionSquare(move) == to
+					&& (!Move.isPromotion(move) || Move.getPromotion(move) == PieceType.QUEEN))
+				return move;
+		}
+
+		return Move.NONE;
+	}
+
+	/**
+	 * Makes a packed move on the board and records how to revert it.
 	 *
+	 * @param move the packed {@link Move} to make
+	 * @implNote The move is expected to be valid for the current position, no validation is done.
+	 */
+	public void makeMove(int move) {
+		int from = Move.getFrom(move), to = Move.getTo(move), flag = Move.getFlag(move);
+		Piece p = this.squares[from];
+
+		if(this.undoCount == this.undoMoves.length)
+			growUndo();
+
+		int i = this.undoCount++;
+		this.undoMoves[i] = move;
+		this.undoStates[i] = this.castlingRights | ((this.epSquare + 1) << 4) | (p.getFlags() << 11) | (this.halfmoveClock << 15);
+		if(this.historyCount == this.history.length)
+			this.history = Arrays.copyOf(this.history, this.history.length * 2);
+		this.history[this.historyCount++] = this.hash;
+		this.hash ^= epKey() ^ Zobrist.castling(this.castlingRights);
+		this.undoMoved[i] = p;
+		this.undoLast[i] = this.last_piece;
+
+		// the previous double push can no longer be taken en passant
+		if(this.epSquare != -1) {
+			Piece ep = this.squares[this.epSquare ^ 8];
+			if(ep != null)
+				ep.setFlags(ep.getFlags() & ~Pawn.EN_PASSANT);
+		}
+
+		Piece captured = null;
+		if(flag == Move.FLAG_EN_PASSANT) {
+			captured = this.squares[to ^ 8];
+			remove(captured, to ^ 8);
+		} else if(Move.isCapture(move)) {
+			captured = this.squares[to];
+			remove(captured, to);
+		}
+		this.undoCaptured[i] = captured;
+
+		Piece moved = p;
+		if(Move.isPromotion(move)) {
+			remove(p, from);
+			moved = PieceFactory.createPiece(Move.getPromotion(move), getSquareRow(to), getSquareColumn(to), p.getColor(), true);
+			place(moved);
+		} else
+			relocate(p, from, to);
+
+		if(flag == Move.FLAG_KING_CASTLE)
+			moveRook(from + 3, from + 1, 1);
+		else if(flag == Move.FLAG_QUEEN_CASTLE)
+			moveRook(from - 4, from - 1, 1);
+
+		switch(p.getType()) {
+			case KING, ROOK -> p.setFlags(1);
+			case PAWN -> p.setFlags(flag == Move.FLAG_DOUBLE_PUSH ? Pawn.EN_PASSANT : 0);
+		}
+
+		this.castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		this.epSquare = flag == Move.FLAG_DOUBLE_PUSH ? (from + to) >>> 1 : -1;
+		this.halfmoveClock = captured != null || p.getType() == PieceType.PAWN ? 0 : this.halfmoveClock + 1;
+		if(this.sideToMove == ColorType.BLACK)
+			this.fullmoveNumber++;
+		this.sideToMove = ColorType.getOpponent(this.sideToMove);
+		this.hash ^= Zobrist.side() ^ Zobrist.castling(this.castlingRights) ^ epKey();
+		this.last_piece = moved;
+		this.attackValid[this.undoCount] = 0;
+	}
+
+	/**
+	 * Reverts the last move made with {@link #makeMove(int)}.
+	 *
+	 * @return the packed {@link Move} that was reverted, or {@link Move#NONE} if there was no move to revert.
+	 */
+	public int unmakeMove() {
+		if(this.undoCount == 0)
+			return Move.NONE;
+
+		int i = --this.undoCount;
+		int move = this.undoMoves[i], state = this.undoStates[i];
+		int from = Move.getFrom(move), to = Move.getTo(move), flag = Move.getFlag(move);
+		Piece p = this.undoMoved[i];
+
+		if(flag == Move.FLAG_KING_CASTLE)
+			moveRook(from + 1, from + 3, 0);
+		else if(flag == Move.FLAG_QUEEN_CASTLE)
+			moveRook(from - 1, from - 4, 0);
+
+		if(Move.isPromotion(move)) {
+			remove(this.squares[to], to);
+			place(p);
+		} else
+			relocate(p, to, from);
+		p.setFlags((state >>> 11) & 0xF);
+
+		Piece captured = this.undoCaptured[i];
+		if(captured != null)
+			place(captured);
+
+		this.castlingRights = state & 0xF;
+		this.epSquare = ((state >>> 4) & 0x7F) - 1;
+		this.halfmoveClock = state >>> 15;
+		if(this.epSquare != -1) {
+			Piece ep = this.squares[this.epSquare ^ 8];
+			if(ep != null)
+				ep.setFlags(ep.getFlags() | Pawn.EN_PASSANT);
+		}
+
+		this.sideToMove = ColorType.getOpponent(this.sideToMove);
+		if(this.sideToMove == ColorType.BLACK)
+			this.fullmoveNumber--;
+		this.hash = this.history[--this.historyCount];
+		this.last_piece = this.undoLast[i];
+
+		this.undoMoved[i] = this.undoCaptured[i] = this.undoLast[i] = null;
+		return move;
+	}
+
+	/**
+	 * Forgets all but the last moves made, which can no longer be reverted, so a long game keeps a bounded
+	 * undo stack. The keys of the positions since the last capture or pawn move are kept, so repetitions are
+	 * still found.
+	 *
+	 * @param keep the number of moves that can still be reverted
+	 * @implNote The stacks shrink back by halves while a quarter of them is used, each move taking
+	 *           {@link #MOVE_BYTES} bytes.
+	 */
+	public void forgetMoves(int keep) {
+		int drop = this.undoCount - Math.max(0, keep);
+		if(drop <= 0)
+			return;
+
+		int count = this.undoCount - drop;
+		int capacity = this.undoMoves.length;
+		while(capacity / 2 >= Math.max(UNDO_CAPACITY, count * 2))
+			capacity /= 2;
+		boolean shrink = capacity != this.undoMoves.length;
+
+		int[] moves = shrink ? new int[capacity] : this.undoMoves, states = shrink ? new int[capacity] : this.undoStates;
+		Piece[] moved = shrink ? new Piece[capacity] : this.undoMoved, captured = shrink ? new Piece[capacity] : this.undoCaptured;
+		Piece[] last = shrink ? new Piece[capacity] : this.undoLast;
+		System.arraycopy(this.undoMoves, drop, moves, 0, count);
+		System.arraycopy(this.undoStates, drop, states, 0, count);
+		System.arraycopy(this.undoMoved, drop, moved, 0, count);
+		System.arraycopy(this.undoCaptured, drop, captured, 0, count);
+		System.arraycopy(this.undoLast, drop, last, 0, count);
+		if(!shrink) {
+			Arrays.fill(this.undoMoved, count, this.undoCount, null);
+			Arrays.fill(this.undoCaptured, count, this.undoCount, null);
+			Arrays.fill(this.undoLast, count, this.undoCount, null);
+		} else {
+			this.attackMaps = new long[(capacity + 1) * 2];
+			this.attackValid = new int[capacity + 1];
+		}
+		this.undoMoves = moves;
+		this.undoStates = states;
+		this.undoMoved = moved;
+		this.undoCaptured = captured;
+		this.undoLast = last;
+		this.undoCount = count;
+		// the attack maps are kept by the number of moves made, which changed
+		this.attackValid[count] = 0;
+
+		int keys = Math.max(this.historyCount - drop, Math.min(this.historyCount, this.halfmoveClock));
+		int length = this.history.length;
+		while(length / 2 >= Math.max(UNDO_CAPACITY, keys * 2))
+			length /= 2;
+		long[] history = length != this.history.length ? new long[length] : this.history;
+		System.arraycopy(this.history, this.historyCount - keys, history, 0, keys);
+		this.history = history;
+		this.historyCount = keys;
+	}
+
+	private void moveRook(int from, int to, int flags) {
+		Piece rook = this.squares[from];
+		relocate(rook, from, to);
+		rook.setFlags(flags);
+	}
+
+	/**
+	 * Writes the pieces and the state of the position, then only the undo records of the moves made and the keys
+	 * of the positions before them. The bitboards, keys, scores and attack maps are derived again when read.
+	 */
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(Arrays.copyOf(this.undoMoves, this.undoCount));
+		out.writeObject(Arrays.copyOf(this.undoStates, this.undoCount));
+		out.writeObject(Arrays.copyOf(this.undoMoved, this.undoCount));
+		out.writeObject(Arrays.copyOf(this.undoCaptured, this.undoCount));
+		out.writeObject(Arrays.copyOf(this.undoLast, this.undoCount));
+		out.writeObject(Arrays.copyOf(this.history, this.historyCount));
+	}
+
+	@Serial
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		if(fields.getObjectStreamClass().getField("pieces") != null) {
+			readLegacy(fields);
+			return;
+		}
+
+		this.squares = (Piece[]) fields.get("squares", null);
+		this.last_piece = (Piece) fields.get("last_piece", null);
+		this.sideToMove = (ColorType) fields.get("sideToMove", ColorType.WHITE);
+		this.castlingRights = fields.get("castlingRights", 0);
+		this.epSquare = fields.get("epSquare", -1);
+		this.halfmoveClock = fields.get("halfmoveClock", 0);
+		this.fullmoveNumber = fields.get("fullmoveNumber", 1);
+		int[] moves = (int[]) in.readObject(), states = (int[]) in.readObject();
+		Piece[] moved = (Piece[]) in.readObject(), captured = (Piece[]) in.readObject(), last = (Piece[]) in.readObject();
+		long[] history = (long[]) in.readObject();
+		if(this.squares == null || this.squares.length != SQUARES || states.length != moves.length
+				|| moved.length != moves.length || captured.length != moves.length || last.length != moves.length)
+			throw new InvalidObjectException("Bad board");
+
+		restore(this.squares, moves, states, moved, captured, last, history);
+	}
+
+	/**
+	 * Reads a board saved by the first version, which only kept the list of its pieces and the last one moved.
+	 * The castling rights and the en passant square are derived from the pieces, and the side to move is set
+	 * by the game afterwards.
+	 */
+	private void readLegacy(ObjectInputStream.GetField fields) throws IOException, ClassNotFoundException {
+		if(!(fields.get("pieces", null) instanceof List<?> pieces))
+			throw new InvalidObjectException("Bad board");
+		Piece[] squares = new Piece[SQUARES];
+		for(Object o : pieces) {
+			int square = o instanceof Piece piece ? getSquare(piece.getRow(), piece.getColumn()) : -1;
+			if(square < 0 || squares[square] != null)
+				throw new InvalidObjectException("Bad board");
+			squares[square] = (Piece) o;
+		}
+
+		this.last_piece = (Piece) fields.get("last_piece", null);
+		this.sideToMove = ColorType.WHITE;
+		this.epSquare = -1;
+		this.fullmoveNumber = 1;
+		restore(squares, new int[0], new int[0], new Piece[0], new Piece[0], new Piece[0], new long[0]);
+		this.castlingRights = computeCastlingRights();
+
+		// the first version never cleared the flag of a Pawn that pushed two squares, only the last one moved counts
+		for(Piece piece : this.squares)
+			if(piece != null && piece != this.last_piece && piece.getType() == PieceType.PAWN)
+				piece.setFlags(piece.getFlags() & ~Pawn.EN_PASSANT);
+		if(this.last_piece != null && this.last_piece.getType() == PieceType.PAWN
+				&& (this.last_piece.getFlags() & Pawn.EN_PASSANT) != 0)
+			this.epSquare = getSquare(this.last_piece.getRow(), this.last_piece.getColumn()) ^ 8;
+		this.hash = computeHash();
+	}
+
+	/**
+	 * Derives the bitboards, keys and scores from the pieces on the squares, and sets the undo records and the
+	 * keys of the previous positions, after the board was read.
+	 */
+	private void restore(Piece[] squares, int[] moves, int[] states, Piece[] moved, Piece[] captured, Piece[] last,
+			long[] history) {
+		this.squares = new Piece[SQUARES];
+		this.bitboards = new long[PIECE_TYPES * ColorType.values().length];
+		this.occupancy = new long[ColorType.values().length];
+		initUndo();
+		for(Piece piece : squares)
+			if(piece != null)
+				place(piece);
+		this.hash = computeHash();
+
+		while(this.undoMoves.length < moves.length)
+			growUndo();
+		this.undoCount = moves.length;
+		System.arraycopy(moves, 0, this.undoMoves, 0, moves.length);
+		System.arraycopy(states, 0, this.undoStates, 0, moves.length);
+		System.arraycopy(moved, 0, this.undoMoved, 0, moves.length);
+		System.arraycopy(captured, 0, this.undoCaptured, 0, moves.length);
+		System.arraycopy(last, 0, this.undoLast, 0, moves.length);
+		if(history.length > this.history.length)
+			this.history = new long[history.length + UNDO_CAPACITY];
+		System.arraycopy(history, 0, this.history, 0, history.length);
+		this.historyCount = history.length;
+	}
+
+	private void growUndo() {
+		int capacity = this.undoMoves.length * 2;
+		this.undoMoves = Arrays.copyOf(this.undoMoves, capacity);
+		this.undoStates = Arrays.copyOf(this.undoStates, capacity);
+		this.undoMoved = Arrays.copyOf(this.undoMoved, capacity);
+		this.undoCaptured = Arrays.copyOf(this.undoCaptured, capacity);
+		this.undoLast = Arrays.copyOf(this.undoLast, capacity);
+		this.attackMaps = Arrays.copyOf(this.attackMaps, (capacity + 1) * 2);
+		this.attackValid = Arrays.copyOf(this.attackValid, capacity + 1);
+	}
+
+	/**
+	 * Moves a chess piece to a new position on the board, following the movement rules of the piece.
+	 *
+	 * @param pieceRow the current row of the piece (1–8)
+	 * @param pieceColumn the current column of the piece (A–H)
 	 * @param row    the target row position to move the piece to.
 	 * @param column the target column position to move the piece to (a character from 'a' to 'h').
 	 * @return a {@link MoveType} defining the success of the movement.
+	 * @see #getMove(int, char, int, char)
 	 */
 	public MoveType movePiece(int pieceRow, char pieceColumn, int row, char column) {
-		Piece p = this.pieces.stream().filter(piece -> piece.getRow() == pieceRow && piece.getColumn() == Character.toUpperCase(pieceColumn)).findFirst().orElse(null);
-		if(p == null) return MoveType.NONE;
+		int move = getMove(pieceRow, pieceColumn, row, column);
+		if(move == Move.NONE) return MoveType.NONE;
 
-		MoveType res = p.move(row,column, this);
-		this.last_piece = p;
+		makeMove(move);
 
-		return res;
+		return Move.getMoveType(move);
 	}
 
 
@@ -190,8 +1143,9 @@ public class Board implements Serializable {
 	public String toString() {
 		StringBuilder res = new StringBuilder();
 
-		for(Piece p : this.pieces)
-			res.append(p.toString()).append(ChessGame.DIVIDER);
+		for(Piece p : this.squares)
+			if(p != null)
+				res.append(p.toString()).append(ChessGame.DIVIDER);
 
 		return res.toString();
 	}
@@ -34,4 +34,14 @@ public enum ColorType {
 		};
 	}
 
+	/**
+	 * Returns the opponent of the specified {@link ColorType}.
+	 *
+	 * @param type the {@link ColorType} of the player
+	 * @return {@link #BLACK} if the type is {@link #WHITE}, {@link #WHITE} if {@link #BLACK}
+	 */
+	public static ColorType getOpponent(ColorType type) {
+		return type == WHITE ? BLACK : WHITE;
+	}
+
 }
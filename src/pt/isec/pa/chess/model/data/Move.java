@@ -0,0 +1,127 @@
+package pt.isec.pa.chess.model.data;
+
+/**
+ * Utility class for packed moves.
+ * <p>
+ * A move is packed in the lower 16 bits of an {@code int}:
+ * <ul>
+ *     <li>bits 0 - 5: the origin square (0 - 63)</li>
+ *     <li>bits 6 - 11: the destination square (0 - 63)</li>
+ *     <li>bits 12 - 15: the move flag (see the {@code FLAG_*} constants)</li>
+ * </ul>
+ * Squares follow the {@link Board#getSquare(int, char)} indexing. {@link #NONE} never represents a valid move.
+ */
+public final class Move {
+
+	public static final int NONE = 0;
+
+	public static final int FLAG_QUIET = 0;
+	public static final int FLAG_DOUBLE_PUSH = 1;
+	public static final int FLAG_KING_CASTLE = 2;
+	public static final int FLAG_QUEEN_CASTLE = 3;
+	public static final int FLAG_CAPTURE = 4;
+	public static final int FLAG_EN_PASSANT = 5;
+	public static final int FLAG_PROMOTION = 8;
+	public static final int FLAG_PROMOTION_CAPTURE = 12;
+
+	private static final PieceType[] PROMOTIONS = { PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN };
+
+	private Move() {}
+
+	/**
+	 * Packs a move.
+	 *
+	 * @param from the origin square (0 - 63)
+	 * @param to the destination square (0 - 63)
+	 * @param flag the move flag
+	 * @return the packed move
+	 */
+	public static int create(int from, int to, int flag) {
+		return from | (to << 6) | (flag << 12);
+	}
+
+	/**
+	 * Packs a promotion move.
+	 *
+	 * @param from the origin square (0 - 63)
+	 * @param to the destination square (0 - 63)
+	 * @param capture {@code true} if the promotion captures a piece
+	 * @param type the type the pawn is promoted to (Knight, Bishop, Rook or Queen)
+	 * @return the packed move
+	 * @throws IllegalArgumentException if the piece type is not a valid promotion
+	 */
+	public static int createPromotion(int from, int to, boolean capture, PieceType type) {
+		int promotion = switch(type) {
+			case KNIGHT -> 0;
+			case BISHOP -> 1;
+			case ROOK -> 2;
+			case QUEEN -> 3;
+			default -> throw new IllegalArgumentException("Invalid promotion '" + type + "'");
+		};
+
+		return create(from, to, (capture ? FLAG_PROMOTION_CAPTURE : FLAG_PROMOTION) | promotion);
+	}
+
+	public static int getFrom(int move) { return move & 0x3F; }
+
+	public static int getTo(int move) { return (move >>> 6) & 0x3F; }
+
+	public static int getFlag(int move) { return (move >>> 12) & 0xF; }
+
+	public static boolean isCapture(int move) { return (getFlag(move) & FLAG_CAPTURE) != 0; }
+
+	public static boolean isPromotion(int move) { return (getFlag(move) & FLAG_PROMOTION) != 0; }
+
+	public static boolean isCastle(int move) {
+		int flag = getFlag(move);
+		return flag == FLAG_KING_CASTLE || flag == FLAG_QUEEN_CASTLE;
+	}
+
+	/**
+	 * @param move the packed move
+	 * @return the {@link PieceType} the pawn is promoted to, or {@code null} if the move is not a promotion
+	 */
+	public static PieceType getPromotion(int move) {
+		return isPromotion(move) ? PROMOTIONS[getFlag(move) & 3] : null;
+	}
+
+	/**
+	 * Converts a packed move into the {@link MoveType} reported to the game.
+	 *
+	 * @param move the packed move
+	 * @return the corresponding {@link MoveType}
+	 */
+	public static MoveType getMoveType(int move) {
+		if(move == NONE) return MoveType.NONE;
+		if(isPromotion(move)) return MoveType.EVOLVE;
+		if(getFlag(move) == FLAG_EN_PASSANT) return MoveType.ENPASSAT;
+		if(isCapture(move)) return MoveType.TAKE;
+		return MoveType.MOVE;
+	}
+
+	/**
+	 * Returns the move in coordinate notation (e.g. {@code "e2e4"} or {@code "a7a8q"}).
+	 *
+	 * @param move the packed move
+	 * @return the textual representation of the move
+	 */
+	public static String toString(int move) {
+		if(move == NONE) return "0000";
+
+		StringBuilder sb = new StringBuilder(5);
+		sb.append(Character.toLowerCase(Board.getSquareColumn(getFrom(move)))).append(Board.getSquareRow(getFrom(move)));
+		sb.append(Character.toLowerCase(Board.getSquareColumn(getTo(move)))).append(Board.getSquareRow(getTo(move)));
+
+		PieceType promotion = getPromotion(move);
+		if(promotion != null)
+			sb.append(switch(promotion) {
+				case KNIGHT -> 'n';
+				case BISHOP -> 'b';
+				case ROOK -> 'r';
+				default -> 'q';
+			});
+
+		return sb.toString();
+	}
+
+}
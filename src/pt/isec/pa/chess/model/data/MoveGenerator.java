@@ -0,0 +1,461 @@
+package pt.isec.pa.chess.model.data;
+
+import java.util.Arrays;
+
+/**
+ * Utility class that generates packed moves (see {@link Move}) from the bitboards of a {@link Board}.
+ * <p>
+ * Moves are written into a buffer supplied by the caller, so generating every move of a position
+ * is a single pass over the bitboards and does not allocate. A buffer of {@link #MAX_MOVES} entries
+ * is enough for any position.
+ */
+public final class MoveGenerator {
+
+	public static final int MAX_MOVES = 256;
+
+	/** Captures, en passant captures and promotions. */
+	public static final int CAPTURES = 1;
+	/** Every move that is not in {@link #CAPTURES}, including castling. */
+	public static final int QUIETS = 2;
+	public static final int ALL = CAPTURES | QUIETS;
+
+	private static final int E1 = 4, E8 = 60;
+	private static final long WHITE_KING_PATH = 0x60L, WHITE_QUEEN_PATH = 0x0EL;
+	private static final long BLACK_KING_PATH = WHITE_KING_PATH << 56, BLACK_QUEEN_PATH = WHITE_QUEEN_PATH << 56;
+	private static final long WHITE_QUEEN_SAFE = 0x0CL, BLACK_QUEEN_SAFE = WHITE_QUEEN_SAFE << 56;
+
+	private MoveGenerator() {}
+
+	/**
+	 * Generates every pseudo-legal move of the side to move.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param moves the buffer the moves are written to
+	 * @return the number of moves written
+	 */
+	public static int generate(Board board, int[] moves) {
+		return generate(board, board.getSideToMove(), moves, 0);
+	}
+
+	/**
+	 * Generates every pseudo-legal move of the pieces of a color.
+	 * <p>
+	 * Pseudo-legal moves follow the movement rules of the pieces but may leave the own King in check.
+	 * Castling already requires the King not to be in check nor to cross an attacked square.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param color the color of the pieces to move
+	 * @param moves the buffer the moves are written to
+	 * @param offset the index of the buffer where the first move is written
+	 * @return the index after the last move written
+	 */
+	public static int generate(Board board, ColorType color, int[] moves, int offset) {
+		ColorType opponent = ColorType.getOpponent(color);
+		long own = board.getOccupancy(color), enemy = board.getOccupancy(opponent);
+		long occupied = own | enemy, empty = ~occupied;
+		int n = offset;
+
+		n = generatePawnMoves(board, color, enemy, empty, moves, n);
+
+		for(long b = board.getBitboard(PieceType.KNIGHT, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.knight(from) & ~own, enemy);
+		}
+		for(long b = board.getBitboard(PieceType.BISHOP, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.bishop(from, occupied) & ~own, enemy);
+		}
+		for(long b = board.getBitboard(PieceType.ROOK, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.rook(from, occupied) & ~own, enemy);
+		}
+		for(long b = board.getBitboard(PieceType.QUEEN, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.queen(from, occupied) & ~own, enemy);
+		}
+		for(long b = board.getBitboard(PieceType.KING, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.king(from) & ~own, enemy);
+		}
+
+		return generateCastling(board, color, occupied, moves, n);
+	}
+
+	private static int generatePawnMoves(Board board, ColorType color, long enemy, long empty, int[] moves, int n) {
+		long pawns = board.getBitboard(PieceType.PAWN, color);
+		boolean white = color == ColorType.WHITE;
+		int forward = white ? 8 : -8;
+		long lastRank = white ? Attacks.RANK_8 : Attacks.RANK_1;
+
+		long single = white ? (pawns << 8) & empty : (pawns >>> 8) & empty;
+		long dbl = white ? ((single & Attacks.RANK_3) << 8) & empty : ((single & Attacks.RANK_6) >>> 8) & empty;
+
+		for(long b = single & ~lastRank; b != 0; b &= b - 1) {
+			int to = Long.numberOfTrailingZeros(b);
+			moves[n++] = Move.create(to - forward, to, Move.FLAG_QUIET);
+		}
+		for(long b = dbl; b != 0; b &= b - 1) {
+			int to = Long.numberOfTrailingZeros(b);
+			moves[n++] = Move.create(to - 2 * forward, to, Move.FLAG_DOUBLE_PUSH);
+		}
+		for(long b = single & lastRank; b != 0; b &= b - 1) {
+			int to = Long.numberOfTrailingZeros(b);
+			n = addPromotions(moves, n, to - forward, to, false);
+		}
+
+		int ep = color == board.getSideToMove() ? board.getEnPassantSquare() : -1;
+		for(long b = pawns; b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			long attacks = Attacks.pawn(from, color);
+
+			for(long t = attacks & enemy; t != 0; t &= t - 1) {
+				int to = Long.numberOfTrailingZeros(t);
+				if(((1L << to) & lastRank) != 0)
+					n = addPromotions(moves, n, from, to, true);
+				else
+					moves[n++] = Move.create(from, to, Move.FLAG_CAPTURE);
+			}
+
+			if(ep != -1 && (attacks & (1L << ep)) != 0)
+				moves[n++] = Move.create(from, ep, Move.FLAG_EN_PASSANT);
+		}
+
+		return n;
+	}
+
+	private static int generateCastling(Board board, ColorType color, long occupied, int[] moves, int n) {
+		int rights = board.getCastlingRights();
+		ColorType opponent = ColorType.getOpponent(color);
+
+		if(color == ColorType.WHITE) {
+			if((rights & Board.CASTLE_WHITE_KING) != 0 && (occupied & WHITE_KING_PATH) == 0 && canCastle(board, E1, 1, opponent))
+				moves[n++] = Move.create(E1, E1 + 2, Move.FLAG_KING_CASTLE);
+			if((rights & Board.CASTLE_WHITE_QUEEN) != 0 && (occupied & WHITE_QUEEN_PATH) == 0 && canCastle(board, E1, -1, opponent))
+				moves[n++] = Move.create(E1, E1 - 2, Move.FLAG_QUEEN_CASTLE);
+		} else {
+			if((rights & Board.CASTLE_BLACK_KING) != 0 && (occupied & BLACK_KING_PATH) == 0 && canCastle(board, E8, 1, opponent))
+				moves[n++] = Move.create(E8, E8 + 2, Move.FLAG_KING_CASTLE);
+			if((rights & Board.CASTLE_BLACK_QUEEN) != 0 && (occupied & BLACK_QUEEN_PATH) == 0 && canCastle(board, E8, -1, opponent))
+				moves[n++] = Move.create(E8, E8 - 2, Move.FLAG_QUEEN_CASTLE);
+		}
+
+		return n;
+	}
+
+	/**
+	 * The King cannot castle out of check nor through an attacked square
+	 * (the destination square is checked like any other King move).
+	 */
+	private static boolean canCastle(Board board, int king, int step, ColorType opponent) {
+		return !board.isAttacked((1L << king) | (1L << (king + step)), opponent);
+	}
+
+	/**
+	 * Generates every legal move of the side to move.
+	 * <p>
+	 * The checking pieces, the pinned pieces and the squares that block or capture a check are computed once
+	 * for the position, so every move written is legal without making it on the board.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param moves the buffer the moves are written to
+	 * @param offset the index of the buffer where the first move is written
+	 * @return the index after the last move written
+	 */
+	public static int generateLegal(Board board, int[] moves, int offset) {
+		return generateLegal(board, moves, offset, ALL);
+	}
+
+	/**
+	 * Generates the legal moves of the side to move of the given kinds, so a search can try the captures
+	 * and only generate the quiet moves if none of the captures is good enough.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param moves the buffer the moves are written to
+	 * @param offset the index of the buffer where the first move is written
+	 * @param kinds {@link #CAPTURES}, {@link #QUIETS} or {@link #ALL}
+	 * @return the index after the last move written
+	 */
+	public static int generateLegal(Board board, int[] moves, int offset, int kinds) {
+		ColorType color = board.getSideToMove(), opponent = ColorType.getOpponent(color);
+		long own = board.getOccupancy(color), enemy = board.getOccupancy(opponent);
+		long occupied = own | enemy;
+		long kingBit = board.getBitboard(PieceType.KING, color);
+		int n = offset;
+
+		// without a King every pseudo-legal move is legal
+		if(kingBit == 0)
+			return filter(moves, offset, generate(board, color, moves, offset), kinds);
+
+		long kind = ((kinds & CAPTURES) != 0 ? enemy : 0) | ((kinds & QUIETS) != 0 ? ~occupied : 0);
+
+		int king = Long.numberOfTrailingZeros(kingBit);
+		long enemyRooks = board.getBitboard(PieceType.ROOK, opponent) | board.getBitboard(PieceType.QUEEN, opponent);
+		long enemyBishops = board.getBitboard(PieceType.BISHOP, opponent) | board.getBitboard(PieceType.QUEEN, opponent);
+
+		long checkers = (Attacks.pawn(king, color) & board.getBitboard(PieceType.PAWN, opponent))
+				| (Attacks.knight(king) & board.getBitboard(PieceType.KNIGHT, opponent))
+				| (Attacks.rook(king, occupied) & enemyRooks)
+				| (Attacks.bishop(king, occupied) & enemyBishops);
+
+		// the King cannot step back along the ray of a sliding piece, so it does not block the attacks
+		long danger = getAttacks(board, opponent, occupied & ~kingBit);
+		n = addMoves(moves, n, king, Attacks.king(king) & ~own & ~danger & kind, enemy);
+
+		if(Long.bitCount(checkers) > 1)
+			return n;
+
+		long target = ~own;
+		if(checkers != 0)
+			target &= checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+
+		long pinned = 0;
+		long snipers = (Attacks.rook(king, enemy) & enemyRooks) | (Attacks.bishop(king, enemy) & enemyBishops);
+		for(long b = snipers; b != 0; b &= b - 1) {
+			long blockers = Attacks.between(king, Long.numberOfTrailingZeros(b)) & occupied;
+			if(Long.bitCount(blockers) == 1)
+				pinned |= blockers & own;
+		}
+
+		for(long b = board.getBitboard(PieceType.KNIGHT, color) & ~pinned; b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.knight(from) & target & kind, enemy);
+		}
+		for(long b = board.getBitboard(PieceType.BISHOP, color) | board.getBitboard(PieceType.QUEEN, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.bishop(from, occupied) & target & kind & pinMask(pinned, king, from), enemy);
+		}
+		for(long b = board.getBitboard(PieceType.ROOK, color) | board.getBitboard(PieceType.QUEEN, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			n = addMoves(moves, n, from, Attacks.rook(from, occupied) & target & kind & pinMask(pinned, king, from), enemy);
+		}
+
+		n = generateLegalPawnMoves(board, color, king, target, pinned, checkers, enemy, occupied, kinds, moves, n);
+
+		if(checkers == 0 && (kinds & QUIETS) != 0)
+			n = generateLegalCastling(board, color, occupied, danger, moves, n);
+
+		return n;
+	}
+
+	/**
+	 * A pinned piece can only move along the line between its King and the pinning piece.
+	 */
+	private static long pinMask(long pinned, int king, int from) {
+		return (pinned & (1L << from)) == 0 ? -1L : Attacks.line(king, from);
+	}
+
+	private static int generateLegalPawnMoves(Board board, ColorType color, int king, long target, long pinned, long checkers,
+											  long enemy, long occupied, int kinds, int[] moves, int n) {
+		boolean captures = (kinds & CAPTURES) != 0, quiets = (kinds & QUIETS) != 0;
+		boolean white = color == ColorType.WHITE;
+		int forward = white ? 8 : -8;
+		long lastRank = white ? Attacks.RANK_8 : Attacks.RANK_1;
+		long startRank = white ? Attacks.RANK_2 : Attacks.RANK_7;
+		int ep = board.getEnPassantSquare();
+
+		for(long b = board.getBitboard(PieceType.PAWN, color); b != 0; b &= b - 1) {
+			int from = Long.numberOfTrailingZeros(b);
+			long allowed = target & pinMask(pinned, king, from);
+
+			int to = from + forward;
+			if((occupied & (1L << to)) == 0) {
+				if((allowed & (1L << to)) != 0) {
+					if(((1L << to) & lastRank) != 0) {
+						if(captures)
+							n = addPromotions(moves, n, from, to, false);
+					} else if(quiets)
+						moves[n++] = Move.create(from, to, Move.FLAG_QUIET);
+				}
+
+				int dbl = to + forward;
+				if(quiets && ((1L << from) & startRank) != 0 && (occupied & (1L << dbl)) == 0 && (allowed & (1L << dbl)) != 0)
+					moves[n++] = Move.create(from, dbl, Move.FLAG_DOUBLE_PUSH);
+			}
+
+			if(!captures)
+				continue;
+
+			long attacks = Attacks.pawn(from, color);
+			for(long t = attacks & enemy & allowed; t != 0; t &= t - 1) {
+				int capture = Long.numberOfTrailingZeros(t);
+				if(((1L << capture) & lastRank) != 0)
+					n = addPromotions(moves, n, from, capture, true);
+				else
+					moves[n++] = Move.create(from, capture, Move.FLAG_CAPTURE);
+			}
+
+			if(ep != -1 && (attacks & (1L << ep)) != 0 && isLegalEnPassant(board, color, king, from, ep, target, checkers, occupied))
+				moves[n++] = Move.create(from, ep, Move.FLAG_EN_PASSANT);
+		}
+
+		return n;
+	}
+
+	/**
+	 * En passant removes two pieces from the same row, so it is validated by looking at the sliding attacks
+	 * on the King once both pawns are gone and the capturing pawn has landed.
+	 */
+	private static boolean isLegalEnPassant(Board board, ColorType color, int king, int from, int to, long target, long checkers, long occupied) {
+		int captured = to ^ 8;
+		if((target & (1L << to)) == 0 && (checkers & (1L << captured)) == 0)
+			return false;
+
+		ColorType opponent = ColorType.getOpponent(color);
+		long after = (occupied & ~(1L << from) & ~(1L << captured)) | (1L << to);
+		long rooks = board.getBitboard(PieceType.ROOK, opponent) | board.getBitboard(PieceType.QUEEN, opponent);
+		long bishops = board.getBitboard(PieceType.BISHOP, opponent) | board.getBitboard(PieceType.QUEEN, opponent);
+
+		return (Attacks.rook(king, after) & rooks) == 0 && (Attacks.bishop(king, after) & bishops) == 0;
+	}
+
+	private static int generateLegalCastling(Board board, ColorType color, long occupied, long danger, int[] moves, int n) {
+		int rights = board.getCastlingRights();
+
+		if(color == ColorType.WHITE) {
+			if((rights & Board.CASTLE_WHITE_KING) != 0 && (occupied & WHITE_KING_PATH) == 0 && (danger & WHITE_KING_PATH) == 0)
+				moves[n++] = Move.create(E1, E1 + 2, Move.FLAG_KING_CASTLE);
+			if((rights & Board.CASTLE_WHITE_QUEEN) != 0 && (occupied & WHITE_QUEEN_PATH) == 0 && (danger & WHITE_QUEEN_SAFE) == 0)
+				moves[n++] = Move.create(E1, E1 - 2, Move.FLAG_QUEEN_CASTLE);
+		} else {
+			if((rights & Board.CASTLE_BLACK_KING) != 0 && (occupied & BLACK_KING_PATH) == 0 && (danger & BLACK_KING_PATH) == 0)
+				moves[n++] = Move.create(E8, E8 + 2, Move.FLAG_KING_CASTLE);
+			if((rights & Board.CASTLE_BLACK_QUEEN) != 0 && (occupied & BLACK_QUEEN_PATH) == 0 && (danger & BLACK_QUEEN_SAFE) == 0)
+				moves[n++] = Move.create(E8, E8 - 2, Move.FLAG_QUEEN_CASTLE);
+		}
+
+		return n;
+	}
+
+	/**
+	 * Keeps only the moves of the given kinds among the moves written from {@code offset} to {@code n}.
+	 */
+	private static int filter(int[] moves, int offset, int n, int kinds) {
+		if(kinds == ALL)
+			return n;
+
+		int res = offset;
+		for(int i = offset; i < n; i++) {
+			boolean capture = Move.isCapture(moves[i]) || Move.isPromotion(moves[i]);
+			if((kinds & (capture ? CAPTURES : QUIETS)) != 0)
+				moves[res++] = moves[i];
+		}
+		return res;
+	}
+
+	private static int addMoves(int[] moves, int n, int from, long targets, long enemy) {
+		for(long b = targets; b != 0; b &= b - 1) {
+			int to = Long.numberOfTrailingZeros(b);
+			moves[n++] = Move.create(from, to, (enemy & (1L << to)) != 0 ? Move.FLAG_CAPTURE : Move.FLAG_QUIET);
+		}
+		return n;
+	}
+
+	private static int addPromotions(int[] moves, int n, int from, int to, boolean capture) {
+		int flag = capture ? Move.FLAG_PROMOTION_CAPTURE : Move.FLAG_PROMOTION;
+		moves[n++] = Move.create(from, to, flag | 3);
+		moves[n++] = Move.create(from, to, flag | 2);
+		moves[n++] = Move.create(from, to, flag | 1);
+		moves[n++] = Move.create(from, to, flag);
+		return n;
+	}
+
+	/**
+	 * Computes every square attacked by the pieces of a color.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param color the color of the attacking pieces
+	 * @return a bitboard with a bit set for every attacked square
+	 */
+	public static long getAttacks(Board board, ColorType color) {
+		return getAttacks(board, color, board.getOccupied());
+	}
+
+	/**
+	 * Computes every square attacked by the pieces of a color, with the given squares blocking the sliding pieces.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param color the color of the attacking pieces
+	 * @param occupied the occupied squares, which block the rays of the sliding pieces
+	 * @return a bitboard with a bit set for every attacked square
+	 */
+	public static long getAttacks(Board board, ColorType color, long occupied) {
+		long res = 0;
+
+		long pawns = board.getBitboard(PieceType.PAWN, color);
+		if(color == ColorType.WHITE)
+			res |= ((pawns << 9) & ~Attacks.FILE_A) | ((pawns << 7) & ~Attacks.FILE_H);
+		else
+			res |= ((pawns >>> 7) & ~Attacks.FILE_A) | ((pawns >>> 9) & ~Attacks.FILE_H);
+		for(long b = board.getBitboard(PieceType.KNIGHT, color); b != 0; b &= b - 1)
+			res |= Attacks.knight(Long.numberOfTrailingZeros(b));
+		for(long b = board.getBitboard(PieceType.BISHOP, color); b != 0; b &= b - 1)
+			res |= Attacks.bishop(Long.numberOfTrailingZeros(b), occupied);
+		for(long b = board.getBitboard(PieceType.ROOK, color); b != 0; b &= b - 1)
+			res |= Attacks.rook(Long.numberOfTrailingZeros(b), occupied);
+		for(long b = board.getBitboard(PieceType.QUEEN, color); b != 0; b &= b - 1)
+			res |= Attacks.queen(Long.numberOfTrailingZeros(b), occupied);
+		for(long b = board.getBitboard(PieceType.KING, color); b != 0; b &= b - 1)
+			res |= Attacks.king(Long.numberOfTrailingZeros(b));
+
+		return res;
+	}
+
+	/**
+	 * Returns the square a player selects on the board to make a move.
+	 * <p>
+	 * Castling is selected on the Rook and an en passant capture on the captured Pawn,
+	 * any other move on its destination square.
+	 *
+	 * @param move the packed move
+	 * @return the square index (0 - 63) selected for the move
+	 */
+	public static int getSelectionSquare(int move) {
+		return switch(Move.getFlag(move)) {
+			case Move.FLAG_KING_CASTLE -> Move.getFrom(move) + 3;
+			case Move.FLAG_QUEEN_CASTLE -> Move.getFrom(move) - 4;
+			case Move.FLAG_EN_PASSANT -> Move.getTo(move) ^ 8;
+			default -> Move.getTo(move);
+		};
+	}
+
+	/**
+	 * Generates the moves of the pieces of a color: the legal moves for the side to move,
+	 * the pseudo-legal moves for the other side.
+	 */
+	static int generateFor(Board board, ColorType color, int[] moves) {
+		return color == board.getSideToMove() ? generateLegal(board, moves, 0) : generate(board, color, moves, 0);
+	}
+
+	/**
+	 * Adapter that lists the moves of a single piece as a matrix, indexed by {@code [row-1][column]}
+	 * of the square selected to make each move (see {@link #getSelectionSquare(int)}).
+	 * <p>
+	 * Only legal moves are listed for the pieces of the side to move.
+	 *
+	 * @param board the current game {@link Board}
+	 * @param square the square index (0 - 63) of the piece
+	 * @return a {@code MoveType[][]} where the cells different from {@link MoveType#NONE} represent possible moves.
+	 */
+	public static MoveType[][] getMoves(Board board, int square) {
+		MoveType[][] res = new MoveType[board.getRowSize()][board.getColumnSize()];
+		for(MoveType[] r : res)
+			Arrays.fill(r, MoveType.NONE);
+
+		Piece p = square < 0 ? null : board.getPiece(square);
+		if(p == null)
+			return res;
+
+		int[] moves = new int[MAX_MOVES];
+		int n = generateFor(board, p.getColor(), moves);
+		for(int i = 0; i < n; i++) {
+			if(Move.getFrom(moves[i]) != square)
+				continue;
+
+			int selection = getSelectionSquare(moves[i]);
+			res[selection / 8][selection % 8] = Move.isCastle(moves[i]) ? MoveType.MOVE : Move.getMoveType(moves[i]);
+		}
+
+		return res;
+	}
+
+}
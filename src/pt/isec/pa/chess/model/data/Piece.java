@@ -2,7 +2,6 @@ package pt.isec.pa.chess.model.data;
 
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.Arrays;
 
 public abstract class Piece implements Cloneable, Serializable {
 	@Serial
@@ -62,6 +61,11 @@ public abstract class Piece implements Cloneable, Serializable {
 
 	public String getName() { return this.name; }
 
+	/**
+	 * @return the {@link PieceType} of the piece, derived from its representation.
+	 */
+	public PieceType getType() { return PieceType.getType(this.representation); }
+
 	/**
 	 * @return the row location of the piece
 	 */
@@ -89,6 +93,21 @@ public abstract class Piece implements Cloneable, Serializable {
 			this.column = column;
 	}
 
+	/**
+	 * Returns the movement state of the piece (e.g. if a King or Rook has already moved),
+	 * packed so the {@link Board} can record it when a move is made and restore it when the move is undone.
+	 *
+	 * @return the packed movement flags, {@code 0} for pieces without movement state
+	 */
+	public int getFlags() { return 0; }
+
+	/**
+	 * Restores the movement state of the piece.
+	 *
+	 * @param flags the packed movement flags, as returned by {@link #getFlags()}
+	 */
+	public void setFlags(int flags) {}
+
 	/**
 	 * Attempts to move the piece to a new position based on the given row and column index.
 	 *
@@ -96,54 +115,19 @@ public abstract class Piece implements Cloneable, Serializable {
 	 * @param column the column character ('A' to 'H') of the desired move.
 	 * @return {@code true} if the piece is moved and {@code false} if the move is illegal.
 	 */
-	public abstract MoveType move(int row, char column, Board board);
+	public MoveType move(int row, char column, Board board) {
+		return board.movePiece(getRow(), getColumn(), row, column);
+	}
 
 	/**
 	 * Computes all possible moves for this piece based on its movement rules and the current board state.
 	 *
 	 * @param board the current game {@link Board}
-	 * @return {@code boolean[][]} where the {@code true} cells represent possible moves.
+	 * @return {@code MoveType[][]} where the cells different from {@link MoveType#NONE} represent possible moves.
+	 * @implNote Thin adapter over the packed moves of the {@link MoveGenerator}.
 	 */
-	public abstract MoveType[][] getMoves(Board board);
-
-	/**
-	 * Calculates possible moves in specified directions for a given number of steps.
-	 *
-	 * @param rowDirections array of row direction deltas (e.g. -1, 0, 1)
-	 * @param columnDirections array of column direction deltas matching rowDirections
-	 * @param times maximum number of steps to move in each direction
-	 * @param board the current game {@link Board}
-	 * @return {@code boolean[][]} where {@code true} cells represent valid destination squares
-	 */
-	protected MoveType[][] getMoves(int[] rowDirections, int[] columnDirections, int times, Board board, MoveType default_move) {
-		MoveType[][] res = new MoveType[board.getRowSize()][board.getColumnSize()];
-		for(MoveType[] re : res)
-			Arrays.fill(re, MoveType.NONE);
-
-		if(rowDirections.length != columnDirections.length)
-			return res;
-
-		for(int d = 0; d < rowDirections.length; d++) {
-			int row = getRow(); int column = getColumnIndex(getColumn());
-			for(int t = 0; t < times; t++) {
-				row += rowDirections[d];
-				column += columnDirections[d];
-
-				if((row <= 0 || row > board.getRowSize() || column < 0 || column >= board.getColumnSize()))
-					break;
-
-				Piece p = board.getPiece(row, (char) getIndexColumn(column));
-				if(p != null) {
-					if(p.color != color)
-						res[row-1][column] = default_move;
-					break;
-				}
-
-				res[row-1][column] = default_move;
-			}
-		}
-
-		return res;
+	public MoveType[][] getMoves(Board board) {
+		return MoveGenerator.getMoves(board, Board.getSquare(getRow(), getColumn()));
 	}
 
 	@Override
@@ -0,0 +1,140 @@
+package pt.isec.pa.chess.model.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Weights of the tapered evaluation: the material plus a piece-square bonus of every piece on every square,
+ * once for the midgame and once for the endgame, and the game phase weight of every piece.
+ * <p>
+ * The {@link Board} adds and subtracts these weights as pieces are placed and removed, so its midgame score,
+ * endgame score and phase are always up to date without scanning the pieces. The scores are from White's
+ * point of view: the weights of the Black pieces are mirrored and negated.
+ * <p>
+ * The weights are read once from the compact text table {@code pst.txt} next to this class, or from the file
+ * given by the {@value #PROPERTY} system property, so tuned weights can be tried without recompiling.
+ */
+public final class PieceSquareTables {
+
+	/** System property with the path of a weights file replacing the default one. */
+	public static final String PROPERTY = "pt.isec.pa.chess.pst";
+
+	/** Phase of the starting position, the sum of the phase weights of all its pieces. */
+	public static final int MAX_PHASE = 24;
+
+	private static final int TABLES = 12;
+
+	private static final int[] MIDGAME = new int[TABLES * 64];
+	private static final int[] ENDGAME = new int[TABLES * 64];
+	private static final int[] PHASE = new int[TABLES];
+
+	static {
+		String file = System.getProperty(PROPERTY);
+		try(Reader reader = file != null ? Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)
+				: new InputStreamReader(open("pst.txt"), StandardCharsets.UTF_8)) {
+			load(new BufferedReader(reader));
+		} catch(IOException e) {
+			throw new UncheckedIOException("Cannot read the piece-square tables", e);
+		}
+	}
+
+	private PieceSquareTables() {}
+
+	private static InputStream open(String resource) throws IOException {
+		InputStream in = PieceSquareTables.class.getResourceAsStream(resource);
+		if(in == null)
+			throw new IOException("Missing resource " + resource);
+		return in;
+	}
+
+	/**
+	 * Parses the tables: {@code #} comments, a {@code phase} line with a weight per piece letter, and per piece
+	 * a {@code <letter> <mg|eg> <material>} line followed by 8 rows of 8 values, rank 8 first.
+	 *
+	 * @throws IllegalArgumentException if the table is malformed
+	 */
+	private static void load(BufferedReader reader) throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			String[] tokens = line.trim().split("\\s+");
+			if(tokens[0].isEmpty() || tokens[0].startsWith("#"))
+				continue;
+
+			if(tokens[0].equals("phase")) {
+				for(int i = 1; i + 1 < tokens.length; i += 2) {
+					PieceType type = getType(tokens[i]);
+					int weight = Integer.parseInt(tokens[i + 1]);
+					PHASE[Board.getBitboardIndex(type, ColorType.WHITE)] = weight;
+					PHASE[Board.getBitboardIndex(type, ColorType.BLACK)] = weight;
+				}
+				continue;
+			}
+
+			if(tokens.length != 3 || !(tokens[1].equals("mg") || tokens[1].equals("eg")))
+				throw new IllegalArgumentException("Bad table header: " + line);
+			PieceType type = getType(tokens[0]);
+			int[] table = tokens[1].equals("mg") ? MIDGAME : ENDGAME;
+			int material = Integer.parseInt(tokens[2]);
+			int white = Board.getBitboardIndex(type, ColorType.WHITE) << 6;
+			int black = Board.getBitboardIndex(type, ColorType.BLACK) << 6;
+
+			for(int row = 0; row < 8; row++) {
+				String[] values = nextRow(reader);
+				if(values.length != 8)
+					throw new IllegalArgumentException("Expected 8 values in row " + (row + 1) + " of " + line);
+				for(int column = 0; column < 8; column++) {
+					int value = material + Integer.parseInt(values[column]);
+					// the first row is rank 8 for White, which is rank 1 seen from Black
+					int square = (7 - row) * 8 + column;
+					table[white | square] = value;
+					table[black | (square ^ 56)] = -value;
+				}
+			}
+		}
+	}
+
+	private static String[] nextRow(BufferedReader reader) throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			line = line.trim();
+			if(!line.isEmpty() && !line.startsWith("#"))
+				return line.split("\\s+");
+		}
+		throw new IllegalArgumentException("Unexpected end of the piece-square tables");
+	}
+
+	private static PieceType getType(String letter) {
+		PieceType type = letter.length() == 1 ? PieceType.getType(letter.charAt(0)) : null;
+		if(type == null)
+			throw new IllegalArgumentException("Unknown piece: " + letter);
+		return type;
+	}
+
+	/**
+	 * @param index the bitboard index of the piece, see {@link Board#getBitboardIndex(PieceType, ColorType)}
+	 * @param square the square index (0 - 63)
+	 * @return the midgame weight of the piece on the square, negative for Black
+	 */
+	public static int midgame(int index, int square) { return MIDGAME[(index << 6) | square]; }
+
+	/**
+	 * @param index the bitboard index of the piece, see {@link Board#getBitboardIndex(PieceType, ColorType)}
+	 * @param square the square index (0 - 63)
+	 * @return the endgame weight of the piece on the square, negative for Black
+	 */
+	public static int endgame(int index, int square) { return ENDGAME[(index << 6) | square]; }
+
+	/**
+	 * @param index the bitboard index of the piece
+	 * @return how much the piece counts towards the midgame (0 - {@link #MAX_PHASE})
+	 */
+	public static int phase(int index) { return PHASE[index]; }
+
+}
@@ -0,0 +1,69 @@
+package pt.isec.pa.chess.model.data;
+
+/**
+ * Random keys used to hash a position into a 64-bit Zobrist key.
+ * <p>
+ * The key of a position is the XOR of the keys of every piece on its square, of the castling rights,
+ * of the column of the en passant square and, when Black is to move, of the side key.
+ * As XOR is its own inverse, the {@link Board} updates its key incrementally by XOR-ing in and out
+ * only what a move changes.
+ * <p>
+ * The keys come from a fixed seed, so the same position always gets the same key across runs.
+ */
+public final class Zobrist {
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+
+	private static final long[] PIECES = new long[12 * 64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT = new long[8];
+	private static final long SIDE;
+
+	static {
+		long state = SEED;
+		for(int i = 0; i < PIECES.length; i++)
+			PIECES[i] = mix(state += SEED);
+		for(int i = 0; i < CASTLING.length; i++)
+			CASTLING[i] = mix(state += SEED);
+		for(int i = 0; i < EN_PASSANT.length; i++)
+			EN_PASSANT[i] = mix(state += SEED);
+		SIDE = mix(state + SEED);
+		CASTLING[0] = 0;
+	}
+
+	private Zobrist() {}
+
+	/**
+	 * @param index the bitboard index of the piece, see {@link Board#getBitboardIndex(PieceType, ColorType)}
+	 * @param square the square index (0 - 63)
+	 * @return the key of the piece standing on the square
+	 */
+	public static long piece(int index, int square) { return PIECES[(index << 6) | square]; }
+
+	/**
+	 * @param rights the castling rights, as a combination of the {@code Board.CASTLE_*} constants
+	 * @return the key of the castling rights ({@code 0} if there are none)
+	 */
+	public static long castling(int rights) { return CASTLING[rights]; }
+
+	/**
+	 * @param square the en passant square index (0 - 63)
+	 * @return the key of the column of the en passant square
+	 */
+	public static long enPassant(int square) { return EN_PASSANT[square & 7]; }
+
+	/**
+	 * @return the key XOR-ed in when Black is to move
+	 */
+	public static long side() { return SIDE; }
+
+	/**
+	 * SplitMix64 finalizer, spreads the bits of a counter into a well distributed random value.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -1,11 +1,13 @@
 package pt.isec.pa.chess.model.data.pieces;
 
-import pt.isec.pa.chess.model.data.Board;
 import pt.isec.pa.chess.model.data.ColorType;
-import pt.isec.pa.chess.model.data.MoveType;
 import pt.isec.pa.chess.model.data.Piece;
 
+import java.io.Serial;
+
 public class Rook extends Piece {
+	@Serial
+	private static final long serialVersionUID = 5361298380850389287L;
 
 	private boolean hasMoved;
 
@@ -23,25 +25,10 @@ public class Rook extends Piece {
 	public boolean hasMoved() { return this.hasMoved; }
 
 	@Override
-	public MoveType move(int row, char column, Board board) {
-		MoveType res = getMoves(board)[row-1][getColumnIndex(Character.toUpperCase(column))];
-
-		if(res != MoveType.NONE) {
-			setRow(row);
-			setColumn(column);
-			this.hasMoved = true;
-		}
-
-		return res;
-	}
+	public int getFlags() { return this.hasMoved ? 1 : 0; }
 
 	@Override
-	public MoveType[][] getMoves(Board board) {
-		int[] rowDirections = {-1, 1, 0, 0};
-		int[] columnDirections = {0, 0, 1, -1};
-
-		return super.getMoves(rowDirections, columnDirections, 8, board, MoveType.TAKE);
-	}
+	public void setFlags(int flags) { this.hasMoved = (flags & 1) != 0; }
 
 	@Override
 	public String toString() {
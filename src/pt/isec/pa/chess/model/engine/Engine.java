@@ -0,0 +1,170 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Computer opponent: finds the best move of a position within a {@link SearchLimits budget}.
+ * <p>
+ * The search works on a copy of the given {@link Board}, so the game is never changed while it runs.
+ * A running search can be stopped from another thread with {@link #stop()}, returning the best move found so far.
+ * A search started on another thread is better given its own stop flag, which also stops it if set before it starts.
+ * <p>
+ * The {@link TranspositionTable} is kept between searches, so the positions of the previous moves help the next one.
+ * So are the {@link PawnTable pawn tables}, one per thread as they are not shared.
+ * <p>
+ * With more than one thread the search is parallel (Lazy SMP): helper threads search the same position on their own
+ * copy of the board, half of them starting one ply deeper, and only share the transposition table. What they store
+ * there orders and cuts off the search of the main thread, which alone reports its iterations and the result.
+ */
+public class Engine {
+
+	public static final int DEFAULT_HASH_SIZE = 16;
+
+	private final TranspositionTable table;
+	private PawnTable[] pawnTables = { new PawnTable() };
+	private Consumer<SearchResult> listener;
+	private int threads = 1;
+	private volatile AtomicBoolean stopped;
+
+	public Engine() {
+		this(new TranspositionTable(DEFAULT_HASH_SIZE));
+	}
+
+	/**
+	 * @param table the {@link TranspositionTable} of the searches, e.g. an off-heap one shared by several engines
+	 */
+	public Engine(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * @return the {@link TranspositionTable} shared by the searches, e.g. to read its statistics
+	 */
+	public TranspositionTable getTranspositionTable() { return this.table; }
+
+	/**
+	 * @return the {@link PawnTable} of the main search thread, e.g. to read its statistics
+	 */
+	public PawnTable getPawnTable() { return this.pawnTables[0]; }
+
+	/**
+	 * Resizes the {@link TranspositionTable}, discarding its entries.
+	 *
+	 * @param megabytes the size of the table in megabytes
+	 */
+	public void setHashSize(int megabytes) { this.table.resize(megabytes); }
+
+	/**
+	 * Discards every entry of the {@link TranspositionTable}, e.g. when a new game starts.
+	 */
+	public void clearHash() {
+		this.table.clear();
+		for(PawnTable pawns : this.pawnTables)
+			pawns.clear();
+	}
+
+	/**
+	 * Sets the listener called with the result of every completed iteration, e.g. to report the search progress.
+	 *
+	 * @param listener the listener, or {@code null} for none
+	 */
+	public void setListener(Consumer<SearchResult> listener) { this.listener = listener; }
+
+	public int getThreads() { return this.threads; }
+
+	/**
+	 * Sets the number of threads of the next searches.
+	 *
+	 * @param threads the number of threads, including the calling one (at least 1)
+	 */
+	public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+
+	/**
+	 * Searches the best move of the side to move.
+	 * <p>
+	 * The main search runs on the calling thread, the helpers on threads started for the search and stopped
+	 * as soon as the main search ends. The node counts reported include the nodes of the helpers.
+	 *
+	 * @param board the position to search, which is copied and left unchanged
+	 * @param limits the budget of the search
+	 * @return the result of the deepest completed iteration of the main search
+	 */
+	public SearchResult search(Board board, SearchLimits limits) {
+		return search(board, limits, new AtomicBoolean());
+	}
+
+	/**
+	 * Searches the best move of the side to move, until the given flag is set.
+	 * <p>
+	 * The flag belongs to this search alone: setting it from another thread stops the search, even if it has not
+	 * started yet, in which case it returns at once. It is set when the search ends.
+	 *
+	 * @param board the position to search, which is copied and left unchanged
+	 * @param limits the budget of the search
+	 * @param stopped the flag that stops the search
+	 * @return the result of the deepest completed iteration of the main search
+	 */
+	public SearchResult search(Board board, SearchLimits limits, AtomicBoolean stopped) {
+		if(this.pawnTables.length < this.threads) {
+			int n = this.pawnTables.length;
+			this.pawnTables = Arrays.copyOf(this.pawnTables, this.threads);
+			for(int i = n; i < this.threads; i++)
+				this.pawnTables[i] = new PawnTable();
+		}
+
+		Search[] searches = new Search[this.threads];
+		for(int i = 0; i < searches.length; i++)
+			searches[i] = new Search(new Board(board), this.table, this.pawnTables[i], stopped);
+
+		this.stopped = stopped;
+		this.table.newSearch();
+
+		Thread[] helpers = new Thread[searches.length - 1];
+		for(int i = 1; i < searches.length; i++) {
+			Search helper = searches[i];
+			int startDepth = 1 + (i & 1);
+			helpers[i - 1] = Thread.ofPlatform().daemon().name("search-" + i)
+					.start(() -> helper.run(SearchLimits.infinite().withDepth(limits.getDepth()), null, startDepth));
+		}
+
+		Consumer<SearchResult> listener = this.listener;
+		try {
+			SearchResult result = searches[0].run(limits, listener == null ? null : r -> listener.accept(withTotalNodes(r, searches)));
+			return withTotalNodes(result, searches);
+		} finally {
+			stopped.set(true);
+			for(Thread helper : helpers)
+				join(helper);
+			this.stopped = null;
+		}
+	}
+
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static SearchResult withTotalNodes(SearchResult result, Search[] searches) {
+		long nodes = 0;
+		for(Search search : searches)
+			nodes += search.getNodes();
+		return new SearchResult(result.move(), result.score(), result.depth(), nodes, result.timeMillis(), result.pv());
+	}
+
+	/**
+	 * Stops the running search, if any.
+	 */
+	public void stop() {
+		AtomicBoolean stopped = this.stopped;
+		if(stopped != null)
+			stopped.set(true);
+	}
+
+}
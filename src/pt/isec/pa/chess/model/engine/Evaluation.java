@@ -0,0 +1,61 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.PieceSquareTables;
+import pt.isec.pa.chess.model.data.PieceType;
+
+/**
+ * Static evaluation of a position, in centipawns.
+ * <p>
+ * The evaluation is tapered: the midgame and endgame scores of the material and piece-square tables
+ * (see {@link PieceSquareTables}) are blended by the game phase, so the weights shift smoothly towards the
+ * endgame ones as pieces are exchanged. The {@link Board} keeps both scores and the phase up to date on every
+ * move, so evaluating a position takes a few arithmetic operations.
+ * <p>
+ * The {@link PawnStructure} is added to both scores, read from a {@link PawnTable} during a search.
+ */
+public final class Evaluation {
+
+	/** Value of each {@link PieceType} for move ordering and exchanges, indexed by its ordinal. */
+	private static final int[] VALUES = { 0, 900, 330, 320, 500, 100 };
+
+	private Evaluation() {}
+
+	/**
+	 * @param type the type of the piece
+	 * @return the material value of the piece in centipawns ({@code 0} for the King)
+	 */
+	public static int getValue(PieceType type) { return VALUES[type.ordinal()]; }
+
+	/**
+	 * Evaluates the position, evaluating its pawn structure from scratch.
+	 *
+	 * @param board the {@link Board} to evaluate
+	 * @return the score in centipawns, positive when the side to move is ahead
+	 */
+	public static int evaluate(Board board) {
+		return evaluate(board, PawnStructure.of(board));
+	}
+
+	/**
+	 * Evaluates the position, with its pawn structure from a {@link PawnTable}.
+	 *
+	 * @param board the {@link Board} to evaluate
+	 * @param pawns the table of pawn structures
+	 * @return the score in centipawns, positive when the side to move is ahead
+	 */
+	public static int evaluate(Board board, PawnTable pawns) {
+		return evaluate(board, pawns.probe(board));
+	}
+
+	private static int evaluate(Board board, PawnStructure pawns) {
+		int midgame = board.getMidgameScore() + pawns.getMidgameScore();
+		int endgame = board.getEndgameScore() + pawns.getEndgameScore();
+		int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+		int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+
+		return board.getSideToMove() == ColorType.WHITE ? score : -score;
+	}
+
+}
@@ -0,0 +1,29 @@
+package pt.isec.pa.chess.model.engine;
+
+import java.util.Arrays;
+
+/**
+ * Slots kept in a {@code long[]} on the Java heap.
+ */
+public class HeapMemory implements ITableMemory {
+	private final long[] slots;
+
+	/**
+	 * @param size the number of slots
+	 */
+	public HeapMemory(int size) {
+		this.slots = new long[size];
+	}
+
+	@Override
+	public long get(int slot) { return this.slots[slot]; }
+
+	@Override
+	public void set(int slot, long value) { this.slots[slot] = value; }
+
+	@Override
+	public int size() { return this.slots.length; }
+
+	@Override
+	public void clear() { Arrays.fill(this.slots, 0); }
+}
@@ -0,0 +1,88 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.Piece;
+
+/**
+ * Quiet move ordering tables, learned from the beta cutoffs of a search.
+ * <ul>
+ *     <li>killers: the last two quiet moves that caused a cutoff at each ply</li>
+ *     <li>history: how often each quiet move (by color, origin and destination) caused a cutoff, minus how often it did not</li>
+ *     <li>countermoves: the quiet move that refuted each previous move (by moved piece and destination)</li>
+ * </ul>
+ * Each search thread keeps its own tables.
+ */
+class Heuristics {
+
+	static final int HISTORY_MAX = 16384;
+
+	private final int[][] killers = new int[Search.MAX_PLY][2];
+	private final int[] history = new int[2 * 64 * 64];
+	private final int[] counters = new int[12 * 64];
+
+	int getKiller(int ply, int slot) { return this.killers[ply][slot]; }
+
+	/**
+	 * @return the quiet move that refuted the last move made on the board, or {@link Move#NONE}
+	 */
+	int getCounter(Board board) {
+		int index = counterIndex(board);
+		return index == -1 ? Move.NONE : this.counters[index];
+	}
+
+	/**
+	 * @return the history score of a quiet move of the side to move (-{@link #HISTORY_MAX} - {@link #HISTORY_MAX})
+	 */
+	int getHistory(Board board, int move) {
+		return this.history[historyIndex(board, move)];
+	}
+
+	/**
+	 * Rewards the quiet move that caused a beta cutoff and penalizes the quiet moves tried before it.
+	 *
+	 * @param board the board, positioned at the node of the cutoff
+	 * @param ply the distance of the node from the root
+	 * @param depth the remaining depth of the node, deeper cutoffs weigh more
+	 * @param move the move that caused the cutoff
+	 * @param tried the quiet moves tried before it
+	 * @param count the number of moves in {@code tried}
+	 */
+	void update(Board board, int ply, int depth, int move, int[] tried, int count) {
+		int[] killers = this.killers[ply];
+		if(killers[0] != move) {
+			killers[1] = killers[0];
+			killers[0] = move;
+		}
+
+		int index = counterIndex(board);
+		if(index != -1)
+			this.counters[index] = move;
+
+		int bonus = Math.min(depth * depth, 400);
+		addHistory(historyIndex(board, move), bonus);
+		for(int i = 0; i < count; i++)
+			addHistory(historyIndex(board, tried[i]), -bonus);
+	}
+
+	/**
+	 * Moves the score towards the bound of its sign, so frequent moves saturate instead of overflowing.
+	 */
+	private void addHistory(int index, int bonus) {
+		this.history[index] += bonus - this.history[index] * Math.abs(bonus) / HISTORY_MAX;
+	}
+
+	private static int historyIndex(Board board, int move) {
+		return (board.getSideToMove().ordinal() << 12) | (Move.getFrom(move) << 6) | Move.getTo(move);
+	}
+
+	private static int counterIndex(Board board) {
+		int last = board.getLastMove();
+		if(last == Move.NONE)
+			return -1;
+
+		Piece piece = board.getPiece(Move.getTo(last));
+		return piece == null ? -1 : Board.getBitboardIndex(piece.getType(), piece.getColor()) * 64 + Move.getTo(last);
+	}
+
+}
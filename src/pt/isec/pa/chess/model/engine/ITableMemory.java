@@ -0,0 +1,24 @@
+package pt.isec.pa.chess.model.engine;
+
+/**
+ * Storage of the {@code long} slots of a {@link TranspositionTable}.
+ */
+public interface ITableMemory {
+	long get(int slot);
+	void set(int slot, long value);
+
+	/**
+	 * @return the number of slots
+	 */
+	int size();
+
+	/**
+	 * Sets every slot to {@code 0}.
+	 */
+	void clear();
+
+	/**
+	 * Releases the memory, writing it back to its file if it has one.
+	 */
+	default void close() {}
+}
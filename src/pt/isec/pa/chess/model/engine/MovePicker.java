@@ -0,0 +1,212 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+import pt.isec.pa.chess.model.data.Piece;
+import pt.isec.pa.chess.model.data.PieceType;
+
+/**
+ * Hands out the legal moves of a position one at a time, best first, generating them in stages:
+ * <ol>
+ *     <li>the hash move (from the transposition table or the principal variation), if it is legal</li>
+ *     <li>the captures and promotions, most valuable victim first and least valuable attacker first (MVV-LVA)</li>
+ *     <li>the quiet moves: killers, then the countermove, then by history score</li>
+ *     <li>the captures that lose material by {@link StaticExchange static exchange evaluation}</li>
+ * </ol>
+ * A later stage is only generated when the moves of the earlier stages did not cause a cutoff,
+ * and each move is only picked from the remaining ones when it is needed.
+ * <p>
+ * A search keeps one picker per ply, so the buffers are reused.
+ */
+class MovePicker {
+
+	private static final int STAGE_HASH = 0, STAGE_CAPTURES = 1, STAGE_QUIETS = 2, STAGE_BAD_CAPTURES = 3, STAGE_DONE = 4;
+	private static final int KILLER_SCORE = 1 << 20;
+
+	private final int[] captures = new int[MoveGenerator.MAX_MOVES];
+	private final int[] captureScores = new int[MoveGenerator.MAX_MOVES];
+	private final int[] quiets = new int[MoveGenerator.MAX_MOVES];
+	private final int[] quietScores = new int[MoveGenerator.MAX_MOVES];
+	private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+
+	private Board board;
+	private Heuristics heuristics;
+	private int ply, hashMove, stage, index;
+	private int captureCount = -1, quietCount = -1, badCount;
+	private boolean quiescence;
+
+	/**
+	 * Prepares the picker for a position.
+	 *
+	 * @param board the position, which must not change until the last move is picked except for moves made and unmade
+	 * @param hashMove the move to try first, or {@link Move#NONE}
+	 * @param ply the distance of the position from the root
+	 * @param heuristics the quiet move ordering tables
+	 */
+	void init(Board board, int hashMove, int ply, Heuristics heuristics) {
+		reset(board, ply, heuristics, false);
+		this.hashMove = hashMove != Move.NONE && isLegal(hashMove) ? hashMove : Move.NONE;
+	}
+
+	/**
+	 * Prepares the picker for the quiescence search of a position: only the captures and promotions
+	 * that do not lose material are picked.
+	 *
+	 * @param board the position
+	 * @param ply the distance of the position from the root
+	 */
+	void initQuiescence(Board board, int ply) {
+		reset(board, ply, null, true);
+		this.hashMove = Move.NONE;
+	}
+
+	private void reset(Board board, int ply, Heuristics heuristics, boolean quiescence) {
+		this.board = board;
+		this.heuristics = heuristics;
+		this.ply = ply;
+		this.quiescence = quiescence;
+		this.captureCount = -1;
+		this.quietCount = -1;
+		this.badCount = 0;
+		this.index = 0;
+		this.stage = STAGE_HASH;
+	}
+
+	/**
+	 * @return the next best move, or {@link Move#NONE} when every move was picked
+	 */
+	int next() {
+		// each stage moves on to the next one when it runs out of moves
+		for(;;)
+			switch(this.stage) {
+				case STAGE_HASH:
+					this.stage = STAGE_CAPTURES;
+					if(this.hashMove != Move.NONE)
+						return this.hashMove;
+					continue;
+				case STAGE_CAPTURES:
+					if(this.captureCount == -1)
+						generateCaptures();
+					while(this.index < this.captureCount) {
+						int move = pick(this.captures, this.captureScores, this.index++, this.captureCount);
+						if(move == this.hashMove)
+							continue;
+						if(isWinning(move))
+							return move;
+						if(!this.quiescence)
+							this.badCaptures[this.badCount++] = move;
+					}
+					if(this.quiescence) {
+						this.stage = STAGE_DONE;
+						return Move.NONE;
+					}
+					this.stage = STAGE_QUIETS;
+					this.index = 0;
+					continue;
+				case STAGE_QUIETS:
+					if(this.quietCount == -1)
+						generateQuiets();
+					while(this.index < this.quietCount) {
+						int move = pick(this.quiets, this.quietScores, this.index++, this.quietCount);
+						if(move != this.hashMove)
+							return move;
+					}
+					this.stage = STAGE_BAD_CAPTURES;
+					this.index = 0;
+					continue;
+				case STAGE_BAD_CAPTURES:
+					if(this.index < this.badCount)
+						return this.badCaptures[this.index++];
+					this.stage = STAGE_DONE;
+					continue;
+				default:
+					return Move.NONE;
+			}
+	}
+
+	/**
+	 * The hash move may come from another position with the same key, so it is only tried if it is
+	 * among the legal moves of its kind, which are generated once and kept for the following stage.
+	 */
+	private boolean isLegal(int move) {
+		boolean capture = Move.isCapture(move) || Move.isPromotion(move);
+		int[] list = capture ? this.captures : this.quiets;
+		int n;
+		if(capture) {
+			generateCaptures();
+			n = this.captureCount;
+		} else {
+			generateQuiets();
+			n = this.quietCount;
+		}
+
+		for(int i = 0; i < n; i++)
+			if(list[i] == move)
+				return true;
+		return false;
+	}
+
+	private void generateCaptures() {
+		this.captureCount = MoveGenerator.generateLegal(this.board, this.captures, 0, MoveGenerator.CAPTURES);
+		for(int i = 0; i < this.captureCount; i++)
+			this.captureScores[i] = scoreCapture(this.board, this.captures[i]);
+	}
+
+	/**
+	 * A capture of a piece worth at least the capturer cannot lose material, so only the others are exchanged.
+	 */
+	private boolean isWinning(int move) {
+		Piece victim = this.board.getPiece(Move.getTo(move));
+		if(Move.getPromotion(move) == null && victim != null
+				&& Evaluation.getValue(victim.getType()) >= Evaluation.getValue(this.board.getPiece(Move.getFrom(move)).getType()))
+			return true;
+		return StaticExchange.evaluate(this.board, move) >= 0;
+	}
+
+	private void generateQuiets() {
+		this.quietCount = MoveGenerator.generateLegal(this.board, this.quiets, 0, MoveGenerator.QUIETS);
+		int killer0 = this.heuristics.getKiller(this.ply, 0), killer1 = this.heuristics.getKiller(this.ply, 1);
+		int counter = this.heuristics.getCounter(this.board);
+		for(int i = 0; i < this.quietCount; i++) {
+			int move = this.quiets[i];
+			this.quietScores[i] = move == killer0 ? KILLER_SCORE + 2
+					: move == killer1 ? KILLER_SCORE + 1
+					: move == counter ? KILLER_SCORE
+					: this.heuristics.getHistory(this.board, move);
+		}
+	}
+
+	/**
+	 * Scores a capture or promotion by the value of the victim, then by the lowest value of the attacker.
+	 */
+	static int scoreCapture(Board board, int move) {
+		int victim = Move.getFlag(move) == Move.FLAG_EN_PASSANT ? Evaluation.getValue(PieceType.PAWN)
+				: Move.isCapture(move) ? Evaluation.getValue(board.getPiece(Move.getTo(move)).getType()) : 0;
+		Piece attacker = board.getPiece(Move.getFrom(move));
+
+		int score = victim * 16 - Evaluation.getValue(attacker.getType());
+		PieceType promotion = Move.getPromotion(move);
+		if(promotion != null)
+			score += Evaluation.getValue(promotion) * 16;
+		return score;
+	}
+
+	/**
+	 * Selection sort step: swaps the best remaining move into {@code from} and returns it.
+	 */
+	private static int pick(int[] moves, int[] scores, int from, int n) {
+		int best = from;
+		for(int i = from + 1; i < n; i++)
+			if(scores[i] > scores[best])
+				best = i;
+
+		int move = moves[best], score = scores[best];
+		moves[best] = moves[from];
+		scores[best] = scores[from];
+		moves[from] = move;
+		scores[from] = score;
+		return move;
+	}
+
+}
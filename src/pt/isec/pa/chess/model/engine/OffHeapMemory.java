@@ -0,0 +1,106 @@
+package pt.isec.pa.chess.model.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Slots kept outside the Java heap, so a table of gigabytes is never scanned nor moved by the garbage collector.
+ * <p>
+ * The memory is either allocated directly ({@link ByteBuffer#allocateDirect(int)}, bounded by
+ * {@code -XX:MaxDirectMemorySize}) or mapped from a file, in which case the entries are written back to the file
+ * and a table mapped again from it starts with the entries of the previous run.
+ * <p>
+ * A buffer holds at most 2 GB, so the slots are spread over chunks of 1 GB.
+ */
+public class OffHeapMemory implements ITableMemory {
+	private static final int CHUNK_SHIFT = 27;
+	private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+
+	private final ByteBuffer[] chunks;
+	private final int size;
+	private final boolean mapped;
+
+	private OffHeapMemory(ByteBuffer[] chunks, int size, boolean mapped) {
+		this.chunks = chunks;
+		this.size = size;
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Allocates zeroed direct memory.
+	 *
+	 * @param size the number of slots
+	 * @return the memory
+	 */
+	public static OffHeapMemory allocate(int size) {
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+		for(int i = 0; i < chunks.length; i++)
+			chunks[i] = ByteBuffer.allocateDirect(chunkBytes(size, i)).order(ByteOrder.nativeOrder());
+		return new OffHeapMemory(chunks, size, false);
+	}
+
+	/**
+	 * Maps a file into memory, creating or growing it to the required size. The slots already in the file are kept.
+	 *
+	 * @param file the file backing the memory
+	 * @param size the number of slots
+	 * @return the memory
+	 * @throws UncheckedIOException if the file cannot be mapped
+	 */
+	public static OffHeapMemory map(Path file, int size) {
+		// the mapping stays valid after the channel is closed
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+			for(int i = 0; i < chunks.length; i++)
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * CHUNK_SLOTS * Long.BYTES, chunkBytes(size, i))
+						.order(ByteOrder.nativeOrder());
+			return new OffHeapMemory(chunks, size, true);
+		} catch(IOException e) {
+			throw new UncheckedIOException("Cannot map " + file, e);
+		}
+	}
+
+	private static int chunkCount(int size) { return (size + CHUNK_SLOTS - 1) >>> CHUNK_SHIFT; }
+
+	private static int chunkBytes(int size, int chunk) {
+		return Math.min(CHUNK_SLOTS, size - chunk * CHUNK_SLOTS) * Long.BYTES;
+	}
+
+	@Override
+	public long get(int slot) { return this.chunks[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) << 3); }
+
+	@Override
+	public void set(int slot, long value) { this.chunks[slot >>> CHUNK_SHIFT].putLong((slot & CHUNK_MASK) << 3, value); }
+
+	@Override
+	public int size() { return this.size; }
+
+	@Override
+	public void clear() {
+		for(ByteBuffer chunk : this.chunks)
+			for(int i = 0; i < chunk.capacity(); i += Long.BYTES)
+				chunk.putLong(i, 0);
+	}
+
+	/**
+	 * @return {@code true} if the memory is backed by a file
+	 */
+	public boolean isMapped() { return this.mapped; }
+
+	/**
+	 * Writes the slots of a mapped file back to it. The memory itself is released once it is no longer referenced.
+	 */
+	@Override
+	public void close() {
+		if(this.mapped)
+			for(ByteBuffer chunk : this.chunks)
+				((MappedByteBuffer) chunk).force();
+	}
+}
@@ -0,0 +1,141 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Attacks;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.PieceType;
+
+/**
+ * Evaluation of the pawn structure of a position, from White's point of view:
+ * <ul>
+ *     <li>passed Pawns, with no enemy Pawn in front of them on their column or the adjacent ones, earn a bonus growing with their rank</li>
+ *     <li>doubled Pawns, with a Pawn of their color in front of them on their column, are penalized</li>
+ *     <li>isolated Pawns, with no Pawn of their color on the adjacent columns, are penalized</li>
+ *     <li>backward Pawns, behind the Pawns of their color on the adjacent columns and unable to advance safely, are penalized</li>
+ * </ul>
+ * The terms only depend on the Pawns, so a structure is evaluated once and kept in a {@link PawnTable}
+ * under the pawn key of the {@link Board}. The passed Pawns are kept as well, for the terms that also
+ * depend on the other pieces.
+ */
+public final class PawnStructure {
+
+	private static final int DOUBLED_MG = -10, DOUBLED_EG = -25;
+	private static final int ISOLATED_MG = -12, ISOLATED_EG = -15;
+	private static final int BACKWARD_MG = -8, BACKWARD_EG = -12;
+	/** Passed Pawn bonus by rank, counted from the side of its color. */
+	private static final int[] PASSED_MG = { 0, 0, 5, 10, 20, 35, 60, 0 };
+	private static final int[] PASSED_EG = { 0, 10, 15, 25, 45, 75, 120, 0 };
+
+	/** Squares in front of a square on its column and the adjacent ones, by color and square. */
+	private static final long[][] PASSED_MASK = new long[2][64];
+	/** Squares of the adjacent columns on the rank of a square and behind it, by color and square. */
+	private static final long[][] SUPPORT_MASK = new long[2][64];
+	private static final long[] ADJACENT_FILES = new long[8];
+
+	static {
+		for(int file = 0; file < 8; file++)
+			ADJACENT_FILES[file] = (file > 0 ? Attacks.FILE_A << (file - 1) : 0) | (file < 7 ? Attacks.FILE_A << (file + 1) : 0);
+
+		for(int square = 0; square < 64; square++) {
+			int rank = square >>> 3, file = square & 7;
+			long columns = ADJACENT_FILES[file] | (Attacks.FILE_A << file);
+			long above = rank == 7 ? 0 : -1L << ((rank + 1) * 8), below = (1L << (rank * 8)) - 1;
+
+			PASSED_MASK[ColorType.WHITE.ordinal()][square] = columns & above;
+			PASSED_MASK[ColorType.BLACK.ordinal()][square] = columns & below;
+			SUPPORT_MASK[ColorType.WHITE.ordinal()][square] = ADJACENT_FILES[file] & ~above;
+			SUPPORT_MASK[ColorType.BLACK.ordinal()][square] = ADJACENT_FILES[file] & ~below;
+		}
+	}
+
+	private long key;
+	private int midgame, endgame;
+	private final long[] passed = new long[2];
+
+	PawnStructure() {}
+
+	/**
+	 * Evaluates the pawn structure of a board, without a {@link PawnTable}.
+	 *
+	 * @param board the {@link Board}
+	 * @return the evaluated structure
+	 */
+	public static PawnStructure of(Board board) {
+		PawnStructure structure = new PawnStructure();
+		structure.evaluate(board);
+		return structure;
+	}
+
+	/**
+	 * Evaluates the pawn structure of a board into this object.
+	 *
+	 * @param board the {@link Board}
+	 */
+	void evaluate(Board board) {
+		long white = board.getBitboard(PieceType.PAWN, ColorType.WHITE);
+		long black = board.getBitboard(PieceType.PAWN, ColorType.BLACK);
+
+		this.key = board.getPawnHash();
+		this.midgame = 0;
+		this.endgame = 0;
+		evaluate(ColorType.WHITE, white, black, 1);
+		evaluate(ColorType.BLACK, black, white, -1);
+	}
+
+	private void evaluate(ColorType color, long own, long enemy, int sign) {
+		int side = color.ordinal();
+		long passed = 0;
+
+		for(long b = own; b != 0; b &= b - 1) {
+			int square = Long.numberOfTrailingZeros(b);
+			int file = square & 7;
+			int rank = color == ColorType.WHITE ? square >>> 3 : 7 - (square >>> 3);
+			long front = PASSED_MASK[side][square] & (Attacks.FILE_A << file);
+
+			if((own & front) != 0) {
+				this.midgame += sign * DOUBLED_MG;
+				this.endgame += sign * DOUBLED_EG;
+			}
+
+			if((own & ADJACENT_FILES[file]) == 0) {
+				this.midgame += sign * ISOLATED_MG;
+				this.endgame += sign * ISOLATED_EG;
+			} else if(rank < 7 && (own & SUPPORT_MASK[side][square]) == 0) {
+				int stop = color == ColorType.WHITE ? square + 8 : square - 8;
+				if((Attacks.pawn(stop, color) & enemy) != 0) {
+					this.midgame += sign * BACKWARD_MG;
+					this.endgame += sign * BACKWARD_EG;
+				}
+			}
+
+			if((enemy & PASSED_MASK[side][square]) == 0 && (own & front) == 0) {
+				passed |= 1L << square;
+				this.midgame += sign * PASSED_MG[rank];
+				this.endgame += sign * PASSED_EG[rank];
+			}
+		}
+		this.passed[side] = passed;
+	}
+
+	/**
+	 * @return the pawn key of the evaluated structure
+	 */
+	long getKey() { return this.key; }
+
+	/**
+	 * @return the midgame score of the structure in centipawns, positive when White is ahead
+	 */
+	public int getMidgameScore() { return this.midgame; }
+
+	/**
+	 * @return the endgame score of the structure in centipawns, positive when White is ahead
+	 */
+	public int getEndgameScore() { return this.endgame; }
+
+	/**
+	 * @param color the color of the Pawns
+	 * @return a bitboard with the passed Pawns of the color
+	 */
+	public long getPassedPawns(ColorType color) { return this.passed[color.ordinal()]; }
+
+}
@@ -0,0 +1,84 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+
+/**
+ * Cache of evaluated {@link PawnStructure pawn structures}, indexed by the pawn key of the {@link Board}.
+ * <p>
+ * Pawns move rarely, so most positions of a search share their structure with positions already evaluated
+ * and the table answers almost every probe. A new structure always replaces the one in its slot.
+ * <p>
+ * The table is not thread safe: every search thread keeps its own.
+ */
+public final class PawnTable {
+
+	public static final int DEFAULT_ENTRIES = 1 << 14;
+
+	private final PawnStructure[] entries;
+	private final int mask;
+	private long probes, hits;
+
+	public PawnTable() {
+		this(DEFAULT_ENTRIES);
+	}
+
+	/**
+	 * @param entries the number of structures kept, rounded down to a power of two
+	 */
+	public PawnTable(int entries) {
+		this.entries = new PawnStructure[Integer.highestOneBit(Math.max(1, entries))];
+		this.mask = this.entries.length - 1;
+		clear();
+	}
+
+	/**
+	 * Looks up the pawn structure of a board, evaluating and storing it if it is not in the table.
+	 *
+	 * @param board the {@link Board}
+	 * @return the structure, which stays valid until the next probe
+	 */
+	public PawnStructure probe(Board board) {
+		this.probes++;
+		long key = board.getPawnHash();
+		PawnStructure entry = this.entries[(int) key & this.mask];
+		if(entry.getKey() == key)
+			this.hits++;
+		else
+			entry.evaluate(board);
+		return entry;
+	}
+
+	/**
+	 * Removes every structure.
+	 */
+	public void clear() {
+		// a new structure has the key and the scores of the positions without Pawns, so it is a valid entry
+		for(int i = 0; i < this.entries.length; i++)
+			this.entries[i] = new PawnStructure();
+		resetStatistics();
+	}
+
+	public int getCapacity() { return this.entries.length; }
+
+	public long getProbes() { return this.probes; }
+
+	public long getHits() { return this.hits; }
+
+	/**
+	 * @return the share of the probes that found their structure (0 - 1)
+	 */
+	public double getHitRate() {
+		return this.probes == 0 ? 0 : (double) this.hits / this.probes;
+	}
+
+	public void resetStatistics() {
+		this.probes = 0;
+		this.hits = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d probes, %.1f%% hits", getCapacity(), getProbes(), getHitRate() * 100);
+	}
+
+}
@@ -0,0 +1,323 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Negamax alpha-beta search of a single thread.
+ * <p>
+ * The search deepens iteratively, one ply per iteration, and every iteration after the first few starts with
+ * an aspiration window around the previous score, widened when the score falls outside it. The principal
+ * variation of the previous iteration is searched first, then the best move stored in the shared
+ * {@link TranspositionTable}, whose entries also cut off the search of positions already searched deep enough.
+ * Only the first move of a node is searched with the full window (principal variation search): the others are
+ * searched with a null window, where the table cuts off, and again with the full window if they prove better.
+ * The other moves are picked in stages by a {@link MovePicker}: captures by MVV-LVA, then quiet moves ordered by
+ * the {@link Heuristics} learned from earlier cutoffs, generated only if no capture cut the node off.
+ * At the horizon a quiescence search resolves the pending captures before evaluating.
+ * The search stops as soon as its
+ * {@link SearchLimits} are exhausted or it is stopped, returning the last completed iteration.
+ * <p>
+ * Moves are made and unmade on the {@link Board} given to the search, which must not be used elsewhere meanwhile.
+ */
+class Search {
+
+	static final int MAX_PLY = 128;
+	static final int MATE = 32000;
+	static final int INFINITY = MATE + 1;
+	static final int DRAW = 0;
+
+	private static final int ASPIRATION_DEPTH = 4;
+	private static final int ASPIRATION_WINDOW = 25;
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final Board board;
+	private final TranspositionTable table;
+	private final PawnTable pawns;
+	private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+	private final int[][] quiets = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+	private final Heuristics heuristics = new Heuristics();
+	private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+	private int[] previousPv = new int[0];
+	private boolean followPv;
+
+	private SearchLimits limits;
+	private long startTime, deadline;
+	private long nodes;
+	private final AtomicBoolean stopped;
+
+	/**
+	 * @param board the {@link Board} to search, with the side to move set
+	 * @param table the {@link TranspositionTable} shared by the searches
+	 * @param pawns the {@link PawnTable} of this search alone
+	 * @param stopped the flag that stops the search, from any thread and even before it runs; it is set when
+	 *                the search runs out of budget, so every search sharing it stops too
+	 */
+	Search(Board board, TranspositionTable table, PawnTable pawns, AtomicBoolean stopped) {
+		this.board = board;
+		this.table = table;
+		this.pawns = pawns;
+		this.stopped = stopped;
+		for(int i = 0; i < MAX_PLY; i++)
+			this.pickers[i] = new MovePicker();
+	}
+
+	long getNodes() { return this.nodes; }
+
+	/**
+	 * Searches the position with iterative deepening.
+	 *
+	 * @param limits the budget of the search
+	 * @param listener called with the result of every completed iteration, may be {@code null}
+	 * @return the result of the deepest completed iteration
+	 */
+	SearchResult run(SearchLimits limits, Consumer<SearchResult> listener) {
+		return run(limits, listener, 1);
+	}
+
+	/**
+	 * Searches the position with iterative deepening, starting at a given depth.
+	 *
+	 * @param limits the budget of the search
+	 * @param listener called with the result of every completed iteration, may be {@code null}
+	 * @param startDepth the depth of the first iteration, helper threads start deeper to search other nodes
+	 * @return the result of the deepest completed iteration
+	 */
+	SearchResult run(SearchLimits limits, Consumer<SearchResult> listener, int startDepth) {
+		this.limits = limits;
+		this.nodes = 0;
+		this.previousPv = new int[0];
+		this.startTime = System.currentTimeMillis();
+		this.deadline = limits.getTime() == 0 ? Long.MAX_VALUE : this.startTime + limits.getTime();
+
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		if(MoveGenerator.generateLegal(this.board, legal, 0) == 0)
+			return new SearchResult(Move.NONE, this.board.isKingAttacked(this.board.getSideToMove()) ? -MATE : DRAW, 0, 0, 0, new int[0]);
+
+		// any legal move is better than none if the first iteration is interrupted
+		SearchResult result = new SearchResult(legal[0], 0, 0, 0, 0, new int[] { legal[0] });
+		int score = 0;
+
+		for(int depth = Math.min(startDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+			score = aspiration(depth, score);
+			if(this.stopped.get())
+				break;
+
+			this.previousPv = Arrays.copyOf(this.pv[0], this.pvLength[0]);
+			result = new SearchResult(this.previousPv[0], score, depth, this.nodes, elapsed(), this.previousPv);
+			if(listener != null)
+				listener.accept(result);
+
+			// a new iteration takes longer than every previous one together, so do not start it past half the budget
+			if(limits.getTime() != 0 && elapsed() * 2 >= limits.getTime())
+				break;
+		}
+
+		return result;
+	}
+
+	private long elapsed() { return System.currentTimeMillis() - this.startTime; }
+
+	/**
+	 * Searches the root with a narrow window around the previous score, widening it on every fail.
+	 */
+	private int aspiration(int depth, int previous) {
+		if(depth < ASPIRATION_DEPTH)
+			return root(depth, -INFINITY, INFINITY);
+
+		int delta = ASPIRATION_WINDOW;
+		int alpha = Math.max(previous - delta, -INFINITY), beta = Math.min(previous + delta, INFINITY);
+
+		while(true) {
+			int score = root(depth, alpha, beta);
+			if(this.stopped.get())
+				return score;
+
+			if(score <= alpha)
+				alpha = Math.max(score - delta, -INFINITY);
+			else if(score >= beta)
+				beta = Math.min(score + delta, INFINITY);
+			else
+				return score;
+
+			delta *= 2;
+		}
+	}
+
+	private int root(int depth, int alpha, int beta) {
+		this.followPv = true;
+		return search(depth, 0, alpha, beta);
+	}
+
+	/**
+	 * Fail-soft negamax with alpha-beta pruning, searching all but the first move of a node with a null window.
+	 *
+	 * @return the score of the position from the point of view of the side to move
+	 */
+	private int search(int depth, int ply, int alpha, int beta) {
+		this.pvLength[ply] = ply;
+		if(isOutOfBudget())
+			return 0;
+
+		if(ply > 0 && (this.board.getHalfmoveClock() >= 100 || this.board.getRepetitions() > 0 || this.board.isInsufficientMaterial()))
+			return DRAW;
+		if(depth <= 0)
+			return quiesce(ply, alpha, beta);
+		if(ply >= MAX_PLY - 1)
+			return Evaluation.evaluate(this.board, this.pawns);
+
+		long key = this.board.getHash();
+		long entry = this.table.probe(key);
+		int ttMove = Move.NONE;
+		if(entry != 0) {
+			ttMove = TranspositionTable.getMove(entry);
+
+			// the principal variation is only cut off on null window nodes, so it is still reported whole
+			if(ply > 0 && beta - alpha == 1 && TranspositionTable.getDepth(entry) >= depth) {
+				int score = TranspositionTable.scoreFromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if(bound == TranspositionTable.BOUND_EXACT
+						|| (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+						|| (bound == TranspositionTable.BOUND_UPPER && score <= alpha))
+					return score;
+			}
+		}
+
+		// the previous principal variation comes first, only its first move at each node continues it
+		boolean followPv = this.followPv && ply < this.previousPv.length;
+		int hashMove = followPv ? this.previousPv[ply] : ttMove;
+		MovePicker picker = this.pickers[ply];
+		picker.init(this.board, hashMove, ply, this.heuristics);
+
+		int[] quiets = this.quiets[ply];
+		int best = -INFINITY, bestMove = Move.NONE, originalAlpha = alpha, count = 0, quietCount = 0;
+		for(int move; (move = picker.next()) != Move.NONE; ) {
+			// counted before searching it, as a cutoff leaves the loop
+			boolean first = count++ == 0;
+			this.followPv = followPv && first && move == hashMove;
+			this.board.makeMove(move);
+			int score;
+			if(first)
+				score = -search(depth - 1, ply + 1, -beta, -alpha);
+			else {
+				// principal variation search: the later moves are only proven worse than the best one, with a null
+				// window, and searched again with the full window if one is better
+				score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+				if(score > alpha && score < beta && !this.stopped.get())
+					score = -search(depth - 1, ply + 1, -beta, -alpha);
+			}
+			this.board.unmakeMove();
+			this.followPv = false;
+
+			if(this.stopped.get())
+				return 0;
+
+			boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+			if(score > best) {
+				best = score;
+				if(score > alpha) {
+					alpha = score;
+					bestMove = move;
+					updatePv(ply, move);
+					if(alpha >= beta) {
+						if(quiet)
+							this.heuristics.update(this.board, ply, depth, move, quiets, quietCount);
+						break;
+					}
+				}
+			}
+			if(quiet)
+				quiets[quietCount++] = move;
+		}
+
+		if(count == 0)
+			return this.board.isKingAttacked(this.board.getSideToMove()) ? -MATE + ply : DRAW;
+
+		int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+				: best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+		this.table.store(key, bestMove, TranspositionTable.scoreToTable(best, ply), depth, bound);
+		return best;
+	}
+
+	/**
+	 * Quiescence search: resolves the captures and promotions left at the horizon, so positions are only
+	 * evaluated once they are quiet. The side to move may stand pat on the static evaluation instead of
+	 * capturing, and captures that lose material by {@link StaticExchange static exchange} are not searched.
+	 * In check every evasion is searched, as standing pat is not an option.
+	 *
+	 * @return the score of the position from the point of view of the side to move
+	 */
+	private int quiesce(int ply, int alpha, int beta) {
+		this.pvLength[ply] = ply;
+		if(isOutOfBudget())
+			return 0;
+		if(ply >= MAX_PLY - 1)
+			return Evaluation.evaluate(this.board, this.pawns);
+
+		boolean inCheck = this.board.isKingAttacked(this.board.getSideToMove());
+		MovePicker picker = this.pickers[ply];
+		int best;
+		if(inCheck) {
+			best = -INFINITY;
+			picker.init(this.board, Move.NONE, ply, this.heuristics);
+		} else {
+			best = Evaluation.evaluate(this.board, this.pawns);
+			if(best >= beta)
+				return best;
+			alpha = Math.max(alpha, best);
+			picker.initQuiescence(this.board, ply);
+		}
+
+		int count = 0;
+		for(int move; (move = picker.next()) != Move.NONE; ) {
+			// counted before searching it, as a cutoff leaves the loop
+			count++;
+			this.board.makeMove(move);
+			int score = -quiesce(ply + 1, -beta, -alpha);
+			this.board.unmakeMove();
+
+			if(this.stopped.get())
+				return 0;
+
+			if(score > best) {
+				best = score;
+				if(score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if(alpha >= beta)
+						break;
+				}
+			}
+		}
+
+		if(inCheck && count == 0)
+			return -MATE + ply;
+		return best;
+	}
+
+	/**
+	 * Counts a node and stops the search once its node or time budget is spent.
+	 *
+	 * @return {@code true} if the search is stopped
+	 */
+	private boolean isOutOfBudget() {
+		if(++this.nodes >= this.limits.getNodes()
+				|| ((this.nodes & (CHECK_INTERVAL - 1)) == 0 && System.currentTimeMillis() >= this.deadline))
+			this.stopped.set(true);
+		return this.stopped.get();
+	}
+
+	private void updatePv(int ply, int move) {
+		int[] line = this.pv[ply], child = this.pv[ply + 1];
+		line[ply] = move;
+		System.arraycopy(child, ply + 1, line, ply + 1, this.pvLength[ply + 1] - ply - 1);
+		this.pvLength[ply] = this.pvLength[ply + 1];
+	}
+
+}
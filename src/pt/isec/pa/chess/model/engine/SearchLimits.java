@@ -0,0 +1,71 @@
+package pt.isec.pa.chess.model.engine;
+
+/**
+ * Budget of a search: the deepest iteration, the number of nodes and the time it may use.
+ * <p>
+ * The search stops at whichever limit is reached first. Limits are immutable, the {@code with*} methods
+ * return a copy with one of the limits changed.
+ */
+public final class SearchLimits {
+
+	public static final int MAX_DEPTH = Search.MAX_PLY - 1;
+
+	private final int depth;
+	private final long nodes;
+	private final long timeMillis;
+
+	private SearchLimits(int depth, long nodes, long timeMillis) {
+		this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+		this.nodes = nodes <= 0 ? Long.MAX_VALUE : nodes;
+		this.timeMillis = Math.max(0, timeMillis);
+	}
+
+	/**
+	 * @return limits that only stop the search when it is stopped explicitly or reaches {@link #MAX_DEPTH}
+	 */
+	public static SearchLimits infinite() { return new SearchLimits(MAX_DEPTH, 0, 0); }
+
+	/**
+	 * @param depth the deepest iteration to search
+	 * @return limits stopping the search after the given depth
+	 */
+	public static SearchLimits depth(int depth) { return new SearchLimits(depth, 0, 0); }
+
+	/**
+	 * @param nodes the number of nodes to search
+	 * @return limits stopping the search after the given number of nodes
+	 */
+	public static SearchLimits nodes(long nodes) { return new SearchLimits(MAX_DEPTH, nodes, 0); }
+
+	/**
+	 * @param timeMillis the time to search, in milliseconds
+	 * @return limits stopping the search after the given time
+	 */
+	public static SearchLimits time(long timeMillis) { return new SearchLimits(MAX_DEPTH, 0, timeMillis); }
+
+	public SearchLimits withDepth(int depth) { return new SearchLimits(depth, this.nodes, this.timeMillis); }
+
+	public SearchLimits withNodes(long nodes) { return new SearchLimits(this.depth, nodes, this.timeMillis); }
+
+	public SearchLimits withTime(long timeMillis) { return new SearchLimits(this.depth, this.nodes, timeMillis); }
+
+	public int getDepth() { return this.depth; }
+
+	/**
+	 * @return the number of nodes to search, {@link Long#MAX_VALUE} if unlimited
+	 */
+	public long getNodes() { return this.nodes; }
+
+	/**
+	 * @return the time to search in milliseconds, {@code 0} if unlimited
+	 */
+	public long getTime() { return this.timeMillis; }
+
+	@Override
+	public String toString() {
+		return "depth " + this.depth
+				+ (this.nodes == Long.MAX_VALUE ? "" : " nodes " + this.nodes)
+				+ (this.timeMillis == 0 ? "" : " time " + this.timeMillis + "ms");
+	}
+
+}
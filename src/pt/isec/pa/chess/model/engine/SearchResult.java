@@ -0,0 +1,53 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Move;
+
+/**
+ * Outcome of a completed search iteration.
+ *
+ * @param move the best packed {@link Move}, or {@link Move#NONE} if the position has no legal move
+ * @param score the score of the best move in centipawns, from the point of view of the side to move
+ * @param depth the depth of the iteration
+ * @param nodes the number of nodes searched since the search started
+ * @param timeMillis the time elapsed since the search started
+ * @param pv the principal variation, starting with the best move
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long timeMillis, int[] pv) {
+
+	/**
+	 * @return {@code true} if the score is a forced checkmate, for either side
+	 */
+	public boolean isMate() { return Math.abs(this.score) >= Search.MATE - Search.MAX_PLY; }
+
+	/**
+	 * @return the number of moves until checkmate, negative if the side to move is the one mated, or {@code 0} if the score is not a mate
+	 */
+	public int getMateIn() {
+		if(!isMate()) return 0;
+		return this.score > 0 ? (Search.MATE - this.score + 1) / 2 : -(Search.MATE + this.score) / 2;
+	}
+
+	/**
+	 * @return the nodes searched per second
+	 */
+	public long getNodesPerSecond() { return this.timeMillis == 0 ? this.nodes * 1000 : this.nodes * 1000 / this.timeMillis; }
+
+	/**
+	 * @return the principal variation in coordinate notation, separated by spaces
+	 */
+	public String getPvString() {
+		StringBuilder sb = new StringBuilder();
+		for(int move : this.pv) {
+			if(!sb.isEmpty()) sb.append(' ');
+			sb.append(Move.toString(move));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "depth " + this.depth + " score " + (isMate() ? "mate " + getMateIn() : "cp " + this.score)
+				+ " nodes " + this.nodes + " time " + this.timeMillis + " pv " + getPvString();
+	}
+
+}
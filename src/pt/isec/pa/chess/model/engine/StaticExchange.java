@@ -0,0 +1,140 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.Piece;
+import pt.isec.pa.chess.model.data.PieceType;
+
+/**
+ * Static exchange evaluation (SEE): the material won or lost by a sequence of captures on one square,
+ * worked out from the attack tables without making any move.
+ * <p>
+ * Both sides capture with their least valuable attacker first and may stop capturing whenever continuing
+ * would lose material. Sliding pieces behind the capturers (x-rays) join the exchange as the pieces in
+ * front of them are removed. Pins and checks are ignored, so the result is an estimate.
+ */
+public final class StaticExchange {
+
+	/** Capture order, least valuable first. */
+	private static final PieceType[] ORDER = {
+			PieceType.PAWN, PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN, PieceType.KING
+	};
+
+	/** Worth more than every other piece together, so the King never captures into a defended square. */
+	private static final int KING_VALUE = 20000;
+
+	private static final int MAX_EXCHANGES = 32;
+
+	private StaticExchange() {}
+
+	/**
+	 * Evaluates the exchange started by a move.
+	 *
+	 * @param board the {@link Board} before the move
+	 * @param move the packed {@link Move}, usually a capture or a promotion
+	 * @return the material won by the side making the move in centipawns, negative if it loses material
+	 */
+	public static int evaluate(Board board, int move) {
+		if(Move.isCastle(move))
+			return 0;
+
+		int from = Move.getFrom(move), to = Move.getTo(move);
+		long occupied = board.getOccupied() ^ (1L << from);
+
+		int gain;
+		if(Move.getFlag(move) == Move.FLAG_EN_PASSANT) {
+			gain = Evaluation.getValue(PieceType.PAWN);
+			occupied ^= 1L << (to + (board.getSideToMove() == ColorType.WHITE ? -8 : 8));
+		} else {
+			Piece victim = board.getPiece(to);
+			gain = victim == null ? 0 : getValue(victim.getType());
+		}
+
+		Piece attacker = board.getPiece(from);
+		int attackerValue = getValue(attacker.getType());
+		PieceType promotion = Move.getPromotion(move);
+		if(promotion != null) {
+			gain += getValue(promotion) - attackerValue;
+			attackerValue = getValue(promotion);
+		}
+
+		return exchange(board, to, occupied, gain, attackerValue, ColorType.getOpponent(attacker.getColor()));
+	}
+
+	/**
+	 * Checks whether the opponent can win material by capturing the piece on a square, e.g. an undefended
+	 * piece or a Rook attacked by a Bishop.
+	 *
+	 * @param board the {@link Board}
+	 * @param square the square index (0 - 63) of the piece
+	 * @return {@code true} if the best capture of the piece wins material; {@code false} otherwise or if the square is empty
+	 */
+	public static boolean isHanging(Board board, int square) {
+		Piece piece = board.getPiece(square);
+		if(piece == null || piece.getType() == PieceType.KING)
+			return false;
+
+		ColorType opponent = ColorType.getOpponent(piece.getColor());
+		long attackers = board.getAttackers(square, board.getOccupied()) & board.getOccupancy(opponent);
+		for(PieceType type : ORDER) {
+			long bits = attackers & board.getBitboard(type, opponent);
+			if(bits != 0) {
+				int from = Long.numberOfTrailingZeros(bits);
+				return evaluate(board, Move.create(from, square, Move.FLAG_CAPTURE)) > 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Plays out the exchange with a swap list: {@code gains[d]} is the material won by the side that made
+	 * capture {@code d} if the exchange stopped after it, which is then minimaxed from the last capture back.
+	 *
+	 * @param occupied the occupied squares after the first capture
+	 * @param gain the material won by the first capture
+	 * @param attackerValue the value of the piece now on the square
+	 * @param side the color of the side to capture next
+	 */
+	private static int exchange(Board board, int to, long occupied, int gain, int attackerValue, ColorType side) {
+		int[] gains = new int[MAX_EXCHANGES];
+		gains[0] = gain;
+
+		long attackers = board.getAttackers(to, occupied) & occupied;
+		int d = 0;
+		while(d < MAX_EXCHANGES - 1) {
+			long bits = 0;
+			PieceType type = null;
+			long own = attackers & board.getOccupancy(side);
+			for(PieceType t : ORDER) {
+				bits = own & board.getBitboard(t, side);
+				if(bits != 0) {
+					type = t;
+					break;
+				}
+			}
+			if(type == null)
+				break;
+
+			d++;
+			gains[d] = attackerValue - gains[d - 1];
+
+			occupied ^= Long.lowestOneBit(bits);
+			if(type == PieceType.PAWN || type == PieceType.BISHOP || type == PieceType.ROOK || type == PieceType.QUEEN)
+				attackers = board.getAttackers(to, occupied);
+			attackers &= occupied;
+
+			attackerValue = getValue(type);
+			side = ColorType.getOpponent(side);
+		}
+
+		for(; d > 0; d--)
+			gains[d - 1] = -Math.max(-gains[d - 1], gains[d]);
+		return gains[0];
+	}
+
+	private static int getValue(PieceType type) {
+		return type == PieceType.KING ? KING_VALUE : Evaluation.getValue(type);
+	}
+
+}
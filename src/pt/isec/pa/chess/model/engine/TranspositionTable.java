@@ -0,0 +1,281 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.data.Move;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Fixed-size hash table of searched positions, shared without locks by every search thread.
+ * <p>
+ * Each entry takes two {@code long} slots: the Zobrist key XOR-ed with the data, and the data itself.
+ * The data packs the best move, the score, the depth, the bound type and the search generation (see {@link #pack}).
+ * As the two slots are written separately, a concurrent write can tear an entry; the XOR makes such an entry
+ * no longer match its key, so a torn entry reads as a miss instead of returning another position's data.
+ * <p>
+ * Entries are grouped in clusters of four (one 64 byte cache line). A new entry replaces the entry of the same
+ * position, else the cluster entry with the lowest depth, with entries of older searches replaced first.
+ * <p>
+ * The slots live in an {@link ITableMemory}: on the Java heap by default, or off-heap for tables of gigabytes
+ * (see {@link #offHeap(int)} and {@link #mapped(Path, int)}).
+ */
+public final class TranspositionTable {
+
+	public static final int BOUND_UPPER = 1;
+	public static final int BOUND_LOWER = 2;
+	public static final int BOUND_EXACT = 3;
+
+	private static final int ENTRY_BYTES = 2 * Long.BYTES;
+	private static final int CLUSTER = 4;
+	private static final int AGE_WEIGHT = 8;
+
+	private static final long MAX_ENTRIES = 1L << 29;
+
+	private final IntFunction<ITableMemory> allocator;
+	private ITableMemory table;
+	private int mask;
+	private int generation;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Creates a table on the Java heap.
+	 *
+	 * @param megabytes the size of the table in megabytes, rounded down to a power of two number of entries
+	 */
+	public TranspositionTable(int megabytes) {
+		this(megabytes, HeapMemory::new);
+	}
+
+	/**
+	 * Creates a table on the memory given by an allocator.
+	 *
+	 * @param megabytes the size of the table in megabytes, rounded down to a power of two number of entries
+	 * @param allocator creates the memory with the given number of slots, also used by {@link #resize(int)}
+	 */
+	public TranspositionTable(int megabytes, IntFunction<ITableMemory> allocator) {
+		this.allocator = allocator;
+		resize(megabytes);
+	}
+
+	/**
+	 * Creates a table in direct memory, outside the Java heap.
+	 *
+	 * @param megabytes the size of the table in megabytes
+	 * @return the table
+	 */
+	public static TranspositionTable offHeap(int megabytes) {
+		return new TranspositionTable(megabytes, OffHeapMemory::allocate);
+	}
+
+	/**
+	 * Creates a table mapped from a file, so its entries survive a restart. Call {@link #close()} to write them back.
+	 *
+	 * @param file the file backing the table
+	 * @param megabytes the size of the table in megabytes
+	 * @return the table
+	 */
+	public static TranspositionTable mapped(Path file, int megabytes) {
+		return new TranspositionTable(megabytes, size -> OffHeapMemory.map(file, size));
+	}
+
+	/**
+	 * Resizes the table, discarding every entry. Must not be called while a search is running.
+	 *
+	 * @param megabytes the size of the table in megabytes (at least 1)
+	 */
+	public void resize(int megabytes) {
+		long entries = Long.highestOneBit(Math.max(1, megabytes) * 1024L * 1024L / ENTRY_BYTES);
+		entries = Math.min(entries, MAX_ENTRIES);
+
+		if(this.table != null)
+			this.table.close();
+		this.table = this.allocator.apply((int) (entries * 2));
+		this.mask = (int) (entries / CLUSTER - 1);
+		this.generation = 0;
+		resetStatistics();
+	}
+
+	/**
+	 * Removes every entry. Must not be called while a search is running.
+	 */
+	public void clear() {
+		this.table.clear();
+		this.generation = 0;
+		resetStatistics();
+	}
+
+	/**
+	 * Releases the memory of the table, writing it back to its file if it is mapped.
+	 */
+	public void close() {
+		this.table.close();
+	}
+
+	/**
+	 * Starts a new search generation, so the entries of previous searches are replaced first.
+	 */
+	public void newSearch() {
+		this.generation = (this.generation + 1) & 0x3F;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key the Zobrist key of the position
+	 * @return the packed data of the entry, or {@code 0} if the position is not in the table
+	 */
+	public long probe(long key) {
+		this.probes.increment();
+		int base = index(key);
+		for(int i = base; i < base + CLUSTER * 2; i += 2) {
+			long data = this.table.get(i + 1);
+			if((this.table.get(i) ^ data) == key && data != 0) {
+				this.hits.increment();
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Stores the result of a search of a position.
+	 *
+	 * @param key the Zobrist key of the position
+	 * @param move the best packed {@link Move}, or {@link Move#NONE} to keep the move already stored
+	 * @param score the score, with mate scores made relative to the position (see {@link #scoreToTable})
+	 * @param depth the depth searched
+	 * @param bound {@link #BOUND_EXACT}, {@link #BOUND_LOWER} or {@link #BOUND_UPPER}
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+		int base = index(key), victim = base, victimWorth = Integer.MAX_VALUE;
+
+		for(int i = base; i < base + CLUSTER * 2; i += 2) {
+			long data = this.table.get(i + 1);
+			if(data == 0 || (this.table.get(i) ^ data) == key) {
+				// a shallower result of the same position keeps the deeper one, unless it is exact
+				if(data != 0) {
+					if(bound != BOUND_EXACT && depth < getDepth(data) - 2 && getAge(data) == this.generation)
+						return;
+					if(move == Move.NONE)
+						move = getMove(data);
+				}
+				victim = i;
+				break;
+			}
+
+			int age = (this.generation - getAge(data)) & 0x3F;
+			int worth = getDepth(data) - AGE_WEIGHT * age;
+			if(worth < victimWorth) {
+				victimWorth = worth;
+				victim = i;
+			}
+		}
+
+		long data = pack(move, score, depth, bound, this.generation);
+		this.table.set(victim, key ^ data);
+		this.table.set(victim + 1, data);
+		this.stores.increment();
+	}
+
+	private int index(long key) {
+		return ((int) (key >>> 32) & this.mask) * CLUSTER * 2;
+	}
+
+	/**
+	 * Packs an entry: bits 0 - 15 the move, 16 - 31 the score, 32 - 39 the depth, 40 - 41 the bound, 42 - 47 the generation.
+	 */
+	private static long pack(int move, int score, int depth, int bound, int generation) {
+		return (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+				| ((long) bound << 40) | ((long) generation << 42);
+	}
+
+	public static int getMove(long data) { return (int) (data & 0xFFFF); }
+
+	public static int getScore(long data) { return (short) (data >>> 16); }
+
+	public static int getDepth(long data) { return (int) ((data >>> 32) & 0xFF); }
+
+	public static int getBound(long data) { return (int) ((data >>> 40) & 3); }
+
+	private static int getAge(long data) { return (int) ((data >>> 42) & 0x3F); }
+
+	/**
+	 * Mate scores are stored as the distance from the stored position, not from the root.
+	 *
+	 * @param score the score relative to the root
+	 * @param ply the distance of the position from the root
+	 * @return the score to store
+	 */
+	public static int scoreToTable(int score, int ply) {
+		if(score >= Search.MATE - Search.MAX_PLY) return score + ply;
+		if(score <= -Search.MATE + Search.MAX_PLY) return score - ply;
+		return score;
+	}
+
+	/**
+	 * @param score the stored score
+	 * @param ply the distance of the position from the root
+	 * @return the score relative to the root
+	 */
+	public static int scoreFromTable(int score, int ply) {
+		if(score >= Search.MATE - Search.MAX_PLY) return score - ply;
+		if(score <= -Search.MATE + Search.MAX_PLY) return score + ply;
+		return score;
+	}
+
+	/**
+	 * @return the size of the table in bytes
+	 */
+	public long getSize() { return (long) this.table.size() * Long.BYTES; }
+
+	/**
+	 * @return the number of entries the table holds
+	 */
+	public int getCapacity() { return this.table.size() / 2; }
+
+	public long getProbes() { return this.probes.sum(); }
+
+	public long getHits() { return this.hits.sum(); }
+
+	public long getStores() { return this.stores.sum(); }
+
+	/**
+	 * @return the share of the probes that found their position (0 - 1)
+	 */
+	public double getHitRate() {
+		long probes = getProbes();
+		return probes == 0 ? 0 : (double) getHits() / probes;
+	}
+
+	/**
+	 * Estimates how full the table is from a sample of its first entries, counting only the current search.
+	 *
+	 * @return the used entries per thousand (0 - 1000)
+	 */
+	public int getFill() {
+		int sample = Math.min(1000, getCapacity()), used = 0;
+		for(int i = 0; i < sample; i++) {
+			long data = this.table.get(i * 2 + 1);
+			if(data != 0 && getAge(data) == this.generation)
+				used++;
+		}
+		return used * 1000 / sample;
+	}
+
+	public void resetStatistics() {
+		this.probes.reset();
+		this.hits.reset();
+		this.stores.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d MB, %d entries, %d probes, %.1f%% hits, %d stores, %d permille full",
+				getSize() >> 20, getCapacity(), getProbes(), getHitRate() * 100, getStores(), getFill());
+	}
+
+}
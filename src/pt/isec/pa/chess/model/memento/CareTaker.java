@@ -1,47 +1,320 @@
 package pt.isec.pa.chess.model.memento;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo/redo history of an {@link IOriginator}, kept as a tree of variations within a memory budget.
+ * <p>
+ * Every change is a node holding a small memento, whose parent is the change it was made after. A change made
+ * after an undo starts a new variation next to the ones already there, which stay available to
+ * {@link #redo(int) redo}, and a change equal to one of them follows it instead of copying it. {@link #redo()}
+ * follows the variation visited last.
+ * <p>
+ * Every few changes a full checkpoint of the originator is kept too, so {@link #undo(int) jumping back} many
+ * changes restores the nearest checkpoint and replays the changes after it instead of undoing them one by one.
+ * <p>
+ * When the history takes more than the budget, the oldest checkpoints are dropped first (the changes still
+ * undo past them) and then the oldest changes, with the variations that leave the current line before them.
+ * The changes that can still be redone are kept, so the history may stay above a budget smaller than them.
+ * What the originator keeps to undo the changes counts in the budget too, and it is told to
+ * {@link IOriginator#forget forget} the changes dropped.
+ */
+public final class CareTaker {
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+	/** Bytes of a node with compressed references: header, six references and the change number. */
+	private static final long NODE_BYTES = 48;
+
+	/** A change of the history and the variations after it. */
+	private static final class Node {
+		final long change;
+		Node parent;
+		IMemento memento;
+		IMemento checkpoint;
+		Node firstChild, nextSibling, selected;
+
+		Node(Node parent, IMemento memento) {
+			this.parent = parent;
+			this.change = parent == null ? 0 : parent.change + 1;
+			this.memento = memento;
+		}
+	}
 
-public class CareTaker {
 	IOriginator originator;
 
-	Deque<IMemento> undo;
-	Deque<IMemento> redo;
+	Node root;
+	Node current;
+	/** The nodes with a checkpoint, the oldest first. */
+	Deque<Node> checkpoints;
+
+	private long budget;
+	private int interval;
+	private long footprint;
 
 	public CareTaker(IOriginator originator) {
 		this.originator = originator;
-		undo = new ArrayDeque<>();
-		redo = new ArrayDeque<>();
+		checkpoints = new ArrayDeque<>();
+		budget = Long.MAX_VALUE;
+		interval = DEFAULT_CHECKPOINT_INTERVAL;
+		reset();
 	}
 
 
+	/**
+	 * Records the change the originator just made, as a new variation if the current change already has others.
+	 */
 	public void save() {
-		redo.clear();
-		undo.push(originator.save());
+		IMemento memento = originator.save();
+		Node node = current.firstChild;
+		while (node != null && !node.memento.equals(memento))
+			node = node.nextSibling;
+
+		if (node == null) {
+			node = new Node(current, memento);
+			node.nextSibling = current.firstChild;
+			current.firstChild = node;
+			footprint += NODE_BYTES + memento.getSize();
+		}
+		current.selected = node;
+		current = node;
+
+		if (node.change % interval == 0 && node.checkpoint == null)
+			addCheckpoint(node);
+		compact();
+	}
+
+	/**
+	 * Records again the last change, which the originator completed after it was saved. If the change is now
+	 * equal to another variation, that variation is followed instead, as by {@link #save()}.
+	 */
+	public void amend() {
+		if (current == root)
+			return;
+
+		IMemento memento = originator.save();
+		Node parent = current.parent, same = parent.firstChild;
+		while (same != null && (same == current || !same.memento.equals(memento)))
+			same = same.nextSibling;
+		if (same != null && current.firstChild == null) {
+			drop(current);
+			parent.selected = same;
+			current = same;
+			if (same.change % interval == 0 && same.checkpoint == null)
+				addCheckpoint(same);
+			compact();
+			return;
+		}
+
+		replace(current, memento);
+		if (current.checkpoint != null) {
+			footprint -= current.checkpoint.getSize();
+			checkpoints.remove(current);
+			addCheckpoint(current);
+		}
+		compact();
 	}
 
 	public void undo() {
-		if (undo.isEmpty())
+		if (current == root)
+			return;
+		replace(current, originator.undo(current.memento));
+		current = current.parent;
+	}
+
+	/**
+	 * Undoes several changes at once. If a checkpoint is closer to the change to go back to than the current one,
+	 * the checkpoint is restored and the changes after it are made again.
+	 *
+	 * @param changes the number of changes to undo, at most the ones that can be undone
+	 */
+	public void undo(int changes) {
+		Node target = current;
+		for (int i = 0; i < changes && target != root; i++)
+			target = target.parent;
+
+		Node checkpoint = target;
+		while (checkpoint != null && checkpoint.checkpoint == null)
+			checkpoint = checkpoint.parent;
+
+		if (checkpoint == null || target.change - checkpoint.change >= current.change - target.change) {
+			while (current != target)
+				undo();
 			return;
-		redo.push(originator.save());
-		originator.restore(undo.pop());
+		}
+
+		List<Node> replay = new ArrayList<>();
+		for (Node node = target; node != checkpoint; node = node.parent)
+			replay.add(node);
+
+		originator.restore(checkpoint.checkpoint);
+		for (int i = replay.size() - 1; i >= 0; i--)
+			replace(replay.get(i), originator.redo(replay.get(i).memento));
+		current = target;
 	}
 
+	/**
+	 * Makes again the change of the variation visited last.
+	 */
 	public void redo() {
-		if (redo.isEmpty())
+		if (!hasRedo())
 			return;
-		undo.push(originator.save());
-		originator.restore(redo.pop());
+		redo(current.selected != null ? current.selected : current.firstChild);
+	}
+
+	/**
+	 * Makes again the change of a variation.
+	 *
+	 * @param variation the index of the variation, in the order of {@link #getVariations()}
+	 */
+	public void redo(int variation) {
+		Node node = variation < 0 ? null : current.firstChild;
+		for (int i = 0; i < variation && node != null; i++)
+			node = node.nextSibling;
+		if (node == null)
+			throw new IllegalArgumentException("There is no variation " + variation);
+		redo(node);
+	}
+
+	private void redo(Node node) {
+		replace(node, originator.redo(node.memento));
+		current.selected = node;
+		current = node;
+	}
+
+	/**
+	 * @return the mementos of the changes that can be redone, the most recent variation first
+	 */
+	public List<IMemento> getVariations() {
+		List<IMemento> variations = new ArrayList<>();
+		for (Node node = current.firstChild; node != null; node = node.nextSibling)
+			variations.add(node.memento);
+		return variations;
 	}
 
 	public void reset() {
-		undo.clear();
-		redo.clear();
+		root = new Node(null, null);
+		current = root;
+		checkpoints.clear();
+		footprint = 0;
+	}
+
+	public boolean hasUndo() { return current != root; }
+
+	public boolean hasRedo() { return current.firstChild != null; }
+
+	/**
+	 * @return the number of changes that can be undone
+	 */
+	public int getUndoCount() { return (int) (current.change - root.change); }
+
+	/**
+	 * @return the bytes taken by the changes and checkpoints kept, and by what the originator keeps to undo them
+	 */
+	public long getFootprint() { return footprint + getUndoCount() * originator.getChangeSize(); }
+
+	public long getBudget() { return budget; }
+
+	/**
+	 * Limits the bytes taken by the history, dropping its oldest changes when needed.
+	 *
+	 * @param budget the most bytes the history may take, {@link Long#MAX_VALUE} for no limit
+	 */
+	public void setBudget(long budget) {
+		if (budget <= 0)
+			throw new IllegalArgumentException("The budget must be positive");
+		this.budget = budget;
+		compact();
 	}
 
-	public boolean hasUndo() { return !undo.isEmpty(); }
+	public int getCheckpointInterval() { return interval; }
 
-	public boolean hasRedo() { return !redo.isEmpty(); }
+	/**
+	 * @param interval the number of changes between two checkpoints
+	 */
+	public void setCheckpointInterval(int interval) {
+		if (interval <= 0)
+			throw new IllegalArgumentException("The checkpoint interval must be positive");
+		this.interval = interval;
+	}
+
+	private void addCheckpoint(Node node) {
+		node.checkpoint = originator.checkpoint();
+		checkpoints.addLast(node);
+		footprint += node.checkpoint.getSize();
+	}
+
+	/**
+	 * Removes a change without variations after it from the variations of its parent.
+	 */
+	private void drop(Node node) {
+		Node parent = node.parent;
+		if (parent.firstChild == node)
+			parent.firstChild = node.nextSibling;
+		else {
+			Node previous = parent.firstChild;
+			while (previous.nextSibling != node)
+				previous = previous.nextSibling;
+			previous.nextSibling = node.nextSibling;
+		}
+		if (node.checkpoint != null) {
+			footprint -= node.checkpoint.getSize();
+			checkpoints.remove(node);
+		}
+		footprint -= NODE_BYTES + node.memento.getSize();
+	}
+
+	private void replace(Node node, IMemento memento) {
+		footprint += memento.getSize() - node.memento.getSize();
+		node.memento = memento;
+	}
+
+	/**
+	 * Drops the oldest checkpoints, then the oldest changes, until the history fits in the budget.
+	 */
+	private void compact() {
+		while (getFootprint() > budget && !checkpoints.isEmpty()) {
+			Node node = checkpoints.pollFirst();
+			footprint -= node.checkpoint.getSize();
+			node.checkpoint = null;
+		}
+
+		Node first = root;
+		while (getFootprint() > budget && current != root) {
+			// the change after the root on the current line becomes the root, the other variations are dropped
+			Node next = current;
+			while (next.parent != root)
+				next = next.parent;
+
+			for (Node node = root.firstChild; node != null; node = node.nextSibling)
+				if (node != next)
+					footprint -= getSize(node);
+			footprint -= NODE_BYTES + next.memento.getSize();
+
+			next.parent = null;
+			next.memento = null;
+			next.nextSibling = null;
+			root = next;
+		}
+		if (root != first)
+			originator.forget(getUndoCount());
+	}
+
+	/**
+	 * @return the bytes taken by a node and the variations after it
+	 */
+	private static long getSize(Node node) {
+		long size = 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			Node n = stack.pop();
+			size += NODE_BYTES + n.memento.getSize();
+			for (Node child = n.firstChild; child != null; child = child.nextSibling)
+				stack.push(child);
+		}
+		return size;
+	}
 
 }
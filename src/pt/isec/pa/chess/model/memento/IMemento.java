@@ -2,4 +2,9 @@ package pt.isec.pa.chess.model.memento;
 
 public interface IMemento {
 	default Object getSnapshot() { return null; }
+
+	/**
+	 * @return an estimate of the bytes the memento takes in memory
+	 */
+	long getSize();
 }
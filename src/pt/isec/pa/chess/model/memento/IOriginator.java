@@ -1,6 +1,50 @@
 package pt.isec.pa.chess.model.memento;
 
+/**
+ * Object whose changes are recorded by a {@link CareTaker} as {@link IMemento mementos} that undo and redo them.
+ * <p>
+ * The memento of a change must be the same, whether returned by {@link #save()} or by {@link #undo}, so the
+ * changes after a {@link #checkpoint()} can be replayed with {@link #redo} once it is restored.
+ */
 public interface IOriginator {
+	/**
+	 * @return a memento of the change just made
+	 */
 	IMemento save();
-	void restore(IMemento memento);
+
+	/**
+	 * Reverts the change recorded in a memento, the last one not reverted.
+	 *
+	 * @return the memento that makes the change again
+	 */
+	IMemento undo(IMemento memento);
+
+	/**
+	 * Makes again the change recorded in a memento, the last one reverted.
+	 *
+	 * @return the memento that reverts the change
+	 */
+	IMemento redo(IMemento memento);
+
+	/**
+	 * @return a memento of the whole state of the originator
+	 */
+	IMemento checkpoint();
+
+	/**
+	 * Brings back the state recorded by {@link #checkpoint()}.
+	 */
+	void restore(IMemento checkpoint);
+
+	/**
+	 * @return the bytes the originator keeps to undo each change, counted in the budget of the care taker
+	 */
+	default long getChangeSize() { return 0; }
+
+	/**
+	 * Forgets what undoes the changes before the last ones, which the care taker dropped from its history.
+	 *
+	 * @param changes the number of changes that can still be undone
+	 */
+	default void forget(int changes) {}
 }
@@ -15,6 +15,14 @@ public class Memento implements IMemento {
 		} catch (Exception e) { snapshot = null; }
 	}
 
+	/**
+	 * @return the bytes of the serialized object, with the headers of the memento and of the array
+	 */
+	@Override
+	public long getSize() {
+		return snapshot == null ? 16 : 32 + snapshot.length;
+	}
+
 	@Override
 	public Object getSnapshot() {
 		if (snapshot == null) return null;
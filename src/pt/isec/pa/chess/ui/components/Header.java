@@ -117,6 +117,7 @@ public class Header extends MenuBar {
 			FileChooser fileChooser = new FileChooser();
 			fileChooser.setTitle("Import Game");
 			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files (*.txt)", "*.txt"));
+			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Positions (*.fen, *.epd)", "*.fen", "*.epd"));
 
 			File file = fileChooser.showOpenDialog(getScene().getWindow());
 			if(file == null || file.isDirectory() || !file.canRead())
@@ -131,9 +132,10 @@ public class Header extends MenuBar {
 			fileChooser.setTitle("Export Game");
 			fileChooser.setInitialFileName("ChessGame.txt");
 			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files (*.txt)", "*.txt"));
+			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Positions (*.fen, *.epd)", "*.fen", "*.epd"));
 
 			File file = fileChooser.showSaveDialog(getScene().getWindow());
-			if(file == null || !file.getName().endsWith(".txt"))
+			if(file == null || !file.getName().matches(".*\\.(txt|fen|epd)"))
 				return;
 
 			model.exportGame(file);
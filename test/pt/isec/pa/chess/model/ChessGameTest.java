@@ -1,7 +1,15 @@
 package pt.isec.pa.chess.model;
 
 import org.junit.Test;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
 import pt.isec.pa.chess.model.data.MoveType;
+import pt.isec.pa.chess.model.data.PieceType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -43,16 +51,26 @@ public class ChessGameTest {
 
 	@Test
 	public void checkmate() {
-		String initialGame = "WHITE" + DIVIDER + "RA1*" + DIVIDER +"NB1"+ DIVIDER +"BC1"+ DIVIDER +"QD1"+ DIVIDER +"KE1*"+ DIVIDER +"BF1"+ DIVIDER +"NG1"+ DIVIDER +"RH1*"+ DIVIDER +"PA2"+ DIVIDER +"PB2"+ DIVIDER +"PC2"+ DIVIDER +"PD2"+ DIVIDER +"PF2"+ DIVIDER +"PG2"+ DIVIDER +"PH2"+ DIVIDER +"pA7"+ DIVIDER +"pB7"+ DIVIDER +"pC7"+ DIVIDER +"pE7"+ DIVIDER +"pF7"+ DIVIDER +"pG7"+ DIVIDER +"pH7"+ DIVIDER +"rA8*"+ DIVIDER +"nB8"+ DIVIDER +"bC8"+ DIVIDER +"qD8"+ DIVIDER +"kE8*"+ DIVIDER +"bF8"+ DIVIDER +"nG8"+ DIVIDER +"rH8*";
-
-		ChessGame game = new ChessGame(initialGame, "Whites", "Blacks");
+		ChessGame game = new ChessGame("Whites", "Blacks");
 
-		MoveType m = game.movePiece(7, 'F', 5, 'B');
+		game.movePiece(2, 'F', 3, 'F');
+		game.movePiece(7, 'E', 5, 'E');
+		game.movePiece(2, 'G', 4, 'G');
+		game.movePiece(8, 'D', 4, 'H');
 		boolean res = game.checkmate();
 
 		assertTrue(res);
 	}
 
+	@Test
+	public void stalemate() {
+		String initialGame = "BLACK" + DIVIDER + "kA8" + DIVIDER + "QB6" + DIVIDER + "KC1";
+		ChessGame game = new ChessGame(initialGame, "Whites", "Blacks");
+
+		assertFalse(game.checkmate());
+		assertTrue(game.stalemate());
+	}
+
 	@Test
 	public void evolve() {
 		String initialGame = "WHITE" + DIVIDER + "PA7" + DIVIDER + "KA1" + DIVIDER + "kH1";
@@ -63,4 +81,210 @@ public class ChessGameTest {
 		assertEquals(m, MoveType.EVOLVE);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void threefoldRepetition() {
+		ChessGame game = new ChessGame("Whites", "Blacks");
+
+		for(int i = 0; i < 2; i++) {
+			assertFalse(game.threefoldRepetition());
+			game.movePiece(1, 'G', 3, 'F');
+			game.movePiece(8, 'G', 6, 'F');
+			game.movePiece(3, 'F', 1, 'G');
+			game.movePiece(6, 'F', 8, 'G');
+		}
+
+		assertTrue(game.threefoldRepetition());
+		assertTrue(game.draw());
+	}
+
+	@Test
+	public void fiftyMoveRule() {
+		String initialGame = "WHITE" + DIVIDER + "RA1" + DIVIDER + "KE1" + DIVIDER + "kE8";
+		ChessGame game = new ChessGame(initialGame, "Whites", "Blacks");
+		game.getBoard().setHalfmoveClock(99);
+
+		assertFalse(game.fiftyMoveRule());
+		game.movePiece(1, 'A', 2, 'A');
+		assertTrue(game.fiftyMoveRule());
+		assertTrue(game.draw());
+	}
+
+	@Test
+	public void insufficientMaterial() {
+		assertTrue(new ChessGame("WHITE" + DIVIDER + "KE1" + DIVIDER + "kE8", "", "").insufficientMaterial());
+		assertTrue(new ChessGame("WHITE" + DIVIDER + "KE1" + DIVIDER + "NB1" + DIVIDER + "kE8", "", "").insufficientMaterial());
+		assertTrue(new ChessGame("WHITE" + DIVIDER + "KE1" + DIVIDER + "BC1" + DIVIDER + "kE8" + DIVIDER + "bF8", "", "").insufficientMaterial());
+		assertFalse(new ChessGame("WHITE" + DIVIDER + "KE1" + DIVIDER + "BC1" + DIVIDER + "kE8" + DIVIDER + "bC8", "", "").insufficientMaterial());
+		assertFalse(new ChessGame("WHITE" + DIVIDER + "KE1" + DIVIDER + "PA2" + DIVIDER + "kE8", "", "").insufficientMaterial());
+	}
+
+	@Test
+	public void undoRestoresCaptureAndCastling() {
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		String start = game.toString();
+		long hash = game.getHash();
+
+		// 1. e4 d5 2. exd5 Nf6 3. Nf3 Nxd5 4. Bc4 e6 5. O-O
+		game.movePiece(2, 'E', 4, 'E');
+		game.movePiece(7, 'D', 5, 'D');
+		game.movePiece(4, 'E', 5, 'D');
+		game.movePiece(8, 'G', 6, 'F');
+		game.movePiece(1, 'G', 3, 'F');
+		game.movePiece(6, 'F', 5, 'D');
+		game.movePiece(1, 'F', 4, 'C');
+		game.movePiece(7, 'E', 6, 'E');
+		assertEquals(MoveType.MOVE, game.movePiece(1, 'E', 1, 'H'));
+		assertEquals(1, game.getWhiteScore().size());
+		assertEquals(1, game.getBlackScore().size());
+
+		int moves = 0;
+		while(game.undoMove() != Move.NONE)
+			moves++;
+
+		assertEquals(9, moves);
+		assertEquals(start, game.toString());
+		assertEquals(hash, game.getHash());
+		assertEquals(ColorType.WHITE, game.getCurrentPlayer());
+		assertTrue(game.getWhiteScore().isEmpty());
+		assertTrue(game.getBlackScore().isEmpty());
+	}
+
+	@Test
+	public void undoKeepsEvolution() {
+		String initialGame = "WHITE" + DIVIDER + "PA7" + DIVIDER + "KA1" + DIVIDER + "kH1";
+		ChessGame game = new ChessGame(initialGame, "Whites", "Blacks");
+
+		String start = game.toString();
+		game.movePiece(7, 'A', 8, 'A');
+		game.evolve('N');
+		String evolved = game.toString();
+
+		int move = game.undoMove();
+		assertEquals(start, game.toString());
+		assertEquals(PieceType.KNIGHT, Move.getPromotion(move));
+
+		assertEquals(MoveType.EVOLVE, game.movePiece(move));
+		assertEquals(evolved, game.toString());
+	}
+
+	@Test
+	public void managerUndoRedo() {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Whites", "Blacks");
+
+		assertEquals(MoveType.NONE, manager.movePiece(2, 'E', 5, 'E'));
+		assertFalse(manager.canUndo());
+
+		manager.movePiece(2, 'E', 4, 'E');
+		manager.movePiece(7, 'D', 5, 'D');
+		manager.movePiece(4, 'E', 5, 'D');
+		assertEquals(List.of('p'), manager.getWhiteScore());
+
+		manager.undo();
+		manager.undo();
+		assertTrue(manager.getWhiteScore().isEmpty());
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+		assertEquals(' ', manager.getPiece(5, 'D'));
+
+		manager.redo();
+		manager.redo();
+		assertFalse(manager.canRedo());
+		assertEquals(List.of('p'), manager.getWhiteScore());
+		assertEquals('P', manager.getPiece(5, 'D'));
+
+		manager.undo();
+		manager.movePiece(4, 'E', 5, 'E');
+		assertFalse(manager.canRedo());
+	}
+
+	@Test
+	public void managerUndoJumpsToCheckpoint() {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Whites", "Blacks");
+
+		// the Knights go back and forth: 40 moves, a checkpoint every 32
+		for(int i = 0; i < 10; i++) {
+			manager.movePiece(1, 'G', 3, 'F');
+			manager.movePiece(8, 'G', 6, 'F');
+			manager.movePiece(3, 'F', 1, 'G');
+			manager.movePiece(6, 'F', 8, 'G');
+		}
+		manager.movePiece(1, 'G', 3, 'F');
+		long footprint = manager.getHistoryFootprint();
+		assertTrue(footprint > 0);
+
+		manager.undo(8);
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+		assertEquals('N', manager.getPiece(3, 'F'));
+		assertEquals(footprint - 8 * Board.MOVE_BYTES, manager.getHistoryFootprint());
+
+		manager.setHistoryBudget(1500);
+		assertTrue(manager.getHistoryFootprint() <= 1500);
+		assertTrue(manager.canUndo());
+		while(manager.canRedo())
+			manager.redo();
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+	}
+
+	@Test
+	public void managerHistoryStaysWithinBudget() throws IOException {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Whites", "Blacks");
+		manager.setHistoryBudget(4000);
+
+		// the Knights go back and forth for 4000 moves, far more than the budget holds
+		for(int i = 0; i < 1000; i++) {
+			manager.movePiece(1, 'G', 3, 'F');
+			manager.movePiece(8, 'G', 6, 'F');
+			manager.movePiece(3, 'F', 1, 'G');
+			manager.movePiece(6, 'F', 8, 'G');
+			assertTrue(manager.getHistoryFootprint() <= 4000);
+		}
+		assertTrue(manager.threefoldRepetition());
+
+		// the board kept only the moves the history can revert, which is all a saved game holds
+		File file = File.createTempFile("history", ".ser");
+		try {
+			assertTrue(manager.save(file));
+			assertTrue(file.length() < 200);
+		} finally {
+			file.delete();
+		}
+
+		manager.undo(1000);
+		assertFalse(manager.canUndo());
+		while(manager.canRedo())
+			manager.redo();
+		assertEquals(ColorType.WHITE, manager.getCurrentPlayer());
+		assertEquals('N', manager.getPiece(1, 'G'));
+		assertEquals('n', manager.getPiece(8, 'G'));
+		assertTrue(manager.threefoldRepetition());
+	}
+
+	@Test
+	public void managerKeepsVariations() {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Whites", "Blacks");
+
+		manager.movePiece(2, 'E', 4, 'E');
+		manager.movePiece(7, 'E', 5, 'E');
+		manager.undo();
+		manager.movePiece(7, 'C', 5, 'C');
+		manager.undo();
+		assertEquals(List.of("c7c5", "e7e5"), manager.getVariations());
+
+		manager.redo(1);
+		assertEquals('p', manager.getPiece(5, 'E'));
+		assertEquals(' ', manager.getPiece(5, 'C'));
+		manager.undo();
+		manager.redo();
+		assertEquals('p', manager.getPiece(5, 'E'));
+
+		// playing a move of a variation follows it
+		manager.undo();
+		manager.movePiece(7, 'C', 5, 'C');
+		manager.undo();
+		assertEquals(2, manager.getVariations().size());
+	}
+
+}
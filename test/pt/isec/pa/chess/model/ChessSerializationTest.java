@@ -0,0 +1,161 @@
+package pt.isec.pa.chess.model;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.MoveType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.*;
+
+public class ChessSerializationTest {
+
+	/** 1. e4 Nf6 2. e5 d5, White to move with both castling rights and en passant available. */
+	private static ChessGame game() {
+		ChessGame game = new ChessGame("Whites", "Blacks ♛");
+		game.movePiece(2, 'E', 4, 'E');
+		game.movePiece(8, 'G', 6, 'F');
+		game.movePiece(4, 'E', 5, 'E');
+		game.movePiece(7, 'D', 5, 'D');
+		return game;
+	}
+
+	private static void assertSameGame(ChessGame expected, ChessGame actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getHash(), actual.getHash());
+		assertEquals(expected.getWhitesName(), actual.getWhitesName());
+		assertEquals(expected.getBlacksName(), actual.getBlacksName());
+		assertEquals(expected.getWhiteScore(), actual.getWhiteScore());
+		assertEquals(expected.getBlackScore(), actual.getBlackScore());
+		assertArrayEquals(expected.getBoard().getMoves(), actual.getBoard().getMoves());
+	}
+
+	@Test
+	public void roundTrip() {
+		ChessGame game = game();
+		ByteBuffer buffer = ChessSerialization.encode(game);
+		ChessGame loaded = ChessSerialization.decode(buffer);
+
+		assertSameGame(game, loaded);
+		assertFalse(buffer.hasRemaining());
+		// en passant is still available
+		assertNotEquals(-1, loaded.getBoard().getEnPassantSquare());
+		assertEquals(ColorType.WHITE, loaded.getCurrentPlayer());
+	}
+
+	@Test
+	public void roundTripEvolvedCapture() {
+		String DIVIDER = ChessGame.DIVIDER;
+		ChessGame game = new ChessGame("BLACK" + DIVIDER + "PA7" + DIVIDER + "KA1" + DIVIDER + "kH1" + DIVIDER + "nB8" + DIVIDER + "pH5", "", "");
+		game.movePiece(5, 'H', 4, 'H');
+		game.movePiece(7, 'A', 8, 'B');
+		game.evolve('R');
+
+		ChessGame loaded = ChessSerialization.decode(ChessSerialization.encode(game));
+		assertSameGame(game, loaded);
+		assertEquals('R', loaded.getPiece(8, 'B'));
+		assertEquals(1, loaded.getWhiteScore().size());
+	}
+
+	@Test
+	public void roundTripKeepsMoveNumber() {
+		ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R b Kq - 3 40", "", "");
+		game.movePiece(Uci.parseMove(game.getBoard(), "e8c8"));
+
+		ChessGame loaded = ChessSerialization.decode(ChessSerialization.encode(game));
+		assertSameGame(game, loaded);
+		assertEquals(Fen.format(game), Fen.format(loaded));
+		assertEquals(41, loaded.getBoard().getFullmoveNumber());
+	}
+
+	@Test
+	public void rejectsIllegalStartingPosition() {
+		String DIVIDER = ChessGame.DIVIDER;
+		for(String position : new String[] {
+				"WHITE" + DIVIDER + "KE1" + DIVIDER + "KD1" + DIVIDER + "kE8",
+				"WHITE" + DIVIDER + "KE1",
+				"WHITE" + DIVIDER + "KE1" + DIVIDER + "PA8" + DIVIDER + "kE8",
+				// Black, who just moved, is in check
+				"WHITE" + DIVIDER + "KE1" + DIVIDER + "RE2" + DIVIDER + "kE8" }) {
+			ByteBuffer buffer = ChessSerialization.encode(new ChessGame(position, "", ""));
+			assertThrows(position, IllegalArgumentException.class, () -> ChessSerialization.decode(buffer));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsIllegalMove() {
+		ByteBuffer buffer = ChessSerialization.encode(game());
+		// the last move, d7d5, is played from d2 instead
+		buffer.putShort(buffer.limit() - 2, (short) (buffer.getShort(buffer.limit() - 2) - 5 * 8));
+		ChessSerialization.decode(buffer);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTruncatedGame() {
+		ByteBuffer buffer = ChessSerialization.encode(game());
+		ChessSerialization.decode(buffer.limit(buffer.limit() - 1));
+	}
+
+	@Test
+	public void savesAndMigratesFiles() throws IOException {
+		ChessGame game = game();
+		File file = File.createTempFile("chess", ".ser");
+		file.deleteOnExit();
+
+		assertTrue(ChessSerialization.serialize(file, game));
+		assertSameGame(game, ChessSerialization.deserialize(file));
+		long size = file.length();
+
+		// files of older versions, saved with Java serialization
+		try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+			out.writeObject(game);
+		}
+		assertTrue(file.length() > 10 * size);
+		assertSameGame(game, ChessSerialization.deserialize(file));
+
+		assertTrue(ChessSerialization.migrate(file));
+		assertEquals(size, file.length());
+		assertSameGame(game, ChessSerialization.deserialize(file));
+
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+		assertNull(ChessSerialization.deserialize(file));
+		assertFalse(ChessSerialization.migrate(file));
+	}
+
+	@Test
+	public void readsGamesOfFirstVersion() throws IOException {
+		// saved by the first version after 1. e4 d5 2. exd5 Nf6 3. d4 c5, with en passant available on c6
+		File file = File.createTempFile("chess", ".ser");
+		file.deleteOnExit();
+		try(InputStream in = ChessSerializationTest.class.getResourceAsStream("legacy-game.ser")) {
+			assertNotNull(in);
+			Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		ChessGame expected = new ChessGame("Whites", "Blacks");
+		for(String move : new String[] { "e2e4", "d7d5", "e4d5", "g8f6", "d2d4", "c7c5" })
+			expected.movePiece(Uci.parseMove(expected.getBoard(), move));
+
+		for(int i = 0; i < 2; i++) {
+			ChessGame game = ChessSerialization.deserialize(file);
+			assertNotNull(game);
+			assertEquals(expected.toString(), game.toString());
+			// the first version kept no move counters, so only the placement, side, castling and en passant are compared
+			assertEquals(Fen.format(expected).split(" 0 ")[0], Fen.format(game).split(" 0 ")[0]);
+			assertEquals(expected.getHash(), game.getHash());
+			assertEquals(expected.getWhiteScore(), game.getWhiteScore());
+			assertEquals(MoveType.ENPASSAT, game.movePiece(5, 'D', 5, 'C'));
+
+			// then in the binary format
+			assertTrue(ChessSerialization.migrate(file));
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Position import benchmark: writes the positions of games of random legal moves one per line, then compares
+ * how many positions per second are read as FEN from a {@link ByteBuffer} and from a {@link String} into a reused
+ * {@link Board}, as new games with {@link Fen#parse}, and as new games in the comma-separated game format.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.FenBenchmark [positions]}.
+ */
+public class FenBenchmark {
+
+	private static final int WARMUP = 5;
+	private static final int ROUNDS = 10;
+
+	public static void main(String[] args) {
+		int positions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+		String[] fens = new String[positions], games = new String[positions];
+		StringBuilder text = new StringBuilder(positions * 64);
+		Random random = new Random(1);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		ChessGame game = new ChessGame("", "");
+		for(int i = 0; i < positions; i++) {
+			int n = MoveGenerator.generateLegal(game.getBoard(), moves, 0);
+			if(n == 0 || game.getBoard().getMoves().length == 200) {
+				game = new ChessGame("", "");
+				n = MoveGenerator.generateLegal(game.getBoard(), moves, 0);
+			}
+			game.movePiece(moves[random.nextInt(n)]);
+			fens[i] = Fen.format(game);
+			games[i] = game.toString();
+			text.append(fens[i]).append('\n');
+		}
+		String all = text.toString();
+		ByteBuffer bytes = ByteBuffer.wrap(all.getBytes(StandardCharsets.US_ASCII));
+
+		Board board = new Board((String[]) null);
+		System.out.printf("%,d positions, %,d bytes%n", positions, bytes.capacity());
+		measure("FEN ByteBuffer, same board", positions, () -> {
+			long check = 0;
+			bytes.rewind();
+			while(bytes.hasRemaining()) {
+				Fen.read(bytes, board);
+				check += board.getHash();
+			}
+			return check;
+		});
+		measure("FEN String, same board", positions, () -> {
+			long check = 0;
+			for(int i = 0; i < all.length(); ) {
+				i = Fen.read(all, i, board);
+				check += board.getHash();
+			}
+			return check;
+		});
+		measure("FEN new ChessGame", positions, () -> {
+			long check = 0;
+			for(String fen : fens)
+				check += Fen.parse(fen, "", "").getHash();
+			return check;
+		});
+		measure("game format new ChessGame", positions, () -> {
+			long check = 0;
+			for(String g : games)
+				check += new ChessGame(g, "", "").getHash();
+			return check;
+		});
+	}
+
+	/**
+	 * Reads all the positions a few times to warm up, then times reading them, keeping the keys of the positions
+	 * read so no reading is optimized away.
+	 */
+	private static void measure(String name, int positions, LongSupplier reading) {
+		long check = 0;
+		for(int round = 0; round < WARMUP; round++)
+			check += reading.getAsLong();
+
+		long start = System.nanoTime();
+		for(int round = 0; round < ROUNDS; round++)
+			check += reading.getAsLong();
+		long nanos = System.nanoTime() - start;
+
+		System.out.printf("%-28s %,12.0f positions/s  (check %x)%n", name, positions * (double) ROUNDS / nanos * 1e9, check);
+	}
+
+}
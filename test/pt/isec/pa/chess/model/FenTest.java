@@ -0,0 +1,123 @@
+package pt.isec.pa.chess.model;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.ColorType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FenTest {
+
+	@Test
+	public void parsesStartPosition() {
+		ChessGame game = Fen.parse(Fen.START, "", "");
+		assertEquals(new ChessGame("", "").getHash(), game.getHash());
+		assertEquals(ColorType.WHITE, game.getCurrentPlayer());
+		assertEquals(Board.CASTLE_WHITE_KING | Board.CASTLE_WHITE_QUEEN | Board.CASTLE_BLACK_KING | Board.CASTLE_BLACK_QUEEN,
+				game.getBoard().getCastlingRights());
+	}
+
+	@Test
+	public void parsesReferencePositions() {
+		assertEquals(new ChessGame(Perft.Position.KIWIPETE.getGame(), "", "").getHash(),
+				Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "", "").getHash());
+		assertEquals(new ChessGame(Perft.Position.POSITION_3.getGame(), "", "").getHash(),
+				Fen.parse("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", "", "").getHash());
+	}
+
+	@Test
+	public void parsesEnPassantAndClock() {
+		ChessGame game = Fen.parse("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", "", "");
+		assertEquals(Board.getSquare(6, 'D'), game.getBoard().getEnPassantSquare());
+		assertEquals(0, game.getBoard().getHalfmoveClock());
+		assertEquals(game.getBoard().computeHash(), game.getHash());
+
+		game = Fen.parse("8/8/8/8/8/8/8/K6k b - - 42 80", "", "");
+		assertEquals(42, game.getBoard().getHalfmoveClock());
+		assertEquals(ColorType.BLACK, game.getCurrentPlayer());
+		assertEquals(0, game.getBoard().getCastlingRights());
+	}
+
+	@Test
+	public void formatsWhatItParses() {
+		for(String fen : new String[] { Fen.START, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", "8/8/8/8/8/8/8/K6k b - - 42 80",
+				"r3k2r/8/8/8/8/8/8/R3K2R b Kq - 3 17" })
+			assertEquals(fen, Fen.format(Fen.parse(fen, "", "")));
+	}
+
+	@Test
+	public void countsMoves() {
+		ChessGame game = new ChessGame("", "");
+		game.movePiece(Uci.parseMove(game.getBoard(), "e2e4"));
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", Fen.format(game));
+		game.movePiece(Uci.parseMove(game.getBoard(), "g8f6"));
+		assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", Fen.format(game));
+		game.undoMove();
+		assertEquals(1, game.getBoard().getFullmoveNumber());
+	}
+
+	@Test
+	public void readsEpdOperations() {
+		ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w Qk - bm O-O-O; id \"a; b\"; hmvc 7; fmvn 21;", "", "");
+		assertEquals(Board.CASTLE_WHITE_QUEEN | Board.CASTLE_BLACK_KING, game.getBoard().getCastlingRights());
+		assertEquals(7, game.getBoard().getHalfmoveClock());
+		assertEquals(21, game.getBoard().getFullmoveNumber());
+		assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w Qk - hmvc 7; fmvn 21;", Fen.formatEpd(game));
+	}
+
+	@Test
+	public void readsLinesIntoSameBoard() {
+		ByteBuffer buffer = ByteBuffer.wrap((Fen.START + "\r\n\n8/8/8/8/8/8/8/K6k b - - 42 80\n").getBytes(StandardCharsets.US_ASCII));
+		Board board = new Board(new ChessGame("", "").getBoard());
+		board.makeMove(Uci.parseMove(board, "e2e4"));
+
+		Fen.read(buffer, board);
+		assertEquals(new ChessGame("", "").getHash(), board.getHash());
+		assertEquals(0, board.getMoves().length);
+		Fen.read(buffer, board);
+		assertEquals(42, board.getHalfmoveClock());
+		assertEquals(board.computeHash(), board.getHash());
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void importsFenAsGame() {
+		assertTrue(Fen.isFen(Fen.START));
+		assertFalse(Fen.isFen(new ChessGame("", "").toString()));
+		ChessGame game = new ChessGame("8/8/8/8/8/8/8/K6k b - - 42 80\n", "", "");
+		assertEquals(ColorType.BLACK, game.getCurrentPlayer());
+		assertEquals(Fen.parse("8/8/8/8/8/8/8/K6k b - - 42 80", "", "").getHash(), game.getHash());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBadCastling() {
+		Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KX - 0 1", "", "");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBadPlacement() {
+		Fen.parse("rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "", "");
+	}
+
+	@Test
+	public void rejectsIllegalPositions() {
+		for(String fen : new String[] {
+				"8/8/8/8/8/8/8/8 w - - 0 1",
+				"4k3/8/8/8/8/8/8/8 w - - 0 1",
+				"4k3/8/8/8/8/8/8/3KK3 w - - 0 1",
+				"4k3/8/8/8/8/8/8/P3K3 w - - 0 1",
+				"p3k3/8/8/8/8/8/8/4K3 b - - 0 1",
+				// the side not to move is in check
+				"4k3/4R3/8/8/8/8/8/4K3 w - - 0 1",
+				// the en passant square of the side that just moved, not of the side to move
+				"rnbqkbnr/pppp1ppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e3 0 1",
+				// no Pawn in front of the en passant square
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e6 0 1" })
+			assertThrows(fen, IllegalArgumentException.class, () -> Fen.parse(fen, "", ""));
+	}
+
+}
@@ -0,0 +1,82 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveGenerator;
+import pt.isec.pa.chess.model.memento.Memento;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+/**
+ * Undo/redo history benchmark: plays a game of random legal moves and compares, per ply, the memory and time taken
+ * by a serialized {@link Memento} of the whole {@link ChessGame} with the {@link MoveDelta} the history keeps now.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.HistoryBenchmark [plies]}.
+ */
+public class HistoryBenchmark {
+
+	/** A {@link MoveDelta} with compressed references: object header and the packed move. */
+	private static final int DELTA_BYTES = 16;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws IOException {
+		int plies = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		Random random = new Random(1);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int played = 0;
+		long snapshotBytes = 0;
+		for(; played < plies; played++) {
+			int n = MoveGenerator.generateLegal(game.getBoard(), moves, 0);
+			if(n == 0)
+				break;
+			game.movePiece(moves[random.nextInt(n)]);
+			snapshotBytes += size(game);
+		}
+
+		long save = 0, restore = 0, undo = 0, redo = 0;
+		for(int round = 0; round < ROUNDS; round++) {
+			// the memento path: a snapshot before every move and a restore to go back
+			long start = System.nanoTime();
+			Memento memento = new Memento(game);
+			save += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			memento.getSnapshot();
+			restore += System.nanoTime() - start;
+
+			// the delta path: take back every move, then make them again
+			int[] undone = new int[played];
+			start = System.nanoTime();
+			for(int i = 0; i < played; i++)
+				undone[i] = game.undoMove();
+			undo += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = played - 1; i >= 0; i--)
+				game.movePiece(undone[i]);
+			redo += System.nanoTime() - start;
+
+			if(game.getBoard().getLastMove() == Move.NONE)
+				throw new IllegalStateException("the moves were not made again");
+		}
+
+		System.out.printf("%d plies, %d captured pieces%n", played, game.getWhiteScore().size() + game.getBlackScore().size());
+		System.out.printf("memento  %,8d bytes/ply  save %,9.1f us  restore %,9.1f us%n", snapshotBytes / played,
+				save / 1e3 / ROUNDS, restore / 1e3 / ROUNDS);
+		System.out.printf("delta    %,8d bytes/ply  undo %,9.3f us  redo    %,9.3f us%n", DELTA_BYTES,
+				undo / 1e3 / ROUNDS / played, redo / 1e3 / ROUNDS / played);
+	}
+
+	private static int size(ChessGame game) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(game);
+		}
+		return bytes.size();
+	}
+
+}
@@ -0,0 +1,51 @@
+package pt.isec.pa.chess.model;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PerftTest {
+
+	/** Deepest depth checked, kept shallow so the suite runs in a fraction of a second. */
+	private static final int DEPTH = 3;
+
+	@Test
+	public void referencePositions() {
+		for(Perft.Position position : Perft.Position.values()) {
+			Perft perft = new Perft(position.getGame());
+			for(int depth = 1; depth <= DEPTH; depth++)
+				assertEquals(position + " depth " + depth, position.getExpected(depth), perft.count(depth));
+		}
+	}
+
+	@Test
+	public void divideSumsToCount() {
+		Perft perft = new Perft(Perft.Position.KIWIPETE.getGame());
+		Map<String, Long> divide = perft.divide(2);
+
+		assertEquals(48, divide.size());
+		assertEquals(perft.count(2), divide.values().stream().mapToLong(Long::longValue).sum());
+		assertEquals(Long.valueOf(43), divide.get("e1g1"));
+	}
+
+	@Test
+	public void boardUnchanged() {
+		ChessGame game = new ChessGame(Perft.Position.POSITION_4.getGame(), "", "");
+		String before = game.toString();
+
+		new Perft(game.getBoard()).count(3);
+
+		assertEquals(before, game.toString());
+	}
+
+	@Test
+	public void parallelMatchesSequential() {
+		for(Perft.Position position : Perft.Position.values()) {
+			Perft perft = new Perft(position.getGame());
+			assertEquals(position.toString(), position.getExpected(4), perft.countParallel(4));
+		}
+	}
+
+}
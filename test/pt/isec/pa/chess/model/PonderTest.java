@@ -0,0 +1,76 @@
+package pt.isec.pa.chess.model;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveType;
+import pt.isec.pa.chess.model.engine.Engine;
+import pt.isec.pa.chess.model.engine.SearchLimits;
+import pt.isec.pa.chess.model.engine.SearchResult;
+
+import static org.junit.Assert.*;
+
+public class PonderTest {
+
+	@Test
+	public void hitReturnsPonderedSearch() {
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		Ponder ponder = new Ponder(new Engine());
+		int expected = Uci.parseMove(game.getBoard(), "e2e4");
+
+		ponder.start(game.getBoard(), expected, SearchLimits.depth(4));
+		game.movePiece(expected);
+		ponder.opponentMoved(game.getBoard().getLastMove());
+
+		SearchResult result = ponder.finish(game.getBoard(), SearchLimits.depth(4));
+		assertNotNull(result);
+		assertEquals(4, result.depth());
+		assertNotEquals(Move.NONE, Uci.parseMove(game.getBoard(), Move.toString(result.move())));
+		assertEquals(1, ponder.getHits());
+		assertFalse(ponder.isActive());
+	}
+
+	@Test
+	public void missCancelsSearch() {
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		Ponder ponder = new Ponder(new Engine());
+
+		ponder.start(game.getBoard(), Uci.parseMove(game.getBoard(), "e2e4"), SearchLimits.infinite());
+		game.movePiece(Uci.parseMove(game.getBoard(), "d2d4"));
+		ponder.opponentMoved(game.getBoard().getLastMove());
+
+		assertNull(ponder.finish(game.getBoard(), SearchLimits.time(50)));
+		assertEquals(1, ponder.getMisses());
+		assertFalse(ponder.isActive());
+	}
+
+	@Test
+	public void cancelBeforeSearchStartsSticks() {
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		Ponder ponder = new Ponder(new Engine());
+
+		// the virtual thread has most likely not started the search yet, which must still stop by itself
+		ponder.start(game.getBoard(), Uci.parseMove(game.getBoard(), "e2e4"), SearchLimits.infinite());
+		ponder.cancel();
+		ponder.stop();
+		assertFalse(ponder.isActive());
+	}
+
+	@Test
+	public void managerPondersOnExpectedReply() {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Whites", "Blacks");
+		manager.setPondering(true);
+
+		assertNotEquals(MoveType.NONE, manager.computerMove(SearchLimits.depth(4)));
+
+		// whatever the expected reply, the pondering ends as a hit or a miss and the computer answers
+		assertNotEquals(MoveType.NONE, manager.movePiece(7, 'E', 5, 'E'));
+		assertEquals(1, manager.getPonderHits() + manager.getPonderMisses());
+		assertNotEquals(MoveType.NONE, manager.computerMove(SearchLimits.depth(4)));
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+
+		manager.setPondering(false);
+	}
+
+}
@@ -0,0 +1,72 @@
+package pt.isec.pa.chess.model;
+
+import pt.isec.pa.chess.model.data.MoveGenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+/**
+ * Save format benchmark: plays a game of random legal moves and compares the size of the file and the time
+ * to save and load it in the binary format of {@link ChessSerialization} and with Java serialization,
+ * the format of older versions.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.SerializationBenchmark [plies]}.
+ */
+public class SerializationBenchmark {
+
+	private static final int WARMUP = 2000;
+	private static final int ROUNDS = 1000;
+
+	public static void main(String[] args) throws IOException {
+		int plies = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		ChessGame game = new ChessGame("Whites", "Blacks");
+		Random random = new Random(1);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for(int i = 0; i < plies; i++) {
+			int n = MoveGenerator.generateLegal(game.getBoard(), moves, 0);
+			if(n == 0)
+				break;
+			game.movePiece(moves[random.nextInt(n)]);
+		}
+
+		File file = File.createTempFile("chess", ".ser");
+		file.deleteOnExit();
+
+		long save = 0, load = 0;
+		for(int round = -WARMUP; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+				out.writeObject(game);
+			}
+			long saved = System.nanoTime();
+			ChessSerialization.deserialize(file);
+			if(round >= 0) {
+				save += saved - start;
+				load += System.nanoTime() - saved;
+			}
+		}
+		long legacy = file.length();
+		System.out.printf("%d plies%n", game.getBoard().getMoves().length);
+		System.out.printf("java serialization  %,8d bytes  save %,9.1f us  load %,9.1f us%n", legacy, save / 1e3 / ROUNDS, load / 1e3 / ROUNDS);
+
+		save = 0;
+		load = 0;
+		for(int round = -WARMUP; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			ChessSerialization.serialize(file, game);
+			long saved = System.nanoTime();
+			ChessSerialization.deserialize(file);
+			if(round >= 0) {
+				save += saved - start;
+				load += System.nanoTime() - saved;
+			}
+		}
+		System.out.printf("binary              %,8d bytes  save %,9.1f us  load %,9.1f us  (%.0fx smaller)%n", file.length(),
+				save / 1e3 / ROUNDS, load / 1e3 / ROUNDS, (double) legacy / file.length());
+	}
+
+}
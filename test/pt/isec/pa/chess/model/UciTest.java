@@ -0,0 +1,58 @@
+package pt.isec.pa.chess.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class UciTest {
+
+	private static String run(String commands) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new Uci(new ByteArrayInputStream(commands.getBytes(StandardCharsets.UTF_8)), new PrintStream(out)).run();
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void handshake() {
+		String out = run("uci\nisready\nquit\n");
+		assertTrue(out.contains("id name"));
+		assertTrue(out.contains("option name Hash"));
+		assertTrue(out.contains("uciok"));
+		assertTrue(out.contains("readyok"));
+	}
+
+	@Test
+	public void searchesPositionWithMoves() {
+		// mate in one after the moves: Qh4#
+		String out = run("position startpos moves f2f3 e7e5 g2g4\ngo depth 3\n");
+		assertTrue(out.contains("info depth 1 "));
+		assertTrue(out.contains("score mate 1"));
+		assertTrue(out.contains("bestmove d8h4"));
+	}
+
+	@Test
+	public void searchesFenWithNodeLimit() {
+		String out = run("setoption name Hash value 2\nposition fen 6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1\ngo nodes 5000\n");
+		assertTrue(out.contains("bestmove a1a8"));
+	}
+
+	@Test
+	public void stopEndsInfiniteSearch() {
+		String[] lines = run("position startpos\ngo infinite\nstop\n").trim().split("\\R");
+		assertTrue(lines[lines.length - 1].startsWith("bestmove "));
+		assertNotEquals("bestmove 0000", lines[lines.length - 1]);
+	}
+
+	@Test
+	public void allocatesTimeFromClock() {
+		assertEquals(1000 + 750, Uci.allocate(30_000, 1000, 30));
+		assertTrue(Uci.allocate(50, 0, 30) >= 1);
+		assertTrue(Uci.allocate(100, 5000, 30) < 100);
+	}
+
+}
@@ -0,0 +1,76 @@
+package pt.isec.pa.chess.model.data;
+
+import pt.isec.pa.chess.model.ChessGame;
+
+import java.util.List;
+
+/**
+ * Micro benchmark comparing the bitboard/mailbox square lookup of {@link Board}
+ * against the previous {@code List<Piece>} stream scan.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.data.BoardBenchmark [iterations]}.
+ */
+public class BoardBenchmark {
+
+	private static final String POSITION = "RA1*,NB1,BC1,QD1,KE1*,BF1,NG1,RH1*,PA2,PB2,PC2,PD3,PE4,PF2,PG2,PH2,"
+			+ "pA7,pB7,pC6,pD7,pE5,pF7,pG7,pH7,rA8*,nB8,bC8,qD8,kE8*,bF8,nG8,rH8*";
+
+	/**
+	 * Board that resolves squares the way the original implementation did, by filtering the piece list.
+	 */
+	private static class ListScanBoard extends Board {
+		private final List<Piece> list;
+
+		ListScanBoard(String[] pieces) {
+			super(pieces);
+			this.list = super.getPieces();
+		}
+
+		@Override
+		public Piece getPiece(int row, char column) {
+			return this.list.stream().filter(piece -> piece.getRow() == row && piece.getColumn() == Character.toUpperCase(column)).findFirst().orElse(null);
+		}
+	}
+
+	/** The time taken by a run and the number of pieces it found, printed so the lookups are not optimized away. */
+	private record Run(long nanos, long found) {}
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		String[] pieces = POSITION.split(ChessGame.DIVIDER);
+
+		Board bitboard = new Board(pieces);
+		Board listScan = new ListScanBoard(pieces);
+
+		// warm-up
+		run(bitboard, iterations / 10);
+		run(listScan, iterations / 10);
+
+		Run list = run(listScan, iterations);
+		Run bitboards = run(bitboard, iterations);
+
+		System.out.printf("list scan : %8.2f ms (%d pieces found)%n", list.nanos() / 1e6, list.found());
+		System.out.printf("bitboard  : %8.2f ms (%d pieces found)%n", bitboards.nanos() / 1e6, bitboards.found());
+		System.out.printf("speedup   : %8.2fx%n", (double) list.nanos() / bitboards.nanos());
+	}
+
+	/**
+	 * Looks up every square, the way the board view of {@code ChessGame} does.
+	 * <p>
+	 * The moves are not generated: they come from {@link MoveGenerator} on both boards, which never looks up a
+	 * square through {@link Board#getPiece(int, char)}.
+	 */
+	private static Run run(Board board, int iterations) {
+		long found = 0;
+		long start = System.nanoTime();
+
+		for(int i = 0; i < iterations; i++)
+			for(int row = 1; row <= board.getRowSize(); row++)
+				for(char column = 'A'; column <= 'H'; column++)
+					if(board.getPiece(row, column) != null)
+						found++;
+
+		return new Run(System.nanoTime() - start, found);
+	}
+
+}
@@ -0,0 +1,147 @@
+package pt.isec.pa.chess.model.data;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.Fen;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoardTest {
+
+	/**
+	 * Everything {@link Board#unmakeMove()} has to restore: the pieces on every square with their position and
+	 * flags, the bitboards and the state of the position.
+	 */
+	private record State(Piece[] squares, int[] flags, int[] places, long[] bitboards, long white, long black,
+			ColorType side, int castling, int ep, int halfmove, long hash) {
+
+		static State of(Board board) {
+			Piece[] squares = new Piece[Board.SQUARES];
+			int[] flags = new int[Board.SQUARES], places = new int[Board.SQUARES];
+			for(int square = 0; square < Board.SQUARES; square++) {
+				Piece piece = board.getPiece(square);
+				squares[square] = piece;
+				if(piece != null) {
+					flags[square] = piece.getFlags();
+					places[square] = Board.getSquare(piece.getRow(), piece.getColumn());
+				}
+			}
+			long[] bitboards = new long[PieceType.values().length * 2];
+			for(PieceType type : PieceType.values())
+				for(ColorType color : ColorType.values())
+					bitboards[Board.getBitboardIndex(type, color)] = board.getBitboard(type, color);
+			return new State(squares, flags, places, bitboards, board.getOccupancy(ColorType.WHITE),
+					board.getOccupancy(ColorType.BLACK), board.getSideToMove(), board.getCastlingRights(),
+					board.getEnPassantSquare(), board.getHalfmoveClock(), board.getHash());
+		}
+
+		void assertRestored(State after, String move) {
+			assertArrayEquals(move, this.squares, after.squares);
+			assertSamePosition(after, move);
+		}
+
+		void assertSamePosition(State after, String move) {
+			for(int square = 0; square < Board.SQUARES; square++)
+				assertEquals(move, String.valueOf(this.squares[square]), String.valueOf(after.squares[square]));
+			assertArrayEquals(move, this.flags, after.flags);
+			assertArrayEquals(move, this.places, after.places);
+			assertArrayEquals(move, this.bitboards, after.bitboards);
+			assertEquals(move, this.white, after.white);
+			assertEquals(move, this.black, after.black);
+			assertEquals(move, this.side, after.side);
+			assertEquals(move, this.castling, after.castling);
+			assertEquals(move, this.ep, after.ep);
+			assertEquals(move, this.halfmove, after.halfmove);
+			assertEquals(move, this.hash, after.hash);
+		}
+	}
+
+	/**
+	 * Makes and unmakes every legal move, and every reply to it, checking the position is restored each time.
+	 *
+	 * @return the flags of the moves made, to check the kinds of moves covered
+	 */
+	private static int roundTrip(Board board, int depth) {
+		State before = State.of(board);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, moves, 0);
+		int kinds = 0;
+		for(int i = 0; i < n; i++) {
+			board.makeMove(moves[i]);
+			kinds |= 1 << Move.getFlag(moves[i]);
+			if(depth > 1)
+				kinds |= roundTrip(board, depth - 1);
+			assertEquals(moves[i], board.unmakeMove());
+			before.assertRestored(State.of(board), Move.toString(moves[i]));
+		}
+		return kinds;
+	}
+
+	@Test
+	public void unmakeRestoresEveryKindOfMove() {
+		int kinds = 0;
+		for(String fen : new String[] {
+				"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+				"r3k2r/1P4P1/8/8/8/8/1p4p1/R3K2R w KQkq - 0 1" })
+			kinds |= roundTrip(Boards.of(fen), 2);
+
+		for(int flag : new int[] { Move.FLAG_DOUBLE_PUSH, Move.FLAG_KING_CASTLE, Move.FLAG_QUEEN_CASTLE, Move.FLAG_CAPTURE,
+				Move.FLAG_EN_PASSANT })
+			assertNotEquals("flag " + flag, 0, kinds & 1 << flag);
+		// every promotion piece, with and without capture
+		assertEquals(0xF, kinds >>> Move.FLAG_PROMOTION & 0xF);
+		assertEquals(0xF, kinds >>> Move.FLAG_PROMOTION_CAPTURE & 0xF);
+	}
+
+	@Test
+	public void unmakeRestoresLongLine() {
+		Board board = Boards.of(Fen.START);
+		State start = State.of(board);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		Random random = new Random(7);
+		int played = 0;
+		for(; played < 120; played++) {
+			int n = MoveGenerator.generateLegal(board, moves, 0);
+			if(n == 0)
+				break;
+			board.makeMove(moves[random.nextInt(n)]);
+		}
+		while(played-- > 0)
+			board.unmakeMove();
+		start.assertRestored(State.of(board), "start");
+		assertEquals(0, board.getMoves().length);
+	}
+
+	@Test
+	public void serializesOnlyMovesMade() throws IOException, ClassNotFoundException {
+		Board board = Boards.of(Fen.START);
+		long start = board.getHash();
+		for(String move : new String[] { "e2e4", "d7d5", "e4d5" })
+			board.makeMove(board.getMove(move.charAt(1) - '0', move.charAt(0), move.charAt(3) - '0', move.charAt(2)));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(board);
+		}
+		// the spare capacity of the undo records and the attack maps are not written
+		assertTrue(bytes.size() + " bytes", bytes.size() < 3000);
+
+		Board read;
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			read = (Board) in.readObject();
+		}
+		State.of(board).assertSamePosition(State.of(read), "read");
+		assertEquals(board.getPawnHash(), read.getPawnHash());
+		assertEquals(board.getMidgameScore(), read.getMidgameScore());
+		assertArrayEquals(board.getMoves(), read.getMoves());
+		assertEquals(board.getAttacks(ColorType.WHITE), read.getAttacks(ColorType.WHITE));
+
+		while(read.unmakeMove() != Move.NONE);
+		assertEquals(start, read.getHash());
+		State.of(Boards.of(Fen.START)).assertSamePosition(State.of(read), "start");
+	}
+
+}
@@ -0,0 +1,31 @@
+package pt.isec.pa.chess.model.data;
+
+import pt.isec.pa.chess.model.ChessGame;
+import pt.isec.pa.chess.model.Fen;
+
+import java.util.Arrays;
+
+/**
+ * Sets up the boards of the tests and benchmarks.
+ */
+public final class Boards {
+
+	private Boards() {
+	}
+
+	/**
+	 * Creates the board of a position, given in FEN or in the game format of {@link ChessGame#toString()}.
+	 */
+	public static Board of(String position) {
+		if(Fen.isFen(position)) {
+			Board board = new Board((String[]) null);
+			Fen.read(position, 0, board);
+			return board;
+		}
+		String[] pieces = position.split(ChessGame.DIVIDER);
+		Board board = new Board(Arrays.copyOfRange(pieces, 1, pieces.length));
+		board.setSideToMove(ColorType.getColorType(pieces[0]));
+		return board;
+	}
+
+}
@@ -0,0 +1,45 @@
+package pt.isec.pa.chess.model.data;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.Perft;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MoveGeneratorTest {
+
+	/**
+	 * Checks that the captures and the quiet moves split the legal moves, in every position of the tree.
+	 */
+	private static void walk(Board board, int depth) {
+		int[] all = new int[MoveGenerator.MAX_MOVES], split = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, all, 0);
+		int captures = MoveGenerator.generateLegal(board, split, 0, MoveGenerator.CAPTURES);
+		int total = MoveGenerator.generateLegal(board, split, captures, MoveGenerator.QUIETS);
+
+		for(int i = 0; i < total; i++)
+			assertEquals(i < captures, Move.isCapture(split[i]) || Move.isPromotion(split[i]));
+
+		int[] a = Arrays.copyOf(all, n), b = Arrays.copyOf(split, total);
+		Arrays.sort(a);
+		Arrays.sort(b);
+		assertArrayEquals(a, b);
+
+		if(depth == 0) return;
+		for(int i = 0; i < n; i++) {
+			board.makeMove(all[i]);
+			walk(board, depth - 1);
+			board.unmakeMove();
+		}
+	}
+
+	@Test
+	public void capturesAndQuietsSplitLegalMoves() {
+		for(Perft.Position position : Perft.Position.values()) {
+			Board board = Boards.of(position.getGame());
+			walk(board, 2);
+		}
+	}
+
+}
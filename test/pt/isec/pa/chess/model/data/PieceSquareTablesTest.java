@@ -0,0 +1,60 @@
+package pt.isec.pa.chess.model.data;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.Perft;
+
+import static org.junit.Assert.*;
+
+public class PieceSquareTablesTest {
+
+	/**
+	 * Walks the move tree checking the incremental scores against a copy of the board, which adds them up from scratch.
+	 */
+	private static void walk(Board board, int depth) {
+		Board copy = new Board(board);
+		assertEquals(copy.getMidgameScore(), board.getMidgameScore());
+		assertEquals(copy.getEndgameScore(), board.getEndgameScore());
+		assertEquals(copy.getPhase(), board.getPhase());
+		if(depth == 0) return;
+
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, moves, 0);
+		for(int i = 0; i < n; i++) {
+			board.makeMove(moves[i]);
+			walk(board, depth - 1);
+			board.unmakeMove();
+		}
+		assertEquals(copy.getMidgameScore(), board.getMidgameScore());
+	}
+
+	@Test
+	public void startPositionIsBalanced() {
+		Board board = Boards.of(Perft.Position.START.getGame());
+		assertEquals(0, board.getMidgameScore());
+		assertEquals(0, board.getEndgameScore());
+		assertEquals(PieceSquareTables.MAX_PHASE, board.getPhase());
+	}
+
+	@Test
+	public void incrementalMatchesComputed() {
+		for(Perft.Position position : Perft.Position.values())
+			walk(Boards.of(position.getGame()), 2);
+	}
+
+	@Test
+	public void mirroredPositionNegatesScores() {
+		Board white = Boards.of("WHITE,KG1,NF3,PE4,RA1,kE8");
+		Board black = Boards.of("BLACK,kG8,nF6,pE5,rA8,KE1");
+		assertEquals(white.getMidgameScore(), -black.getMidgameScore());
+		assertEquals(white.getEndgameScore(), -black.getEndgameScore());
+		assertEquals(3, white.getPhase());
+	}
+
+	@Test
+	public void centralKnightIsWorthMore() {
+		int index = Board.getBitboardIndex(PieceType.KNIGHT, ColorType.WHITE);
+		assertTrue(PieceSquareTables.midgame(index, Board.getSquare(4, 'E')) > PieceSquareTables.midgame(index, Board.getSquare(1, 'A')));
+		assertTrue(PieceSquareTables.endgame(index, Board.getSquare(4, 'E')) > PieceSquareTables.endgame(index, Board.getSquare(1, 'A')));
+	}
+
+}
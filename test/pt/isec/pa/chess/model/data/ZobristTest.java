@@ -0,0 +1,103 @@
+package pt.isec.pa.chess.model.data;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.Perft;
+
+import static org.junit.Assert.*;
+
+public class ZobristTest {
+
+	private static void play(Board board, String... moves) {
+		for(String m : moves) {
+			int move = board.getMove(m.charAt(1) - '0', m.charAt(0), m.charAt(3) - '0', m.charAt(2));
+			assertNotEquals(m, Move.NONE, move);
+			board.makeMove(move);
+		}
+	}
+
+	/**
+	 * Walks the move tree checking the incremental key against the one computed from scratch.
+	 */
+	private static void walk(Board board, int depth) {
+		long hash = board.getHash();
+		assertEquals(board.computeHash(), hash);
+		assertEquals(new Board(board).getPawnHash(), board.getPawnHash());
+		if(depth == 0) return;
+
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int n = MoveGenerator.generateLegal(board, moves, 0);
+		for(int i = 0; i < n; i++) {
+			board.makeMove(moves[i]);
+			walk(board, depth - 1);
+			board.unmakeMove();
+			assertEquals(hash, board.getHash());
+		}
+	}
+
+	@Test
+	public void incrementalMatchesComputed() {
+		for(Perft.Position position : Perft.Position.values())
+			walk(Boards.of(position.getGame()), 3);
+	}
+
+	@Test
+	public void transpositionsShareKey() {
+		Board a = Boards.of(Perft.Position.START.getGame());
+		Board b = Boards.of(Perft.Position.START.getGame());
+		long start = a.getHash();
+
+		play(a, "g1f3", "g8f6", "f3g1", "f6g8");
+		assertEquals(start, a.getHash());
+
+		play(a, "e2e3", "e7e6", "d2d3");
+		play(b, "d2d3", "e7e6", "e2e3");
+		assertEquals(a.getHash(), b.getHash());
+	}
+
+	@Test
+	public void pawnKeyOnlyDependsOnPawns() {
+		Board a = Boards.of("WHITE,KE1,NB1,PD4,kE8,pD5");
+		Board b = Boards.of("BLACK,KG1,QB1,PD4,kE8,pD5");
+		Board c = Boards.of("WHITE,KE1,NB1,PD4,kE8,pD6");
+		assertEquals(a.getPawnHash(), b.getPawnHash());
+		assertNotEquals(a.getPawnHash(), c.getPawnHash());
+		assertEquals(0, Boards.of("WHITE,KE1,kE8").getPawnHash());
+	}
+
+	@Test
+	public void sideCastlingAndEnPassantChangeKey() {
+		Board a = Boards.of("WHITE,RA1*,KE1*,kE8");
+		Board b = Boards.of("BLACK,RA1*,KE1*,kE8");
+		Board c = Boards.of("WHITE,RA1,KE1,kE8");
+		assertNotEquals(a.getHash(), b.getHash());
+		assertNotEquals(a.getHash(), c.getHash());
+
+		// the double push can be taken en passant by the pawn on D4
+		Board ep = Boards.of("WHITE,KE1,PE2,pD4,kE8");
+		Board noEp = Boards.of("WHITE,KE1,PE3,pD4,kE8");
+		play(ep, "e2e4");
+		play(noEp, "e3e4");
+		assertNotEquals(ep.getHash(), noEp.getHash());
+
+		// nobody can capture, so the en passant square is not part of the key
+		Board quiet = Boards.of("WHITE,KE1,PE2,pA4,kE8");
+		Board other = Boards.of("WHITE,KE1,PE3,pA4,kE8");
+		play(quiet, "e2e4");
+		play(other, "e3e4");
+		assertEquals(quiet.getHash(), other.getHash());
+	}
+
+	@Test
+	public void promoteUpdatesKey() {
+		Board board = Boards.of("WHITE,KE1,PA7,kE8");
+		long before = board.getHash();
+		play(board, "a7a8");
+
+		board.promote(Board.getSquare(8, 'A'), PieceType.KNIGHT);
+		assertEquals(board.computeHash(), board.getHash());
+
+		board.unmakeMove();
+		assertEquals(before, board.getHash());
+	}
+
+}
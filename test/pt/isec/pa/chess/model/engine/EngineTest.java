@@ -0,0 +1,161 @@
+package pt.isec.pa.chess.model.engine;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.ChessGameManager;
+import pt.isec.pa.chess.model.Perft;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+import pt.isec.pa.chess.model.data.ColorType;
+import pt.isec.pa.chess.model.data.Move;
+import pt.isec.pa.chess.model.data.MoveType;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class EngineTest {
+
+	@Test
+	public void findsMateInOne() {
+		Board board = Boards.of("WHITE,KG1,RA1,PF2,PG2,PH2,kG8,pF7,pG7,pH7");
+		SearchResult result = new Engine().search(board, SearchLimits.depth(4));
+
+		assertEquals("a1a8", Move.toString(result.move()));
+		assertTrue(result.isMate());
+		assertEquals(1, result.getMateIn());
+	}
+
+	@Test
+	public void takesHangingQueen() {
+		Board board = Boards.of("BLACK,KE1,QD4,kE8,nF5");
+		SearchResult result = new Engine().search(board, SearchLimits.depth(3));
+
+		assertEquals("f5d4", Move.toString(result.move()));
+		assertEquals("f5d4", result.getPvString().split(" ")[0]);
+	}
+
+	@Test
+	public void secondSearchUsesTable() {
+		Board board = Boards.of(Perft.Position.KIWIPETE.getGame());
+		Engine engine = new Engine();
+		SearchResult first = engine.search(board, SearchLimits.depth(5));
+		SearchResult second = engine.search(board, SearchLimits.depth(5));
+
+		// the entries of the first search cut off the null window nodes of the second
+		assertTrue(second.nodes() + " >= " + first.nodes(), second.nodes() * 2 < first.nodes());
+		assertEquals(first.move(), second.move());
+	}
+
+	@Test
+	public void quiescenceInCheckIsNotMate() {
+		// the queen check is answered by taking the queen, the first evasion searched, which is not mate
+		Board board = Boards.of("WHITE,KE1,QD1,PA2,kE8,pH7");
+		SearchResult result = new Engine().search(board, SearchLimits.depth(1));
+
+		assertFalse(result.isMate());
+		assertNotEquals("d1d7", Move.toString(result.move()));
+		assertTrue(result.score() > 500);
+	}
+
+	@Test
+	public void scoresExtraRook() {
+		// a whole rook up in a quiet position, whatever the first move searched at each node
+		Board board = Boards.of("WHITE,KE1,RD1,PA2,PB2,PC2,kE8,pA7,pB7,pC7");
+		for(int depth = 1; depth <= 5; depth++) {
+			SearchResult result = new Engine().search(board, SearchLimits.depth(depth));
+			assertFalse("depth " + depth, result.isMate());
+			assertTrue("depth " + depth + ": " + result.score(), result.score() > 300);
+		}
+	}
+
+	@Test
+	public void quiescenceSeesRecapture() {
+		// at depth 1 the pawn looks free, but the queen is lost to the recapture
+		Board board = Boards.of("WHITE,KG1,QD1,PA2,kG8,pD5,pE6");
+		SearchResult result = new Engine().search(board, SearchLimits.depth(1));
+
+		assertNotEquals("d1d5", Move.toString(result.move()));
+		assertTrue(result.score() > 0);
+	}
+
+	@Test
+	public void respectsLimitsAndLeavesBoardUnchanged() {
+		Board board = Boards.of(Perft.Position.KIWIPETE.getGame());
+		long hash = board.getHash();
+
+		SearchResult result = new Engine().search(board, SearchLimits.nodes(20_000));
+		assertNotEquals(Move.NONE, result.move());
+		assertTrue(result.nodes() <= 20_000);
+		assertEquals(hash, board.getHash());
+
+		long start = System.currentTimeMillis();
+		new Engine().search(board, SearchLimits.time(200));
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+	@Test
+	public void stopBeforeStartEndsSearch() {
+		AtomicBoolean stopped = new AtomicBoolean(true);
+		SearchResult result = new Engine().search(Boards.of(Perft.Position.START.getGame()), SearchLimits.infinite(), stopped);
+
+		// nothing was searched, but there is still a move to play
+		assertEquals(0, result.depth());
+		assertNotEquals(Move.NONE, result.move());
+	}
+
+	@Test
+	public void managerPlaysComputerMove() {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Human", "Computer");
+
+		assertEquals(MoveType.MOVE, manager.computerMove(SearchLimits.depth(3)));
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+	}
+
+	@Test
+	public void managerPostsComputerMove() throws InterruptedException {
+		ChessGameManager manager = new ChessGameManager();
+		manager.newGame("Human", "Computer");
+		BlockingQueue<Runnable> posted = new LinkedBlockingQueue<>();
+
+		// the search runs on its own thread, the move is only made by the task posted back
+		CompletableFuture<MoveType> move = manager.computerMove(SearchLimits.depth(3), posted::add);
+		Runnable task = posted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(task);
+		assertEquals(ColorType.WHITE, manager.getCurrentPlayer());
+		task.run();
+		assertEquals(MoveType.MOVE, move.join());
+		assertEquals(ColorType.BLACK, manager.getCurrentPlayer());
+		assertTrue(manager.canUndo());
+
+		// a game started meanwhile is left alone
+		move = manager.computerMove(SearchLimits.depth(3), posted::add);
+		manager.newGame("Human", "Computer");
+		task = posted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(task);
+		task.run();
+		assertEquals(MoveType.NONE, move.join());
+		assertEquals(ColorType.WHITE, manager.getCurrentPlayer());
+		assertFalse(manager.canUndo());
+	}
+
+	@Test
+	public void parallelSearchFindsSameMate() {
+		Engine engine = new Engine();
+		engine.setThreads(4);
+
+		SearchResult result = engine.search(Boards.of("WHITE,KG1,RA1,PF2,PG2,PH2,kG8,pF7,pG7,pH7"), SearchLimits.depth(6));
+		assertEquals("a1a8", Move.toString(result.move()));
+		assertEquals(1, result.getMateIn());
+
+		long start = System.currentTimeMillis();
+		result = engine.search(Boards.of(Perft.Position.KIWIPETE.getGame()), SearchLimits.time(200));
+		assertNotEquals(Move.NONE, result.move());
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+}
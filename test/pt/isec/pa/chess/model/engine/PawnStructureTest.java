@@ -0,0 +1,74 @@
+package pt.isec.pa.chess.model.engine;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.Perft;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+import pt.isec.pa.chess.model.data.ColorType;
+
+import static org.junit.Assert.*;
+
+public class PawnStructureTest {
+
+	private static long bit(int row, char column) {
+		return 1L << Board.getSquare(row, column);
+	}
+
+	@Test
+	public void startStructureIsBalanced() {
+		PawnStructure pawns = PawnStructure.of(Boards.of(Perft.Position.START.getGame()));
+		assertEquals(0, pawns.getMidgameScore());
+		assertEquals(0, pawns.getEndgameScore());
+		assertEquals(0, pawns.getPassedPawns(ColorType.WHITE));
+	}
+
+	@Test
+	public void findsPassedPawns() {
+		PawnStructure pawns = PawnStructure.of(Boards.of("WHITE,KE1,PA5,PE4,kE8,pE5,pF7"));
+		assertEquals(bit(5, 'A'), pawns.getPassedPawns(ColorType.WHITE));
+		assertEquals(0, pawns.getPassedPawns(ColorType.BLACK));
+		assertTrue(pawns.getEndgameScore() > 0);
+
+		pawns = PawnStructure.of(Boards.of("WHITE,KE1,PA2,kE8,pH2"));
+		assertEquals(bit(2, 'H'), pawns.getPassedPawns(ColorType.BLACK));
+		assertTrue(pawns.getEndgameScore() < 0);
+	}
+
+	@Test
+	public void penalizesDoubledAndIsolatedPawns() {
+		int healthy = PawnStructure.of(Boards.of("WHITE,KE1,PC2,PD2,kE8,pC7,pD7")).getEndgameScore();
+		int doubled = PawnStructure.of(Boards.of("WHITE,KE1,PC2,PC3,kE8,pC7,pD7")).getEndgameScore();
+		int isolated = PawnStructure.of(Boards.of("WHITE,KE1,PB2,PD2,kE8,pC7,pD7")).getEndgameScore();
+		assertTrue(doubled < healthy);
+		assertTrue(isolated < healthy);
+	}
+
+	@Test
+	public void penalizesBackwardPawns() {
+		// the pawn on D3 is behind the one on E4 and cannot advance past the pawn on C5
+		int backward = PawnStructure.of(Boards.of("WHITE,KE1,PD3,PE4,kE8,pC5,pE5")).getMidgameScore();
+		int supported = PawnStructure.of(Boards.of("WHITE,KE1,PD3,PE3,kE8,pC5,pE5")).getMidgameScore();
+		assertTrue(backward < supported);
+	}
+
+	@Test
+	public void tableCachesStructures() {
+		Board board = Boards.of(Perft.Position.KIWIPETE.getGame());
+		PawnTable table = new PawnTable(1024);
+
+		PawnStructure first = table.probe(board);
+		int midgame = first.getMidgameScore();
+		assertEquals(0, table.getHits());
+
+		assertEquals(midgame, table.probe(board).getMidgameScore());
+		assertEquals(1, table.getHits());
+		assertEquals(0.5, table.getHitRate(), 1e-9);
+		assertEquals(PawnStructure.of(board).getMidgameScore(), midgame);
+
+		table.clear();
+		assertEquals(0, table.getProbes());
+		assertEquals(midgame, table.probe(board).getMidgameScore());
+		assertEquals(0, table.getHits());
+	}
+
+}
@@ -0,0 +1,62 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.Perft;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed depth search benchmark: searches every {@link Perft.Position reference position} to a depth on one thread
+ * and reports the nodes, the time, the effective branching factor (the growth of the iterations per ply),
+ * which measures how well the moves are ordered, and the hit rate of the pawn table.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.engine.SearchBenchmark [depth]}.
+ */
+public class SearchBenchmark {
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		long totalNodes = 0, totalTime = 0;
+		double logBranching = 0;
+
+		for(Perft.Position position : Perft.Position.values()) {
+			Board board = Boards.of(position.getGame());
+
+			List<SearchResult> iterations = new ArrayList<>();
+			Engine engine = new Engine();
+			engine.setListener(iterations::add);
+
+			long start = System.nanoTime();
+			SearchResult result = engine.search(board, SearchLimits.depth(depth));
+			long time = System.nanoTime() - start;
+
+			double branching = getBranchingFactor(iterations);
+			totalNodes += result.nodes();
+			totalTime += time;
+			logBranching += Math.log(branching);
+
+			System.out.printf("%-10s %,12d nodes %9.1f ms  ebf %5.2f  pawn hits %5.1f%%  %s%n", position, result.nodes(),
+					time / 1e6, branching, engine.getPawnTable().getHitRate() * 100, result.getPvString().split(" ")[0]);
+		}
+
+		System.out.printf("total      %,12d nodes %9.1f ms  ebf %5.2f  %,d nps%n", totalNodes, totalTime / 1e6,
+				Math.exp(logBranching / Perft.Position.values().length), (long) (totalNodes * 1e9 / totalTime));
+	}
+
+	/**
+	 * Odd and even iterations grow by different factors in alpha-beta, so the growth is averaged over the last two.
+	 *
+	 * @return the square root of the nodes searched by the last iteration over the nodes searched two iterations before
+	 */
+	private static double getBranchingFactor(List<SearchResult> iterations) {
+		int n = iterations.size();
+		if(n < 4) return 0;
+
+		long last = iterations.get(n - 1).nodes() - iterations.get(n - 2).nodes();
+		long previous = iterations.get(n - 3).nodes() - iterations.get(n - 4).nodes();
+		return Math.sqrt((double) last / previous);
+	}
+
+}
@@ -0,0 +1,52 @@
+package pt.isec.pa.chess.model.engine;
+
+import pt.isec.pa.chess.model.Perft;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+
+/**
+ * Time-to-depth benchmark of the Lazy SMP search: searches every {@link Perft.Position reference position}
+ * to a fixed depth with 1 to N threads and reports the speedup over a single thread.
+ * <p>
+ * Run with {@code java pt.isec.pa.chess.model.engine.SmpBenchmark [depth] [threads]}.
+ */
+public class SmpBenchmark {
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		// warm-up
+		run(1, Math.max(1, depth - 2));
+
+		long single = 0;
+		for(int threads = 1; threads <= maxThreads; threads = threads < maxThreads && threads * 2 > maxThreads ? maxThreads : threads * 2) {
+			long time = run(threads, depth);
+			if(threads == 1)
+				single = time;
+
+			System.out.printf("threads %3d : %10.1f ms  speedup %5.2fx%n", threads, time / 1e6, (double) single / time);
+		}
+	}
+
+	/**
+	 * Searches every reference position to the given depth, each with an empty transposition table.
+	 *
+	 * @return elapsed time in nanoseconds
+	 */
+	private static long run(int threads, int depth) {
+		long total = 0;
+		for(Perft.Position position : Perft.Position.values()) {
+			Board board = Boards.of(position.getGame());
+
+			Engine engine = new Engine();
+			engine.setThreads(threads);
+
+			long start = System.nanoTime();
+			engine.search(board, SearchLimits.depth(depth));
+			total += System.nanoTime() - start;
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,52 @@
+package pt.isec.pa.chess.model.engine;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+import pt.isec.pa.chess.model.data.Move;
+
+import static org.junit.Assert.*;
+
+public class StaticExchangeTest {
+
+	private static int square(String name) {
+		return Board.getSquare(name.charAt(1) - '0', name.charAt(0));
+	}
+
+	private static int capture(String from, String to) {
+		return Move.create(square(from), square(to), Move.FLAG_CAPTURE);
+	}
+
+	@Test
+	public void undefendedPieceIsWon() {
+		Board board = Boards.of("WHITE,KA1,RE1,kH8,pE5");
+		assertEquals(100, StaticExchange.evaluate(board, capture("e1", "e5")));
+	}
+
+	@Test
+	public void defendedPawnCostsTheQueen() {
+		Board board = Boards.of("WHITE,KA1,QD1,kH8,pD5,pE6");
+		assertEquals(100 - 900, StaticExchange.evaluate(board, capture("d1", "d5")));
+	}
+
+	@Test
+	public void xRayAttackerJoinsTheExchange() {
+		Board board = Boards.of("WHITE,KA1,RE1,RE2,kH8,rE8,pE5");
+		assertEquals(100, StaticExchange.evaluate(board, capture("e2", "e5")));
+	}
+
+	@Test
+	public void kingDoesNotCaptureDefendedPiece() {
+		Board board = Boards.of("WHITE,KD4,kH8,pE5,rE8");
+		assertEquals(100 - 20000, StaticExchange.evaluate(board, capture("d4", "e5")));
+	}
+
+	@Test
+	public void detectsHangingPieces() {
+		assertTrue(StaticExchange.isHanging(Boards.of("BLACK,KA1,NC3,kH8,bF6"), square("c3")));
+		assertFalse(StaticExchange.isHanging(Boards.of("BLACK,KA1,NC3,PB2,kH8,bF6"), square("c3")));
+		assertTrue(StaticExchange.isHanging(Boards.of("BLACK,KA1,RC3,PB2,kH8,bF6"), square("c3")));
+		assertFalse(StaticExchange.isHanging(Boards.of("BLACK,KA1,RC3,kH8"), square("c3")));
+	}
+
+}
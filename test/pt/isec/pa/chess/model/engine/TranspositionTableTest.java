@@ -0,0 +1,124 @@
+package pt.isec.pa.chess.model.engine;
+
+import org.junit.Test;
+import pt.isec.pa.chess.model.ChessGame;
+import pt.isec.pa.chess.model.Perft;
+import pt.isec.pa.chess.model.data.Board;
+import pt.isec.pa.chess.model.data.Boards;
+import pt.isec.pa.chess.model.data.Move;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+	@Test
+	public void storeAndProbe() {
+		TranspositionTable table = new TranspositionTable(1);
+		int move = Move.create(12, 28, Move.FLAG_DOUBLE_PUSH);
+
+		assertEquals(0, table.probe(42));
+		table.store(42, move, -150, 7, TranspositionTable.BOUND_LOWER);
+
+		long data = table.probe(42);
+		assertEquals(move, TranspositionTable.getMove(data));
+		assertEquals(-150, TranspositionTable.getScore(data));
+		assertEquals(7, TranspositionTable.getDepth(data));
+		assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(data));
+		assertEquals(0.5, table.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void keepsDeeperEntryAndMove() {
+		TranspositionTable table = new TranspositionTable(1);
+		int move = Move.create(6, 21, Move.FLAG_QUIET);
+
+		table.store(7, move, 30, 10, TranspositionTable.BOUND_LOWER);
+		table.store(7, Move.NONE, 10, 2, TranspositionTable.BOUND_UPPER);
+		assertEquals(10, TranspositionTable.getDepth(table.probe(7)));
+
+		table.store(7, Move.NONE, 20, 9, TranspositionTable.BOUND_UPPER);
+		long data = table.probe(7);
+		assertEquals(9, TranspositionTable.getDepth(data));
+		assertEquals(move, TranspositionTable.getMove(data));
+	}
+
+	@Test
+	public void mateScoresAreRelativeToPosition() {
+		int mateIn3 = Search.MATE - 5;
+		assertEquals(mateIn3, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(mateIn3, 4), 4));
+		assertEquals(Search.MATE - 3, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(mateIn3, 4), 2));
+		assertEquals(-20, TranspositionTable.scoreToTable(-20, 9));
+	}
+
+	/**
+	 * Threads store entries whose data is derived from their key: a torn entry must never be returned.
+	 */
+	@Test
+	public void concurrentAccessNeverMixesEntries() throws InterruptedException {
+		TranspositionTable table = new TranspositionTable(1);
+		Thread[] threads = new Thread[4];
+		boolean[] failed = new boolean[1];
+
+		for(int t = 0; t < threads.length; t++) {
+			long seed = t;
+			threads[t] = new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(seed);
+				for(int i = 0; i < 500_000; i++) {
+					// few distinct keys, so the threads keep overwriting the same clusters
+					long key = random.nextLong(1, 64) * 0x9E3779B97F4A7C15L;
+					int score = (int) (key >>> 50);
+					table.store(key, Move.NONE, score, (int) (key & 63), TranspositionTable.BOUND_EXACT);
+
+					long data = table.probe(key);
+					if(data != 0 && (TranspositionTable.getScore(data) != score || TranspositionTable.getDepth(data) != (int) (key & 63)))
+						failed[0] = true;
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads)
+			thread.join();
+
+		assertFalse(failed[0]);
+		assertTrue(table.getFill() >= 0);
+	}
+
+	@Test
+	public void offHeapMatchesHeap() {
+		Board board = Boards.of(Perft.Position.START.getGame());
+		TranspositionTable heap = new TranspositionTable(2), offHeap = TranspositionTable.offHeap(2);
+		assertEquals(heap.getCapacity(), offHeap.getCapacity());
+
+		SearchResult a = new Engine(heap).search(board, SearchLimits.depth(5));
+		SearchResult b = new Engine(offHeap).search(board, SearchLimits.depth(5));
+		assertEquals(a.move(), b.move());
+		assertEquals(a.score(), b.score());
+		assertEquals(a.nodes(), b.nodes());
+		assertTrue(offHeap.getProbes() > 0 && offHeap.getHits() > 0);
+	}
+
+	@Test
+	public void mappedTableSurvivesReopening() throws IOException {
+		Path file = Files.createTempFile("tt", ".bin");
+		try {
+			long key = new ChessGame("Whites", "Blacks").getHash();
+			TranspositionTable table = TranspositionTable.mapped(file, 1);
+			table.store(key, Move.create(12, 28, Move.FLAG_DOUBLE_PUSH), 35, 12, TranspositionTable.BOUND_EXACT);
+			table.close();
+
+			TranspositionTable reopened = TranspositionTable.mapped(file, 1);
+			long data = reopened.probe(key);
+			assertEquals(35, TranspositionTable.getScore(data));
+			assertEquals(12, TranspositionTable.getDepth(data));
+			reopened.close();
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
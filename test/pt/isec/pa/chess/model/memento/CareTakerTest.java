@@ -0,0 +1,182 @@
+package pt.isec.pa.chess.model.memento;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CareTakerTest {
+
+	/** Appends numbers to a list; a change is the number appended, a checkpoint a copy of the list. */
+	private static class Numbers implements IOriginator {
+		private record Change(int number) implements IMemento {
+			@Override
+			public long getSize() { return 16; }
+		}
+
+		private record State(List<Integer> numbers) implements IMemento {
+			@Override
+			public long getSize() { return 1000; }
+		}
+
+		List<Integer> numbers = new ArrayList<>();
+		int undone, redone, restored;
+
+		@Override
+		public IMemento save() { return new Change(numbers.getLast()); }
+
+		@Override
+		public IMemento undo(IMemento memento) {
+			undone++;
+			return new Change(numbers.removeLast());
+		}
+
+		@Override
+		public IMemento redo(IMemento memento) {
+			redone++;
+			numbers.add(((Change) memento).number());
+			return memento;
+		}
+
+		@Override
+		public IMemento checkpoint() { return new State(new ArrayList<>(numbers)); }
+
+		@Override
+		public void restore(IMemento checkpoint) {
+			restored++;
+			numbers = new ArrayList<>(((State) checkpoint).numbers());
+		}
+	}
+
+	private static void add(CareTaker careTaker, Numbers numbers, int from, int to) {
+		for (int i = from; i < to; i++) {
+			numbers.numbers.add(i);
+			careTaker.save();
+		}
+	}
+
+	@Test
+	public void undoRedo() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		add(careTaker, numbers, 0, 3);
+
+		careTaker.undo();
+		careTaker.undo();
+		assertEquals(List.of(0), numbers.numbers);
+		careTaker.redo();
+		assertEquals(List.of(0, 1), numbers.numbers);
+
+		add(careTaker, numbers, 5, 6);
+		assertFalse(careTaker.hasRedo());
+		assertEquals(3, careTaker.getUndoCount());
+	}
+
+	@Test
+	public void jumpReplaysFromCheckpoint() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		careTaker.setCheckpointInterval(10);
+		add(careTaker, numbers, 0, 45);
+
+		// 35 is closer to the checkpoint at 30 than to 45
+		careTaker.undo(10);
+		assertEquals(35, numbers.numbers.size());
+		assertEquals(1, numbers.restored);
+		assertEquals(5, numbers.redone);
+		assertEquals(0, numbers.undone);
+
+		// 33 is closer to 35
+		careTaker.undo(2);
+		assertEquals(33, numbers.numbers.size());
+		assertEquals(2, numbers.undone);
+
+		while (careTaker.hasRedo())
+			careTaker.redo();
+		assertEquals(45, numbers.numbers.size());
+		for (int i = 0; i < 45; i++)
+			assertEquals(i, (int) numbers.numbers.get(i));
+	}
+
+	@Test
+	public void budgetDropsCheckpointsThenChanges() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		careTaker.setCheckpointInterval(10);
+		add(careTaker, numbers, 0, 100);
+		assertEquals(100 * 64 + 10 * 1000, careTaker.getFootprint());
+
+		careTaker.setBudget(7000);
+		assertEquals(100 * 64, careTaker.getFootprint());
+		assertEquals(100, careTaker.getUndoCount());
+
+		careTaker.setBudget(64 * 50);
+		assertEquals(50, careTaker.getUndoCount());
+		careTaker.undo(1000);
+		assertEquals(50, numbers.numbers.size());
+		assertFalse(careTaker.hasUndo());
+
+		careTaker.reset();
+		assertEquals(0, careTaker.getFootprint());
+	}
+
+	@Test
+	public void variationsAreKept() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		add(careTaker, numbers, 0, 3);
+
+		careTaker.undo();
+		add(careTaker, numbers, 7, 8);
+		careTaker.undo();
+		assertEquals(2, careTaker.getVariations().size());
+
+		// the variation visited last is redone, and the same change follows its variation
+		careTaker.redo();
+		assertEquals(List.of(0, 1, 7), numbers.numbers);
+		careTaker.undo();
+		careTaker.redo(1);
+		assertEquals(List.of(0, 1, 2), numbers.numbers);
+		careTaker.undo();
+		numbers.numbers.add(7);
+		careTaker.save();
+		careTaker.undo();
+		assertEquals(2, careTaker.getVariations().size());
+
+		long footprint = careTaker.getFootprint();
+		careTaker.setBudget(footprint - 1);
+		assertEquals(1, careTaker.getUndoCount());
+		assertEquals(2, careTaker.getVariations().size());
+	}
+
+	@Test
+	public void amendFollowsEqualVariation() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		add(careTaker, numbers, 0, 2);
+		careTaker.undo();
+		add(careTaker, numbers, 7, 8);
+		long footprint = careTaker.getFootprint();
+
+		// the change completed is the one of the first variation
+		numbers.numbers.set(1, 1);
+		careTaker.amend();
+		assertEquals(footprint - 64, careTaker.getFootprint());
+		careTaker.undo();
+		assertEquals(List.of(new Numbers.Change(1)), careTaker.getVariations());
+		careTaker.redo();
+		assertEquals(List.of(0, 1), numbers.numbers);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void missingVariation() {
+		Numbers numbers = new Numbers();
+		CareTaker careTaker = new CareTaker(numbers);
+		add(careTaker, numbers, 0, 1);
+		careTaker.undo();
+		careTaker.redo(1);
+	}
+
+}